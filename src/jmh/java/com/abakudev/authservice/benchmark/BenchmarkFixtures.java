@@ -0,0 +1,150 @@
+package com.abakudev.authservice.benchmark;
+
+import com.abakudev.authservice.persistence.DatabaseBulkhead;
+import com.abakudev.authservice.persistence.DatabaseCircuitBreaker;
+import com.abakudev.authservice.persistence.ReadReplicas;
+import com.abakudev.authservice.security.DegradedValidation;
+import com.abakudev.authservice.security.JwtService;
+import com.abakudev.authservice.security.ReferenceTokens;
+import com.abakudev.authservice.security.TokenEpochs;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import com.abakudev.authservice.token.SessionActivity;
+import com.abakudev.authservice.token.Token;
+import com.abakudev.authservice.token.TokenRepository;
+import com.abakudev.authservice.token.TokenType;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Permission;
+import com.abakudev.authservice.user.Role;
+import com.abakudev.authservice.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Shared fixtures for the JMH benchmarks: a configured {@link JwtService} and in-memory stand-ins for the JPA
+ * repositories, so that the measured code paths never leave the JVM.
+ */
+final class BenchmarkFixtures {
+
+    static final String SECRET_KEY = "4c071eedf337979811a68ec8f8061b06b2ac42cb609b7f161686d79d9a4f006c";
+    static final long ACCESS_TOKEN_EXPIRATION = 86_400_000L;
+    static final long REFRESH_TOKEN_EXPIRATION = 604_800_000L;
+    static final int POOL_SIZE = 10;
+    static final int FAILURE_THRESHOLD = 5;
+    static final int MAX_DEGRADED_ENTRIES = 1000;
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtService jwtService() {
+        var jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", ACCESS_TOKEN_EXPIRATION);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", REFRESH_TOKEN_EXPIRATION);
+        return jwtService;
+    }
+
+    static RoleRegistry roleRegistry() {
+        var roleRegistry = new RoleRegistry();
+        roleRegistry.update(Arrays.stream(Role.values()).collect(Collectors.toMap(Role::name,
+                role -> role.getPermissions().stream().map(Permission::getName).collect(Collectors.toSet()))));
+        return roleRegistry;
+    }
+
+    static SessionActivity sessionActivity() {
+        // never flushed during a benchmark, neither the template nor the cache eviction are used
+        return new SessionActivity(new JdbcTemplate(), null);
+    }
+
+    static DatabaseBulkhead databaseBulkhead() {
+        // the lookups of the fixtures do not obtain connections, the bulkhead only marks their lane
+        return new DatabaseBulkhead(new SimpleMeterRegistry(), POOL_SIZE, 0, 0, 0, Duration.ZERO);
+    }
+
+    static ReadReplicas readReplicas() {
+        // no replica, every lookup stays on the primary
+        return new ReadReplicas(new SimpleMeterRegistry(), List.of(), "", "", POOL_SIZE, Duration.ZERO, Duration.ZERO,
+                Duration.ZERO, "");
+    }
+
+    static DatabaseCircuitBreaker circuitBreaker() {
+        return new DatabaseCircuitBreaker(event -> { }, new SimpleMeterRegistry(), true, FAILURE_THRESHOLD,
+                Duration.ofSeconds(1), Duration.ofMinutes(1));
+    }
+
+    static DegradedValidation degradedValidation(JwtService jwtService) {
+        return new DegradedValidation(jwtService, new TokenEpochs(), new SimpleMeterRegistry(), Duration.ofMinutes(1),
+                MAX_DEGRADED_ENTRIES);
+    }
+
+    static ReferenceTokens referenceTokens() {
+        return new ReferenceTokens(true, ACCESS_TOKEN_EXPIRATION, Duration.ofSeconds(30), MAX_DEGRADED_ENTRIES);
+    }
+
+    static User user(Integer id, String email, Role role) {
+        return User.builder()
+                .id(id)
+                .firstname("Bench")
+                .lastname("Mark")
+                .email(email)
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoO5Q0a1bB1f8eY6x1b7QJ1rS2xvG2hG7e")
+                .role(role.name())
+                .build();
+    }
+
+    static UserDetailsService userDetailsService(Map<String, User> users) {
+        return username -> Optional.ofNullable(users.get(username))
+                .map(AuthenticatedUser::of)
+                .orElseThrow(() -> new UsernameNotFoundException("User with " + username + " not found."));
+    }
+
+    static Token token(Integer id, User user, String tokenValue) {
+        return Token.builder()
+                .id(id)
+                .user(user)
+                .tokenValue(tokenValue)
+                .tokenType(TokenType.BEARER)
+                .revoked(false)
+                .expired(false)
+                .build();
+    }
+
+    /**
+     * Builds a {@link TokenRepository} backed by the given map keyed by token value. Only the methods
+     * used on the authentication paths are supported.
+     */
+    static TokenRepository tokenRepository(Map<String, Token> tokens) {
+        return (TokenRepository) Proxy.newProxyInstance(TokenRepository.class.getClassLoader(),
+                new Class<?>[]{TokenRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByTokenValue" -> Optional.ofNullable(tokens.get((String) args[0]));
+                    case "findActiveWithUser" -> Optional.ofNullable(tokens.get((String) args[0]))
+                            .filter(token -> !token.isExpired() && !token.isRevoked());
+                    case "save" -> {
+                        var token = (Token) args[0];
+                        tokens.put(token.getTokenValue(), token);
+                        yield token;
+                    }
+                    case "saveAll" -> {
+                        @SuppressWarnings("unchecked")
+                        var saved = (List<Token>) args[0];
+                        saved.forEach(t -> tokens.put(t.getTokenValue(), t));
+                        yield saved;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryTokenRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
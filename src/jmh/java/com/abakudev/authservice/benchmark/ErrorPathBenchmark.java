@@ -0,0 +1,119 @@
+package com.abakudev.authservice.benchmark;
+
+import com.abakudev.authservice.errorhandling.GlobalExceptionHandler;
+import com.abakudev.authservice.errorhandling.PrecomputedErrorBodies;
+import com.abakudev.authservice.errorhandling.SampledErrorLog;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.errorhandling.response.ErrorResponse;
+import com.abakudev.authservice.security.JwtAuthenticationFilter;
+import com.abakudev.authservice.security.JwtService;
+import com.abakudev.authservice.security.TokenEpochs;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import com.abakudev.authservice.user.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the 4xx paths hit by token-replay floods and bad logins: the historical way of failing (a new exception
+ * with its stack trace and a Jackson serialized {@link ErrorResponse}) against the shared stackless exception rendered
+ * by {@link GlobalExceptionHandler} from a precomputed body, and an expired bearer token going through
+ * {@link JwtAuthenticationFilter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    private ObjectMapper objectMapper;
+    private GlobalExceptionHandler handler;
+    private ServletWebRequest webRequest;
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest expiredTokenRequest;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        this.objectMapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        // no permit: measures the steady state of a flood, where every error is counted instead of logged
+        this.handler = new GlobalExceptionHandler(new PrecomputedErrorBodies(this.objectMapper),
+                new SampledErrorLog(0));
+        this.webRequest = new ServletWebRequest(new MockHttpServletRequest("POST", "/api/v1/auth/refresh-token"),
+                new MockHttpServletResponse());
+
+        JwtService expiringJwtService = BenchmarkFixtures.jwtService();
+        ReflectionTestUtils.setField(expiringJwtService, "jwtExpiration", -BenchmarkFixtures.ACCESS_TOKEN_EXPIRATION);
+        User user = BenchmarkFixtures.user(1, "manager@mail.com", Role.MANAGER);
+        String expiredJwt = expiringJwtService.generateToken(AuthenticatedUser.of(user));
+
+        this.filter = new JwtAuthenticationFilter(BenchmarkFixtures.jwtService(),
+                BenchmarkFixtures.userDetailsService(Map.of(user.getEmail(), user)),
+                BenchmarkFixtures.tokenRepository(Map.of()), BenchmarkFixtures.roleRegistry(), new TokenEpochs(),
+                BenchmarkFixtures.sessionActivity(), BenchmarkFixtures.databaseBulkhead(),
+                BenchmarkFixtures.readReplicas(), BenchmarkFixtures.circuitBreaker(),
+                BenchmarkFixtures.degradedValidation(BenchmarkFixtures.jwtService()),
+                BenchmarkFixtures.referenceTokens(), null);
+        this.expiredTokenRequest = new MockHttpServletRequest("GET", "/api/v1/management");
+        this.expiredTokenRequest.setServletPath("/api/v1/management");
+        this.expiredTokenRequest.addHeader("Authorization", "Bearer " + expiredJwt);
+        this.chain = (req, res) -> { };
+    }
+
+    @Benchmark
+    public byte[] stackTraceAndJackson() throws JsonProcessingException {
+        try {
+            throw new BusinessException(BusinessExceptionReason.INVALID_TOKEN);
+        } catch (BusinessException ex) {
+            return this.objectMapper.writeValueAsBytes(
+                    new ErrorResponse(ex.getCode(), ex.getMessage(), ex.getHttpStatus()));
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<Object> sharedExceptionAndPrecomputedBody() {
+        try {
+            throw BusinessException.of(BusinessExceptionReason.INVALID_TOKEN);
+        } catch (BusinessException ex) {
+            return this.handler.handleCustomBusinessException(ex, this.webRequest);
+        }
+    }
+
+    @Benchmark
+    public void expiredBearerToken(Blackhole blackhole) throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        this.filter.doFilter(this.expiredTokenRequest, response, this.chain);
+        blackhole.consume(response);
+    }
+}
@@ -0,0 +1,95 @@
+package com.abakudev.authservice.benchmark;
+
+import com.abakudev.authservice.security.JwtAuthenticationFilter;
+import com.abakudev.authservice.security.JwtService;
+import com.abakudev.authservice.security.ReferenceTokens;
+import com.abakudev.authservice.security.TokenEpochs;
+import com.abakudev.authservice.token.Token;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import com.abakudev.authservice.user.User;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the full {@link JwtAuthenticationFilter} path for a bearer-authenticated request, with the user and token
+ * lookups served from in-memory repositories. The bearer is a JWT or a reference token handle, see
+ * {@link ReferenceTokens}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"jwt", "reference"})
+    private String tokenFormat;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setUp() {
+        JwtService jwtService = BenchmarkFixtures.jwtService();
+        User user = BenchmarkFixtures.user(1, "manager@mail.com", Role.MANAGER);
+        ReferenceTokens referenceTokens = BenchmarkFixtures.referenceTokens();
+        Map<String, Token> tokens = new ConcurrentHashMap<>();
+        final String bearer;
+        if ("reference".equals(this.tokenFormat)) {
+            bearer = referenceTokens.generate();
+            Token token = BenchmarkFixtures.token(1, user, bearer);
+            token.setAccessExpiresAt(referenceTokens.expiresAt());
+            tokens.put(bearer, token);
+            referenceTokens.remember(bearer, token, user.getEmail());
+        } else {
+            bearer = jwtService.generateToken(AuthenticatedUser.of(user));
+            tokens.put(bearer, BenchmarkFixtures.token(1, user, bearer));
+        }
+
+        this.filter = new JwtAuthenticationFilter(jwtService,
+                BenchmarkFixtures.userDetailsService(Map.of(user.getEmail(), user)),
+                BenchmarkFixtures.tokenRepository(tokens), BenchmarkFixtures.roleRegistry(), new TokenEpochs(),
+                BenchmarkFixtures.sessionActivity(), BenchmarkFixtures.databaseBulkhead(),
+                BenchmarkFixtures.readReplicas(), BenchmarkFixtures.circuitBreaker(),
+                BenchmarkFixtures.degradedValidation(jwtService), referenceTokens, null);
+        this.request = new MockHttpServletRequest("GET", "/api/v1/management");
+        this.request.setServletPath("/api/v1/management");
+        this.request.addHeader("Authorization", "Bearer " + bearer);
+        this.response = new MockHttpServletResponse();
+        this.chain = (req, res) -> { };
+    }
+
+    @Benchmark
+    public void doFilter(Blackhole blackhole) throws ServletException, IOException {
+        try {
+            this.filter.doFilter(this.request, this.response, this.chain);
+            blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
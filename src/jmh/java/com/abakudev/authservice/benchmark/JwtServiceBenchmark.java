@@ -0,0 +1,60 @@
+package com.abakudev.authservice.benchmark;
+
+import com.abakudev.authservice.security.JwtService;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures token issuing and claim extraction in {@link JwtService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private AuthenticatedUser user;
+    private String accessToken;
+
+    @Setup
+    public void setUp() {
+        this.jwtService = BenchmarkFixtures.jwtService();
+        this.user = AuthenticatedUser.of(BenchmarkFixtures.user(1, "bench@mail.com", Role.MANAGER));
+        this.accessToken = this.jwtService.generateToken(this.user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return this.jwtService.generateToken(this.user);
+    }
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return this.jwtService.generateRefreshToken(this.user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return this.jwtService.extractUsername(this.accessToken);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return this.jwtService.isTokenValid(this.accessToken, this.user);
+    }
+}
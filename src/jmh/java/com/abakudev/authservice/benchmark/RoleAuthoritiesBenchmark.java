@@ -0,0 +1,61 @@
+package com.abakudev.authservice.benchmark;
+
+import com.abakudev.authservice.security.authorization.AuthorizationRequirement;
+import com.abakudev.authservice.security.authorization.PreAuthorizeCompiler;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-request authorization work served by the {@link RoleRegistry}: the authority list of a role and a
+ * compiled {@code @PreAuthorize} check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoleAuthoritiesBenchmark {
+
+    @Param({"USER", "MANAGER", "ADMIN"})
+    private String role;
+
+    private RoleRegistry roleRegistry;
+    private AuthorizationRequirement requirement;
+    private UsernamePasswordAuthenticationToken authentication;
+
+    @Setup
+    public void setUp() {
+        this.roleRegistry = BenchmarkFixtures.roleRegistry();
+        this.requirement = new PreAuthorizeCompiler(this.roleRegistry)
+                .compile("hasAnyRole('ADMIN', 'MANAGER') and hasAuthority('management:read')");
+        var user = new AuthenticatedUser(1, "bench@mail.com", "hash", this.role, 0);
+        this.authentication = new UsernamePasswordAuthenticationToken(user, null, List.of());
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> getAuthorities() {
+        return this.roleRegistry.authoritiesOf(this.role);
+    }
+
+    @Benchmark
+    public boolean checkRequirement() {
+        return this.requirement.isSatisfiedBy(this.roleRegistry.grantedBits(this.authentication));
+    }
+}
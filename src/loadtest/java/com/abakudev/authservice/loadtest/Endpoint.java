@@ -0,0 +1,28 @@
+package com.abakudev.authservice.loadtest;
+
+/**
+ * Operations replayed by the load test. The property key is the one used for the weights of a workload profile.
+ */
+enum Endpoint {
+
+    MANAGEMENT("management", "GET /api/v1/management"),
+    LOGIN("login", "POST /api/v1/auth/login"),
+    REFRESH("refresh", "POST /api/v1/auth/refresh-token"),
+    LOGOUT("logout", "POST /api/v1/auth/logout");
+
+    private final String key;
+    private final String label;
+
+    Endpoint(String key, String label) {
+        this.key = key;
+        this.label = label;
+    }
+
+    String key() {
+        return this.key;
+    }
+
+    String label() {
+        return this.label;
+    }
+}
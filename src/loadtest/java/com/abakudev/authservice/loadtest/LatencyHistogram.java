@@ -0,0 +1,76 @@
+package com.abakudev.authservice.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Lock-free log-linear latency histogram in microseconds. Values below 64 µs are counted exactly, larger values fall
+ * into buckets whose width is 1/64 of their magnitude, so every reported percentile is within ~1.6% of the recorded
+ * value, in a fixed amount of memory whatever the number of samples.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_SHIFT = 30;
+    private static final long MAX_VALUE = (1L << (MAX_SHIFT + SUB_BUCKET_BITS + 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_SHIFT + 2) * SUB_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+        this.counts.incrementAndGet(indexOf(value));
+        this.max.accumulate(value);
+    }
+
+    long count() {
+        long total = 0;
+        for (int i = 0; i < this.counts.length(); i++) {
+            total += this.counts.get(i);
+        }
+        return total;
+    }
+
+    long max() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns the smallest recorded bucket value such that at least {@code percentile} percent of the samples are
+     * lower or equal.
+     */
+    long percentile(double percentile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < this.counts.length(); i++) {
+            seen += this.counts.get(i);
+            if (seen >= Math.max(threshold, 1)) {
+                return Math.min(valueOf(i), max());
+            }
+        }
+        return max();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    static long valueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,61 @@
+package com.abakudev.authservice.loadtest;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency and error accounting for the measured part of a run.
+ */
+final class LoadTestReport {
+
+    private static final double MICROS_PER_MILLI = 1_000.0;
+    private static final double MILLIS_PER_SECOND = 1_000.0;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<Endpoint, LatencyHistogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+
+    LoadTestReport() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            this.latencies.put(endpoint, new LatencyHistogram());
+            this.errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    void record(Endpoint endpoint, long micros, boolean success) {
+        this.latencies.get(endpoint).record(micros);
+        if (!success) {
+            this.errors.get(endpoint).increment();
+        }
+    }
+
+    long errors(Endpoint endpoint) {
+        return this.errors.get(endpoint).sum();
+    }
+
+    void print(PrintStream out, WorkloadProfile profile, Duration measured) {
+        double seconds = measured.toMillis() / MILLIS_PER_SECOND;
+        out.printf("%nWorkload %s: %d clients, %ds measured after %ds warm-up%n", profile.name(),
+                profile.concurrency(), measured.toSeconds(), profile.warmup().toSeconds());
+        out.printf("%-34s %9s %9s %10s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        long totalRequests = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            LatencyHistogram histogram = this.latencies.get(endpoint);
+            long count = histogram.count();
+            if (count == 0) {
+                continue;
+            }
+            totalRequests += count;
+            out.printf("%-34s %9d %9d %10.1f", endpoint.label(), count, errors(endpoint), count / seconds);
+            for (double percentile : PERCENTILES) {
+                out.printf(" %9.2f", histogram.percentile(percentile) / MICROS_PER_MILLI);
+            }
+            out.printf(" %9.2f%n", histogram.max() / MICROS_PER_MILLI);
+        }
+        out.printf("%-34s %9d %9s %10.1f%n", "total", totalRequests, "", totalRequests / seconds);
+    }
+}
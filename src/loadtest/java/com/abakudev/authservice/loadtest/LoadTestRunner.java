@@ -0,0 +1,205 @@
+package com.abakudev.authservice.loadtest;
+
+import com.abakudev.authservice.AuthServiceApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replays a {@link WorkloadProfile} over HTTP and prints latency percentiles and throughput per endpoint.
+ *
+ * <p>Unless the profile sets {@code base-url}, the runner boots {@link AuthServiceApplication} with the
+ * {@code loadtest} Spring profile (in-memory H2 in PostgreSQL mode) on a random port. Each simulated client owns its
+ * own account, so that logins and refreshes, which revoke the previous tokens of the user, do not invalidate the
+ * tokens of the other clients.
+ *
+ * <pre>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.profile=loadtest/production-mix.properties -Dloadtest.args="concurrency=128"
+ * </pre>
+ */
+@Slf4j
+public final class LoadTestRunner {
+
+    private static final String PASSWORD = "password";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long NANOS_PER_MICRO = 1_000L;
+
+    private final WorkloadProfile profile;
+    private final String baseUrl;
+    private final HttpClient http;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadTestReport report = new LoadTestReport();
+
+    LoadTestRunner(WorkloadProfile profile, String baseUrl, HttpClient http) {
+        this.profile = profile;
+        this.baseUrl = baseUrl;
+        this.http = http;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: LoadTestRunner <profile> [key=value ...]");
+        }
+        var profile = WorkloadProfile.load(args[0], Arrays.asList(args).subList(1, args.length));
+        ConfigurableApplicationContext context = null;
+        String baseUrl = profile.baseUrl();
+        if (baseUrl == null) {
+            var application = new SpringApplication(AuthServiceApplication.class);
+            application.setAdditionalProfiles("loadtest");
+            context = application.run("--server.port=0");
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var http = HttpClient.newBuilder()
+                    .executor(executor)
+                    .connectTimeout(REQUEST_TIMEOUT)
+                    .build();
+            new LoadTestRunner(profile, baseUrl, http).run(executor);
+        } finally {
+            if (context != null) {
+                SpringApplication.exit(context);
+            }
+        }
+    }
+
+    void run(ExecutorService executor) throws Exception {
+        log.info("Registering {} load test clients against {}", this.profile.concurrency(), this.baseUrl);
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < this.profile.concurrency(); i++) {
+            var client = new Client("loadtest-" + i + "-" + System.nanoTime() + "@mail.com");
+            client.register();
+            clients.add(client);
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + this.profile.warmup().toNanos();
+        long deadline = measureFrom + this.profile.duration().toNanos();
+        log.info("Running {} for {}s (+{}s warm-up)", this.profile.name(), this.profile.duration().toSeconds(),
+                this.profile.warmup().toSeconds());
+
+        List<Future<?>> running = new ArrayList<>();
+        for (Client client : clients) {
+            running.add(executor.submit(() -> client.loop(measureFrom, deadline)));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        this.report.print(System.out, this.profile, Duration.ofNanos(deadline - measureFrom));
+    }
+
+    private final class Client {
+
+        private final String email;
+        private String accessToken;
+        private String refreshToken;
+
+        Client(String email) {
+            this.email = email;
+        }
+
+        void register() throws IOException, InterruptedException {
+            var body = "{\"firstname\":\"Load\",\"lastname\":\"Test\",\"email\":\"%s\",\"password\":\"%s\",\"role\":\"MANAGER\"}"
+                    .formatted(this.email, PASSWORD);
+            var response = send(json("/api/v1/auth/register", body));
+            if (response.statusCode() != HttpStatus.CREATED.value()) {
+                throw new IllegalStateException("Registration failed for " + this.email + ": " + response.body());
+            }
+            storeTokens(response.body());
+        }
+
+        Void loop(long measureFrom, long deadline) throws InterruptedException {
+            while (System.nanoTime() < deadline) {
+                Endpoint endpoint = this.accessToken == null
+                        ? Endpoint.LOGIN
+                        : LoadTestRunner.this.profile.next(ThreadLocalRandom.current());
+                long begin = System.nanoTime();
+                boolean success;
+                try {
+                    success = execute(endpoint);
+                } catch (IOException e) {
+                    success = false;
+                }
+                if (begin >= measureFrom) {
+                    LoadTestRunner.this.report.record(endpoint, (System.nanoTime() - begin) / NANOS_PER_MICRO, success);
+                }
+            }
+            return null;
+        }
+
+        private boolean execute(Endpoint endpoint) throws IOException, InterruptedException {
+            return switch (endpoint) {
+                case MANAGEMENT -> send(authorized(HttpRequest.newBuilder(uri("/api/v1/management")).GET()))
+                        .statusCode() == HttpStatus.OK.value();
+                case LOGIN -> {
+                    var body = "{\"email\":\"%s\",\"password\":\"%s\"}".formatted(this.email, PASSWORD);
+                    var response = send(json("/api/v1/auth/login", body));
+                    if (response.statusCode() == HttpStatus.OK.value()) {
+                        storeTokens(response.body());
+                        yield true;
+                    }
+                    yield false;
+                }
+                case REFRESH -> {
+                    var query = "?token=" + URLEncoder.encode(this.refreshToken, StandardCharsets.UTF_8);
+                    var response = send(HttpRequest.newBuilder(uri("/api/v1/auth/refresh-token" + query))
+                            .POST(HttpRequest.BodyPublishers.noBody()));
+                    if (response.statusCode() == HttpStatus.OK.value()) {
+                        storeTokens(response.body());
+                        yield true;
+                    }
+                    yield false;
+                }
+                case LOGOUT -> {
+                    var response = send(authorized(HttpRequest.newBuilder(uri("/api/v1/auth/logout"))
+                            .POST(HttpRequest.BodyPublishers.noBody())));
+                    this.accessToken = null;
+                    yield response.statusCode() == HttpStatus.OK.value();
+                }
+            };
+        }
+
+        private void storeTokens(String body) throws IOException {
+            JsonNode tokens = LoadTestRunner.this.objectMapper.readTree(body);
+            this.accessToken = tokens.path("access_token").asText();
+            this.refreshToken = tokens.path("refresh_token").asText();
+        }
+
+        private HttpRequest.Builder authorized(HttpRequest.Builder builder) {
+            return builder.header("Authorization", "Bearer " + this.accessToken);
+        }
+
+        private HttpRequest.Builder json(String path, String body) {
+            return HttpRequest.newBuilder(uri(path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+        }
+
+        private URI uri(String path) {
+            return URI.create(LoadTestRunner.this.baseUrl + path);
+        }
+
+        private HttpResponse<String> send(HttpRequest.Builder builder) throws IOException, InterruptedException {
+            return LoadTestRunner.this.http.send(builder.timeout(REQUEST_TIMEOUT).build(),
+                    HttpResponse.BodyHandlers.ofString());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.abakudev.authservice.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.random.RandomGenerator;
+
+/**
+ * A reproducible workload: how long to run, how many concurrent clients and the relative weight of each
+ * {@link Endpoint}. Profiles are plain properties files, looked up on the file system first and then on the classpath;
+ * {@code key=value} overrides given on the command line take precedence.
+ *
+ * <pre>
+ * duration-seconds=60
+ * warmup-seconds=10
+ * concurrency=64
+ * weight.management=90
+ * weight.login=5
+ * weight.refresh=3
+ * weight.logout=2
+ * # base-url=http://localhost:8080 (targets a running instance instead of booting one)
+ * </pre>
+ */
+record WorkloadProfile(String name,
+                       Duration duration,
+                       Duration warmup,
+                       int concurrency,
+                       Map<Endpoint, Integer> weights,
+                       String baseUrl) {
+
+    static WorkloadProfile load(String location, List<String> overrides) {
+        var properties = new Properties();
+        try (InputStream in = open(location)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read workload profile " + location, e);
+        }
+        overrides.stream()
+                .filter(o -> o.contains("="))
+                .forEach(o -> properties.setProperty(o.substring(0, o.indexOf('=')), o.substring(o.indexOf('=') + 1)));
+
+        var weights = new EnumMap<Endpoint, Integer>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            int weight = Integer.parseInt(properties.getProperty("weight." + endpoint.key(), "0"));
+            if (weight > 0) {
+                weights.put(endpoint, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Workload profile " + location + " has no positive weight.");
+        }
+        return new WorkloadProfile(location,
+                Duration.ofSeconds(Long.parseLong(properties.getProperty("duration-seconds", "60"))),
+                Duration.ofSeconds(Long.parseLong(properties.getProperty("warmup-seconds", "10"))),
+                Integer.parseInt(properties.getProperty("concurrency", "64")),
+                weights,
+                properties.getProperty("base-url"));
+    }
+
+    private static InputStream open(String location) throws IOException {
+        var path = Path.of(location);
+        if (Files.isRegularFile(path)) {
+            return Files.newInputStream(path);
+        }
+        var resource = WorkloadProfile.class.getClassLoader().getResourceAsStream(location);
+        return Objects.requireNonNull(resource, () -> "Workload profile not found: " + location);
+    }
+
+    Endpoint next(RandomGenerator random) {
+        int total = this.weights.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(total);
+        for (Map.Entry<Endpoint, Integer> entry : this.weights.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+}
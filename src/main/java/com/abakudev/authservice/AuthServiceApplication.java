@@ -2,53 +2,94 @@ package com.abakudev.authservice;
 
 import com.abakudev.authservice.user.Role;
 import com.abakudev.authservice.auth.AuthenticationService;
+import com.abakudev.authservice.auth.request.ClientInfo;
 import com.abakudev.authservice.auth.request.RegisterRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Slf4j
 @SpringBootApplication
 public class AuthServiceApplication {
 
     private static final String PASSWORD = "password";
 
+    /**
+     * How the demo users are registered at startup ({@code application.seed-data.mode}).
+     */
+    public enum SeedMode {
+        /**
+         * In parallel, the startup waits for them.
+         */
+        PARALLEL,
+        /**
+         * In parallel once started, the service accepts requests while the passwords are being hashed.
+         */
+        BACKGROUND,
+        /**
+         * Not at all, for instances whose database already holds the users.
+         */
+        NONE
+    }
+
     public static void main(String[] args) {
         SpringApplication.run(AuthServiceApplication.class, args);
     }
 
     @Bean
-    public CommandLineRunner commandLineRunner(AuthenticationService service) {
+    public CommandLineRunner commandLineRunner(AuthenticationService service,
+                                               @Value("${application.seed-data.mode:parallel}") SeedMode mode) {
         return args -> {
+            if (mode == SeedMode.NONE) {
+                return;
+            }
+            var client = new ClientInfo("127.0.0.1", "auth-service");
             var admin = RegisterRequest.builder()
                     .firstname("Admin")
                     .lastname("Admin")
                     .email("admin@mail.com")
                     .password(PASSWORD)
-                    .role(Role.ADMIN)
+                    .role(Role.ADMIN.name())
                     .build();
-            log.info("Admin token: {}", service.register(admin).accessToken());
-
             var manager = RegisterRequest.builder()
                     .firstname("Manager")
                     .lastname("Manager")
                     .email("manager@mail.com")
                     .password(PASSWORD)
-                    .role(Role.MANAGER)
+                    .role(Role.MANAGER.name())
                     .build();
-            log.info("Manager token: {}", service.register(manager).accessToken());
-
             var user = RegisterRequest.builder()
                     .firstname("User")
                     .lastname("User")
                     .email("user@mail.com")
                     .password(PASSWORD)
-                    .role(Role.USER)
+                    .role(Role.USER.name())
                     .build();
-            log.info("User token: {}", service.register(user).accessToken());
 
+            // one virtual thread per user, the BCrypt hashes run side by side
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            var seeded = CompletableFuture.allOf(List.of(admin, manager, user).stream()
+                            .map(request -> CompletableFuture.runAsync(() -> log.info("{} token: {}",
+                                    request.getFirstname(), service.register(request, client).accessToken()), executor))
+                            .toArray(CompletableFuture[]::new))
+                    .whenComplete((result, failure) -> {
+                        executor.shutdown();
+                        // a failure of the blocking seed stops the startup instead
+                        if (failure != null && mode == SeedMode.BACKGROUND) {
+                            log.error("Could not register the demo users", failure);
+                        }
+                    });
+            if (mode == SeedMode.PARALLEL) {
+                seeded.join();
+            }
         };
     }
 }
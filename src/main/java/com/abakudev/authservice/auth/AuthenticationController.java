@@ -1,5 +1,6 @@
 package com.abakudev.authservice.auth;
 
+import com.abakudev.authservice.auth.request.ClientInfo;
 import com.abakudev.authservice.auth.request.LoginRequest;
 import com.abakudev.authservice.auth.request.RegisterRequest;
 import com.abakudev.authservice.auth.response.AuthenticationResponse;
@@ -11,6 +12,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -40,8 +42,10 @@ public class AuthenticationController {
                             schema = @Schema(implementation = ErrorResponse.class))})
     })
     @PostMapping("/register")
-    public ResponseEntity<AuthenticationResponse> register(@Valid @RequestBody RegisterRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(this.service.register(request));
+    public ResponseEntity<AuthenticationResponse> register(@Valid @RequestBody RegisterRequest request,
+                                                           HttpServletRequest servletRequest) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(this.service.register(request, ClientInfo.from(servletRequest)));
     }
 
     @Operation(summary = "Authenticate a user.", description = "Authenticate a user.")
@@ -49,13 +53,17 @@ public class AuthenticationController {
             @ApiResponse(responseCode = "200", description = "User authenticated successfully.",
                     content = {@Content(mediaType = "application/json",
                             schema = @Schema(implementation = AuthenticationResponse.class))}),
-            @ApiResponse(responseCode = "404", description = "User not found.",
+            @ApiResponse(responseCode = "401", description = "Bad credentials.",
+                    content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class))}),
+            @ApiResponse(responseCode = "429", description = "Too many failed login attempts.",
                     content = {@Content(mediaType = "application/json",
                             schema = @Schema(implementation = ErrorResponse.class))})
     })
     @PostMapping("/login")
-    public ResponseEntity<AuthenticationResponse> authenticate(@Valid @RequestBody LoginRequest request) {
-        return ResponseEntity.ok(this.service.authenticate(request));
+    public ResponseEntity<AuthenticationResponse> authenticate(@Valid @RequestBody LoginRequest request,
+                                                               HttpServletRequest servletRequest) {
+        return ResponseEntity.ok(this.service.authenticate(request, ClientInfo.from(servletRequest)));
     }
 
     @Operation(summary = "Refresh token.", description = "Refresh token.")
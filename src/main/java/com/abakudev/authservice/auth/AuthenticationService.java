@@ -1,25 +1,46 @@
 package com.abakudev.authservice.auth;
 
+import com.abakudev.authservice.auth.request.ClientInfo;
 import com.abakudev.authservice.auth.request.LoginRequest;
 import com.abakudev.authservice.auth.request.RegisterRequest;
 import com.abakudev.authservice.auth.response.AuthenticationResponse;
+import com.abakudev.authservice.config.EntityCacheEviction;
 import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
 import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.persistence.ReadReplicas;
 import com.abakudev.authservice.security.JwtService;
+import com.abakudev.authservice.security.ReferenceTokens;
+import com.abakudev.authservice.security.TokenEpochs;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import com.abakudev.authservice.security.ratelimit.LoginRateLimiter;
 import com.abakudev.authservice.token.Token;
 import com.abakudev.authservice.token.TokenRepository;
 import com.abakudev.authservice.token.TokenType;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.EmailAddresses;
+import com.abakudev.authservice.user.EmailMembershipIndex;
+import com.abakudev.authservice.user.Role;
 import com.abakudev.authservice.user.User;
 import com.abakudev.authservice.user.UserRepository;
 import com.abakudev.authservice.auth.request.RefreshTokenRequest;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.util.Strings;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -30,79 +51,180 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final LoginRateLimiter loginRateLimiter;
+    private final EmailMembershipIndex emailIndex;
+    private final RoleRegistry roleRegistry;
+    private final TokenEpochs tokenEpochs;
+    private final UserLockStripes userLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadReplicas readReplicas;
+    private final ReferenceTokens referenceTokens;
+    private final EntityCacheEviction cacheEviction;
 
-    public AuthenticationResponse register(RegisterRequest request) {
-        this.userRepository.findByEmail(request.getEmail())
-                .ifPresent(user -> {
-                    throw new BusinessException(BusinessExceptionReason.USER_ALREADY_EXISTS);
-                });
+    public AuthenticationResponse register(RegisterRequest request, ClientInfo client) {
+        final String role = Objects.requireNonNullElse(request.getRole(), Role.USER.name());
+        if (this.roleRegistry.role(role) == null) {
+            throw BusinessException.of(BusinessExceptionReason.UNKNOWN_ROLE);
+        }
         var user = User.builder()
                 .firstname(request.getFirstname())
                 .lastname(request.getLastname())
-                .email(request.getEmail())
+                .email(EmailAddresses.normalize(request.getEmail()))
                 .password(this.passwordEncoder.encode(request.getPassword()))
-                .role(request.getRole())
+                .role(role)
                 .build();
-        var savedUser = this.userRepository.save(user);
-        var jwtToken = this.jwtService.generateToken(user);
-        var refreshToken = this.jwtService.generateRefreshToken(user);
-        saveUserToken(savedUser, jwtToken);
-        return new AuthenticationResponse(jwtToken, refreshToken);
+        User savedUser;
+        try {
+            savedUser = this.userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (UserRepository.isDuplicateEmail(e)) {
+                throw BusinessException.of(BusinessExceptionReason.USER_ALREADY_EXISTS);
+            }
+            throw e;
+        }
+        this.emailIndex.add(user.getEmail());
+        return openSession(AuthenticatedUser.of(savedUser), client);
     }
 
-    public AuthenticationResponse authenticate(LoginRequest request) {
-        this.authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
-        var user = this.userRepository.findByEmail(request.getEmail())
-                .orElseThrow( () -> new BusinessException(BusinessExceptionReason.USER_NOT_FOUND));
-        var jwtToken = this.jwtService.generateToken(user);
-        var refreshToken = this.jwtService.generateRefreshToken(user);
-        revokeAllUserTokens(user);
-        saveUserToken(user, jwtToken);
-        return new AuthenticationResponse(jwtToken, refreshToken);
+    public AuthenticationResponse authenticate(LoginRequest request, ClientInfo client) {
+        // counted before the password hash, so that parallel attempts cannot all pass the limit
+        this.loginRateLimiter.acquire(request.getEmail(), client.ipAddress());
+        try {
+            this.authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword()));
+        } catch (BadCredentialsException | UsernameNotFoundException e) {
+            this.loginRateLimiter.recordFailure(request.getEmail(), client.ipAddress());
+            throw BusinessException.of(BusinessExceptionReason.BAD_CREDENTIALS);
+        } catch (InternalAuthenticationServiceException e) {
+            // the user could not be loaded, a busy or unreachable database is no wrong password and is not counted
+            if (NestedExceptionUtils.getRootCause(e) instanceof BusinessException cause) {
+                throw cause;
+            }
+            throw e;
+        } finally {
+            this.loginRateLimiter.release(request.getEmail(), client.ipAddress());
+        }
+        var user = this.userRepository.findAuthenticatedUserByEmail(EmailAddresses.normalize(request.getEmail()))
+                .orElseThrow(() -> BusinessException.of(BusinessExceptionReason.USER_NOT_FOUND));
+        return openSession(user, client);
     }
 
-    private void saveUserToken(User user, String jwtToken) {
-        var token = Token.builder()
-                .user(user)
-                .tokenValue(jwtToken)
-                .tokenType(TokenType.BEARER)
-                .expired(false)
-                .revoked(false)
-                .build();
-        this.tokenRepository.save(token);
+    /**
+     * Opens a new login session, next to the other sessions of the user. The access token is a reference token when
+     * the client asked for one, a JWT otherwise; the refresh token is always a JWT.
+     */
+    private AuthenticationResponse openSession(AuthenticatedUser user, ClientInfo client) {
+        final String sessionId = UUID.randomUUID().toString();
+        final boolean reference = client.referenceToken() && this.referenceTokens.isEnabled();
+        var accessToken = this.accessToken(user, sessionId, reference);
+        var refreshToken = this.jwtService.generateRefreshToken(user, sessionId);
+        final Instant now = Instant.now();
+        final Token token = this.tokenRepository.save(sessionToken(user, sessionId)
+                .tokenValue(accessToken)
+                .accessExpiresAt(reference ? this.referenceTokens.expiresAt() : null)
+                .device(client.userAgent())
+                .ipAddress(client.ipAddress())
+                .createdAt(now)
+                .expiresAt(now.plusMillis(this.jwtService.getRefreshExpiration()))
+                .build());
+        if (reference) {
+            this.referenceTokens.remember(accessToken, token, user.email());
+        }
+        // the new token is used right away, before the replicas may have it
+        this.readReplicas.wrote(user.email());
+        return new AuthenticationResponse(accessToken, refreshToken);
     }
 
-    private void revokeAllUserTokens(User user) {
-        var validUserTokens = this.tokenRepository.findAllValidTokenByUser(user.getId());
-        if (validUserTokens.isEmpty()) {
-            return;
-        }
-        validUserTokens.forEach(token -> {
-            token.setExpired(true);
-            token.setRevoked(true);
-        });
-        this.tokenRepository.saveAll(validUserTokens);
+    private String accessToken(AuthenticatedUser user, String sessionId, boolean reference) {
+        return reference ? this.referenceTokens.generate() : this.jwtService.generateToken(user, sessionId);
+    }
+
+    private Token.TokenBuilder sessionToken(AuthenticatedUser user, String sessionId) {
+        return Token.builder()
+                // reference only, the user entity is not loaded
+                .user(this.userRepository.getReferenceById(user.id()))
+                .sessionId(sessionId)
+                .epoch(user.tokenEpoch())
+                .tokenType(TokenType.BEARER)
+                .expired(false)
+                .revoked(false);
     }
 
     public AuthenticationResponse refreshToken(RefreshTokenRequest request) {
 
         if (Objects.isNull(request) || Strings.isBlank(request.token())) {
-            throw new BusinessException(BusinessExceptionReason.INVALID_TOKEN);
+            throw BusinessException.of(BusinessExceptionReason.INVALID_TOKEN);
         }
         final String refreshToken = request.token();
         final String userEmail;
-        userEmail = this.jwtService.extractUsername(refreshToken);
+        try {
+            userEmail = this.jwtService.extractUsername(refreshToken);
+        } catch (JwtException e) {
+            throw BusinessException.of(BusinessExceptionReason.INVALID_TOKEN);
+        }
         if (Strings.isNotBlank(userEmail)) {
-            var user = this.userRepository.findByEmail(userEmail)
-                    .orElseThrow();
-            if (this.jwtService.isTokenValid(refreshToken, user)) {
-                var accessToken = this.jwtService.generateToken(user);
-                revokeAllUserTokens(user);
-                saveUserToken(user, accessToken);
-                return new AuthenticationResponse(accessToken, refreshToken);
+            var user = this.userRepository.findAuthenticatedUserByEmail(userEmail)
+                    .orElseThrow(() -> BusinessException.of(BusinessExceptionReason.INVALID_TOKEN));
+            if (this.jwtService.isTokenValid(refreshToken, user)
+                    && this.tokenEpochs.isCurrent(this.jwtService.extractEpoch(refreshToken), user)) {
+                return refreshSession(user, this.jwtService.extractSessionId(refreshToken), refreshToken);
             }
         }
-        throw new BusinessException(BusinessExceptionReason.INVALID_TOKEN);
+        throw BusinessException.of(BusinessExceptionReason.INVALID_TOKEN);
+    }
+
+    /**
+     * Replaces the access token of the session, the other sessions of the user are left untouched. The refresh token
+     * of a revoked session is refused.
+     * <p>
+     * The refreshes of a user run one at a time on this instance, the lock being taken before the transaction so that
+     * the waiting requests hold no connection, and the revocation and the new token commit together. The rows of the
+     * session are locked as well, for the refreshes of the same session through other instances. The session keeps
+     * the access token format it was opened with.
+     */
+    private AuthenticationResponse refreshSession(AuthenticatedUser user, String sessionId, String refreshToken) {
+        if (sessionId == null) {
+            throw BusinessException.of(BusinessExceptionReason.INVALID_TOKEN);
+        }
+        final Refresh refresh = this.userLocks.withLock(user.id(), () -> this.transactionTemplate.execute(
+                status -> replaceSessionToken(user, sessionId)));
+        // the revoked tokens only, a bulk update would have emptied the whole token regions of the cache
+        this.cacheEviction.evictTokens(refresh.revoked().stream().map(Token::getId).toList());
+        this.cacheEviction.evictTokenValues(refresh.revoked().stream().map(Token::getTokenValue).toList());
+        // the previous handle of a reference session is refused right away on this instance
+        refresh.revoked().forEach(revoked -> this.referenceTokens.revoke(revoked.getTokenValue()));
+        this.readReplicas.wrote(user.email());
+        return new AuthenticationResponse(refresh.accessToken(), refreshToken);
+    }
+
+    private Refresh replaceSessionToken(AuthenticatedUser user, String sessionId) {
+        // none left when the session was refreshed or revoked in the meantime, possibly through another instance
+        final List<Token> session = this.tokenRepository.lockActiveBySession(user.id(), sessionId);
+        if (session.isEmpty()) {
+            throw BusinessException.of(BusinessExceptionReason.INVALID_TOKEN);
+        }
+        final Token current = session.get(0);
+        session.forEach(revoked -> {
+            revoked.setRevoked(true);
+            revoked.setExpired(true);
+        });
+        this.tokenRepository.saveAll(session);
+        final boolean reference = Objects.nonNull(current.getAccessExpiresAt()) && this.referenceTokens.isEnabled();
+        final String accessToken = this.accessToken(user, sessionId, reference);
+        final Token token = this.tokenRepository.save(sessionToken(user, sessionId)
+                .tokenValue(accessToken)
+                .accessExpiresAt(reference ? this.referenceTokens.expiresAt() : null)
+                .device(current.getDevice())
+                .ipAddress(current.getIpAddress())
+                .createdAt(current.getCreatedAt())
+                .expiresAt(current.getExpiresAt())
+                .build());
+        if (reference) {
+            this.referenceTokens.remember(accessToken, token, user.email());
+        }
+        return new Refresh(accessToken, session);
+    }
+
+    private record Refresh(String accessToken, List<Token> revoked) {
     }
 }
@@ -0,0 +1,62 @@
+package com.abakudev.authservice.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes the session writes of a user without a global lock. The users are spread over a fixed number of lock
+ * stripes, so that two users only wait for each other when they share a stripe, and the memory used does not grow with
+ * the number of users.
+ * <p>
+ * {@link ReentrantLock} rather than {@code synchronized}, which would pin the virtual thread of the request while it
+ * waits. Only the requests of this instance are serialized, the writes themselves stay conditional so that the
+ * instances cannot corrupt each other's sessions.
+ */
+@Component
+public class UserLockStripes {
+
+    private final ReentrantLock[] stripes;
+
+    public UserLockStripes(@Value("${application.security.sessions.lock-stripes:256}") int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("At least one lock stripe is needed, got " + stripeCount);
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Runs the action while holding the lock stripe of the given user.
+     */
+    public void withLock(Integer userId, Runnable action) {
+        this.withLock(userId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the action while holding the lock stripe of the given user.
+     *
+     * @return the result of the action
+     */
+    public <T> T withLock(Integer userId, Supplier<T> action) {
+        final ReentrantLock lock = this.stripes[stripeOf(userId)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int stripeOf(Integer userId) {
+        // the user ids are sequential, consecutive users land on different stripes
+        return Math.floorMod(userId, this.stripes.length);
+    }
+}
@@ -0,0 +1,34 @@
+package com.abakudev.authservice.auth.request;
+
+import com.abakudev.authservice.security.ReferenceTokens;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Details about the client that sent an authentication request.
+ *
+ * @param ipAddress the client IP address, as resolved by the servlet container (honours
+ *                  {@code server.forward-headers-strategy} when running behind a proxy)
+ * @param userAgent the {@code User-Agent} header, cut to {@link #MAX_USER_AGENT_LENGTH} characters, or {@code null}
+ * @param referenceToken whether the client asked for a reference token rather than a JWT, see {@link ReferenceTokens}
+ */
+public record ClientInfo(String ipAddress, String userAgent, boolean referenceToken) {
+
+    public static final int MAX_USER_AGENT_LENGTH = 255;
+
+    public ClientInfo(String ipAddress) {
+        this(ipAddress, null);
+    }
+
+    public ClientInfo(String ipAddress, String userAgent) {
+        this(ipAddress, userAgent, false);
+    }
+
+    public static ClientInfo from(HttpServletRequest request) {
+        final String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        return new ClientInfo(request.getRemoteAddr(), userAgent == null || userAgent.length() <= MAX_USER_AGENT_LENGTH
+                ? userAgent
+                : userAgent.substring(0, MAX_USER_AGENT_LENGTH),
+                ReferenceTokens.FORMAT.equalsIgnoreCase(request.getHeader(ReferenceTokens.FORMAT_HEADER)));
+    }
+}
@@ -1,7 +1,7 @@
 package com.abakudev.authservice.auth.request;
 
-import com.abakudev.authservice.user.Role;
 import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,8 +15,10 @@ public class RegisterRequest {
 
     private String firstname;
     private String lastname;
+    @NotBlank
     @Email
     private String email;
+    @NotBlank
     private String password;
-    private Role role;
+    private String role;
 }
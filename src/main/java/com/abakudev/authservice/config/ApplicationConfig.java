@@ -1,9 +1,14 @@
 package com.abakudev.authservice.config;
 
+import com.abakudev.authservice.security.EmailIndexedUserDetailsService;
+import com.abakudev.authservice.user.EmailAddresses;
+import com.abakudev.authservice.user.EmailMembershipIndex;
 import com.abakudev.authservice.user.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -14,21 +19,24 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
+@EnableScheduling
+@ImportRuntimeHints(NativeRuntimeHints.class)
 @RequiredArgsConstructor
 public class ApplicationConfig {
 
     private final UserRepository userRepository;
+    private final EmailMembershipIndex emailIndex;
 
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
+        return username -> userRepository.findAuthenticatedUserByEmail(EmailAddresses.normalize(username))
                .orElseThrow(() -> new UsernameNotFoundException("User with " + username + " not found."));
     }
 
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
-        authProvider.setUserDetailsService(userDetailsService());
+        authProvider.setUserDetailsService(new EmailIndexedUserDetailsService(userDetailsService(), this.emailIndex));
         authProvider.setPasswordEncoder(passwordEncoder());
         return authProvider;
     }
@@ -0,0 +1,33 @@
+package com.abakudev.authservice.config;
+
+import com.abakudev.authservice.persistence.BulkheadDataSource;
+import com.abakudev.authservice.persistence.DatabaseBulkhead;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts the {@link DatabaseBulkhead} in front of the application data source
+ * ({@code application.persistence.bulkhead.enabled}).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "application.persistence.bulkhead", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class DatabaseBulkheadConfig {
+
+    @Bean
+    public static BeanPostProcessor bulkheadDataSourcePostProcessor(ObjectProvider<DatabaseBulkhead> bulkhead) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)
+                        ? new BulkheadDataSource(dataSource, bulkhead.getObject())
+                        : bean;
+            }
+        };
+    }
+}
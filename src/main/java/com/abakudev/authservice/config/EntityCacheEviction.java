@@ -0,0 +1,66 @@
+package com.abakudev.authservice.config;
+
+import com.abakudev.authservice.token.Token;
+import com.abakudev.authservice.user.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Explicit eviction from the second-level cache after the security-relevant writes, see
+ * {@link SecondLevelCacheConfig}. Does nothing when the cache is disabled.
+ * <p>
+ * Hibernate already keeps the cache in step with the entity writes and the bulk updates of this instance, evicting
+ * explicitly makes the revocations independent of how they are written, including the plain JDBC updates Hibernate
+ * does not see.
+ */
+@Component
+public class EntityCacheEviction {
+
+    private final Cache cache;
+    private final SessionFactoryImplementor sessionFactory;
+
+    public EntityCacheEviction(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    /**
+     * Evicts the user and the cached principal lookups, after a change of its password, role or token epoch.
+     */
+    public void evictUser(Integer userId) {
+        this.cache.evictEntityData(User.class, userId);
+        this.cache.evictDefaultQueryRegion();
+    }
+
+    public void evictToken(Integer tokenId) {
+        this.cache.evictEntityData(Token.class, tokenId);
+    }
+
+    public void evictTokens(Collection<Integer> tokenIds) {
+        tokenIds.forEach(this::evictToken);
+    }
+
+    /**
+     * Evicts the lookups of the given token values from the {@link Token#VALUE_CACHE_REGION natural id region}.
+     */
+    public void evictTokenValues(Collection<String> tokenValues) {
+        final EntityPersister persister = this.sessionFactory.getMappingMetamodel().getEntityDescriptor(Token.class);
+        final NaturalIdDataAccess naturalIds = persister.getNaturalIdCacheAccessStrategy();
+        if (naturalIds == null || tokenValues.isEmpty()) {
+            return;
+        }
+        // the cache keys are built by a session, which opens no connection for it
+        try (StatelessSession session = this.sessionFactory.openStatelessSession()) {
+            tokenValues.forEach(tokenValue -> naturalIds.evict(naturalIds.generateCacheKey(tokenValue, persister,
+                    (SharedSessionContractImplementor) session)));
+        }
+    }
+}
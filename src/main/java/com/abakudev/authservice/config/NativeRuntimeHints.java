@@ -0,0 +1,84 @@
+package com.abakudev.authservice.config;
+
+import com.abakudev.authservice.auth.request.LoginRequest;
+import com.abakudev.authservice.auth.request.RefreshTokenRequest;
+import com.abakudev.authservice.auth.request.RegisterRequest;
+import com.abakudev.authservice.errorhandling.response.ErrorResponse;
+import com.abakudev.authservice.errorhandling.response.InvalidParameter;
+import com.abakudev.authservice.token.Token;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.BatchRegisterRequest;
+import com.abakudev.authservice.user.ChangePasswordRequest;
+import com.abakudev.authservice.user.RoleAssignmentRequest;
+import com.abakudev.authservice.user.RoleDefinition;
+import com.abakudev.authservice.user.RoleDefinitionRequest;
+import com.abakudev.authservice.user.User;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * Reflection and resource hints of the native image (see the {@code native} Maven profile) for what the AOT processing
+ * of Spring cannot see:
+ * <ul>
+ *     <li>jjwt creates its implementation, JSON serializer and compression codecs from their class names;</li>
+ *     <li>Hibernate sets the fields of the entities and creates the {@link AuthenticatedUser} projection through its
+ *     constructor, named in a JPQL query;</li>
+ *     <li>Jackson binds the Lombok request classes and writes the {@link ErrorResponse} outside of a controller
+ *     signature, Hibernate Validator reads the constraints from their fields;</li>
+ *     <li>springdoc registers its own hints, but not the files of the swagger-ui webjar it serves.</li>
+ * </ul>
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final List<String> JJWT_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer");
+
+    static final List<Class<?>> ENTITY_TYPES = List.of(User.class, Token.class, RoleDefinition.class);
+
+    static final List<Class<?>> BINDING_TYPES = List.of(
+            LoginRequest.class,
+            RegisterRequest.class,
+            RefreshTokenRequest.class,
+            ChangePasswordRequest.class,
+            BatchRegisterRequest.class,
+            RoleDefinitionRequest.class,
+            RoleAssignmentRequest.class,
+            ErrorResponse.class,
+            InvalidParameter.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (String type : JJWT_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        for (Class<?> entity : ENTITY_TYPES) {
+            hints.reflection().registerType(entity, MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+        hints.reflection().registerType(AuthenticatedUser.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                BINDING_TYPES.toArray(Class<?>[]::new));
+        for (Class<?> type : BINDING_TYPES) {
+            hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS);
+        }
+
+        hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/**");
+    }
+}
@@ -0,0 +1,54 @@
+package com.abakudev.authservice.config;
+
+import com.abakudev.authservice.persistence.BulkheadDataSource;
+import com.abakudev.authservice.persistence.ReadReplicas;
+import com.abakudev.authservice.persistence.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes the reads of {@link ReadReplicas} to the replicas, when {@code application.persistence.replicas.urls} lists
+ * any.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ReadReplicaConfig {
+
+    @Bean
+    public static ReplicaRoutingPostProcessor replicaRoutingDataSourcePostProcessor(
+            ObjectProvider<ReadReplicas> readReplicas) {
+        return new ReplicaRoutingPostProcessor(readReplicas);
+    }
+
+    /**
+     * Ordered, so that it runs before the unordered post-processor of the {@link DatabaseBulkheadConfig database
+     * bulkhead}: the bulkhead permits then also bound the reads sent to the replicas. Declared as the return type of
+     * its bean method, Spring only sees that it is ordered from the declared type.
+     */
+    public static final class ReplicaRoutingPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final ObjectProvider<ReadReplicas> readReplicas;
+
+        private ReplicaRoutingPostProcessor(ObjectProvider<ReadReplicas> readReplicas) {
+            this.readReplicas = readReplicas;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof ReplicaRoutingDataSource)
+                    && !(bean instanceof BulkheadDataSource) && this.readReplicas.getObject().isEnabled()) {
+                return new ReplicaRoutingDataSource(dataSource, this.readReplicas.getObject());
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.abakudev.authservice.config;
+
+import com.abakudev.authservice.token.Token;
+import com.abakudev.authservice.user.User;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+
+/**
+ * Optional in-process second-level cache, enabled by {@code application.persistence.second-level-cache.enabled}.
+ * <p>
+ * Caches the {@link User} and {@link Token} entities by id, the tokens by value (their natural id) and the principal
+ * query by email, so that authenticating a request needs no database round trip once warm. Writes made through this
+ * instance keep the cache consistent, writes made through other instances are only seen once the cached entries
+ * expire: with several instances, the time-to-live bounds how long a revoked token or session stays usable elsewhere.
+ * The hit and miss counts per region are exported as the {@code hibernate.*} metrics.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.persistence.second-level-cache", name = "enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(
+            @Value("${application.persistence.second-level-cache.time-to-live:PT30S}") Duration timeToLive,
+            @Value("${application.persistence.second-level-cache.max-entries-per-region:100000}") long maxEntries) {
+        CacheManager cacheManager = Caching.getCachingProvider(EhcacheCachingProvider.class.getName())
+                .getCacheManager();
+        for (String region : new String[]{User.CACHE_REGION, Token.CACHE_REGION, Token.VALUE_CACHE_REGION,
+                QUERY_RESULTS_REGION}) {
+            cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+                    CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                                    ResourcePoolsBuilder.heap(maxEntries))
+                            .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive))));
+        }
+        // must outlive the cached query results it invalidates
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(maxEntries))));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            // every region is created above, a typo in a region name must not silently create an unbounded one
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+}
@@ -5,7 +5,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
-import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -33,7 +32,6 @@ import static org.springframework.security.config.http.SessionCreationPolicy.STA
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
-@EnableMethodSecurity
 public class SecurityConfig {
 
     private static final String[] WHITE_LIST_URL = {"/api/v1/auth/**",
@@ -48,6 +46,15 @@ public class SecurityConfig {
             "/webjars/**",
             "/swagger-ui.html"};
     public static final String API_V_1_MANAGEMENT = "/api/v1/management/**";
+    private static final String ACTUATOR = "/actuator/**";
+    public static final String[] PROBES = {"/actuator/health/liveness", "/actuator/health/readiness"};
+    /**
+     * The routes hashing a password, each call costs tens of milliseconds of CPU. Shed first under overload.
+     */
+    public static final String[] PASSWORD_HASHING_URL = {"/api/v1/auth/login",
+            "/api/v1/auth/register",
+            "/api/v1/users/change-password",
+            "/api/v1/users/batch"};
 
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final AuthenticationProvider authenticationProvider;
@@ -69,6 +76,8 @@ public class SecurityConfig {
                                 .hasAnyAuthority(ADMIN_UPDATE.name(), MANAGER_UPDATE.name())
                                 .requestMatchers(DELETE, API_V_1_MANAGEMENT)
                                 .hasAnyAuthority(ADMIN_DELETE.name(), MANAGER_DELETE.name())
+                                .requestMatchers(PROBES).permitAll()
+                                .requestMatchers(ACTUATOR).hasAuthority(ADMIN_READ.getName())
                                 .anyRequest()
                                 .authenticated()
                 )
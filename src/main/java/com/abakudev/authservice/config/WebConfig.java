@@ -0,0 +1,19 @@
+package com.abakudev.authservice.config;
+
+import com.abakudev.authservice.security.authorization.PreAuthorizeInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final PreAuthorizeInterceptor preAuthorizeInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this.preAuthorizeInterceptor);
+    }
+}
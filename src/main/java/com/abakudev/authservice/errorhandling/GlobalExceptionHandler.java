@@ -6,14 +6,17 @@ import com.abakudev.authservice.errorhandling.response.ErrorResponse;
 import com.abakudev.authservice.errorhandling.response.InvalidParameter;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Path;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.access.AccessDeniedException;
@@ -45,8 +48,11 @@ import static java.util.Collections.singletonList;
 @Order(Ordered.HIGHEST_PRECEDENCE)
 @ControllerAdvice
 @Slf4j
+@RequiredArgsConstructor
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
+    private final PrecomputedErrorBodies errorBodies;
+    private final SampledErrorLog errorLog;
 
     /**
      * Handles the uncaught {@link Exception} exceptions and returns a JSON formatted response.
@@ -57,6 +63,10 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
      */
     @ExceptionHandler(value = {Exception.class})
     public ResponseEntity<Object> handleUncaughtException(final Exception ex, final ServletWebRequest request) {
+        if (NestedExceptionUtils.getRootCause(ex) instanceof BusinessException cause) {
+            // thrown while obtaining a connection and wrapped by the persistence layer
+            return handleCustomBusinessException(cause, request);
+        }
         log(ex, request);
         final var errorResponse = new ErrorResponse(Exception.class.getSimpleName(),
                 HttpStatus.INTERNAL_SERVER_ERROR.getReasonPhrase(),
@@ -74,7 +84,17 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @ExceptionHandler({BusinessException.class})
     public ResponseEntity<Object> handleCustomBusinessException(final BusinessException ex,
                                                                 final ServletWebRequest request) {
-        log(ex, request);
+        if (!BusinessException.isExpected(ex.getHttpStatus())) {
+            log(ex, request);
+        } else {
+            logSampled(ex.getCode(), ex, request);
+        }
+        if (ex.isCanonical()) {
+            final ResponseEntity<Object> precomputed = precomputed(ex.getReason());
+            if (precomputed != null) {
+                return precomputed;
+            }
+        }
         final ErrorResponse errorResponseDto = new ErrorResponse(ex.getCode(), ex.getMessage(), ex.getHttpStatus());
         return ResponseEntity.status(ex.getHttpStatus()).body(errorResponseDto);
     }
@@ -89,7 +109,11 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @ExceptionHandler({AccessDeniedException.class})
     public ResponseEntity<Object> handleAccessDeniedException(final AccessDeniedException ex,
                                                               final ServletWebRequest request) {
-        log(ex, request);
+        logSampled(BusinessExceptionReason.ACCESS_DENIED.getCode(), ex, request);
+        final ResponseEntity<Object> precomputed = precomputed(BusinessExceptionReason.ACCESS_DENIED);
+        if (precomputed != null) {
+            return precomputed;
+        }
         final ErrorResponse errorResponse = new ErrorResponse(BusinessExceptionReason.ACCESS_DENIED);
         return ResponseEntity.status(BusinessExceptionReason.ACCESS_DENIED.getHttpStatus()).body(errorResponse);
     }
@@ -104,7 +128,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @ExceptionHandler(value = {ConstraintViolationException.class})
     public ResponseEntity<Object> handleConstraintViolationException(final ConstraintViolationException ex,
                                                                      final ServletWebRequest request) {
-        log(ex, request);
+        logSampled(ConstraintViolationException.class.getSimpleName(), ex, request);
 
         final List<InvalidParameter> invalidParameters = new ArrayList<>();
         ex.getConstraintViolations().forEach(constraintViolation -> {
@@ -140,7 +164,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                   final HttpHeaders headers,
                                                                   final HttpStatusCode status,
                                                                   final WebRequest request) {
-        log(ex, (ServletWebRequest) request);
+        logSampled(HttpMessageNotReadableException.class.getSimpleName(), ex, (ServletWebRequest) request);
         final ErrorResponse errorResponse = new ErrorResponse(HttpMessageNotReadableException.class.getSimpleName(),
                 ex.getMessage(),
                 HttpStatus.BAD_REQUEST);
@@ -159,7 +183,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     protected ResponseEntity<Object> handleHttpRequestMethodNotSupported(
             final HttpRequestMethodNotSupportedException ex, final HttpHeaders headers, final HttpStatusCode status,
             final WebRequest request) {
-        log(ex, (ServletWebRequest) request);
+        logSampled(HttpRequestMethodNotSupportedException.class.getSimpleName(), ex, (ServletWebRequest) request);
         final ErrorResponse errorResponse =
                 new ErrorResponse(HttpRequestMethodNotSupportedException.class.getSimpleName(), ex.getMessage(),
                         HttpStatus.METHOD_NOT_ALLOWED);
@@ -178,7 +202,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                   final HttpHeaders headers,
                                                                   final HttpStatusCode status,
                                                                   final WebRequest request) {
-        log(ex, (ServletWebRequest) request);
+        logSampled(MethodArgumentNotValidException.class.getSimpleName(), ex, (ServletWebRequest) request);
         final List<InvalidParameter> invalidParameters = ex.getBindingResult().getFieldErrors().stream()
                 .map(fieldError -> new InvalidParameter(fieldError.getField(), fieldError.getDefaultMessage()))
                 .toList();
@@ -201,7 +225,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                                                                           final HttpHeaders headers,
                                                                           final HttpStatusCode status,
                                                                           final WebRequest request) {
-        log(ex, (ServletWebRequest) request);
+        logSampled(ServletRequestBindingException.class.getSimpleName(), ex, (ServletWebRequest) request);
 
         final String missingParameter;
         final String missingParameterType;
@@ -239,7 +263,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @Override
     protected ResponseEntity<Object> handleTypeMismatch(final TypeMismatchException ex, final HttpHeaders headers,
                                                         final HttpStatusCode status, final WebRequest request) {
-        log(ex, (ServletWebRequest) request);
+        logSampled(TypeMismatchException.class.getSimpleName(), ex, (ServletWebRequest) request);
 
         String parameter = ex.getPropertyName();
         if (ex instanceof MethodArgumentTypeMismatchException) {
@@ -280,10 +304,30 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     protected ResponseEntity<Object> handleMissingServletRequestParameter(
             final MissingServletRequestParameterException ex, final HttpHeaders headers, final HttpStatusCode status,
             final WebRequest request) {
-        log(ex, (ServletWebRequest) request);
         return handleServletRequestBindingException(ex, headers, status, request);
     }
 
+    private ResponseEntity<Object> precomputed(final BusinessExceptionReason reason) {
+        final byte[] body = this.errorBodies.render(reason);
+        if (body == null) {
+            return null;
+        }
+        return ResponseEntity.status(reason.getHttpStatus()).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Logs a client error at warn level, without stack trace and at most a few times per second for the same key.
+     */
+    private void logSampled(final String key, final Exception ex, final ServletWebRequest request) {
+        final long skipped = this.errorLog.acquire(key);
+        if (skipped < 0) {
+            return;
+        }
+        final Object httpMethod = request != null ? request.getHttpMethod() : "'null'";
+        final Object requestUrl = request != null ? request.getRequest().getRequestURI() : "'null'";
+        log.warn("Request {} {} failed with exception reason: {} ({} similar errors not logged)", httpMethod,
+                requestUrl, ex.getMessage(), skipped);
+    }
 
     private void log(final Exception ex, final ServletWebRequest request) {
         final Optional<HttpMethod> httpMethod;
@@ -0,0 +1,99 @@
+package com.abakudev.authservice.errorhandling;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.errorhandling.response.ErrorResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * JSON bodies of the {@link ErrorResponse} of every {@link BusinessExceptionReason}, serialized once at startup with the
+ * application {@link ObjectMapper}. Only the timestamp changes between two responses for the same reason, so rendering
+ * an error is a copy of the prefix, the formatted timestamp and the suffix instead of a Jackson serialization.
+ */
+@Component
+public class PrecomputedErrorBodies {
+
+    private static final LocalDateTime PLACEHOLDER = LocalDateTime.MIN;
+
+    private final Map<BusinessExceptionReason, Body> bodies = new EnumMap<>(BusinessExceptionReason.class);
+    private final Clock clock;
+    private volatile Timestamp lastTimestamp = new Timestamp(Long.MIN_VALUE, new byte[0]);
+
+    @Autowired
+    public PrecomputedErrorBodies(ObjectMapper objectMapper) {
+        this(objectMapper, Clock.systemDefaultZone());
+    }
+
+    PrecomputedErrorBodies(ObjectMapper objectMapper, Clock clock) {
+        this.clock = clock;
+        try {
+            final String placeholder = objectMapper.writeValueAsString(PLACEHOLDER);
+            if (!placeholder.equals('"' + DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(PLACEHOLDER) + '"')) {
+                // timestamps are not written as ISO strings, let Jackson render every error
+                return;
+            }
+            for (BusinessExceptionReason reason : BusinessExceptionReason.values()) {
+                final String json = objectMapper.writeValueAsString(new ErrorResponse(reason.getCode(),
+                        reason.getMessage(), reason.getHttpStatus().value(), PLACEHOLDER, null));
+                final int at = json.indexOf(placeholder);
+                if (at < 0) {
+                    continue;
+                }
+                this.bodies.put(reason, new Body(json.substring(0, at + 1).getBytes(StandardCharsets.UTF_8),
+                        json.substring(at + placeholder.length() - 1).getBytes(StandardCharsets.UTF_8)));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize error responses", e);
+        }
+    }
+
+    /**
+     * Renders the error response of the given reason.
+     *
+     * @param reason the reason of the error
+     * @return the JSON body, or null if the bodies could not be precomputed with the current Jackson configuration
+     */
+    public byte[] render(BusinessExceptionReason reason) {
+        final Body body = this.bodies.get(reason);
+        if (body == null) {
+            return null;
+        }
+        final byte[] timestamp = timestamp();
+        final byte[] json = new byte[body.prefix().length + timestamp.length + body.suffix().length];
+        System.arraycopy(body.prefix(), 0, json, 0, body.prefix().length);
+        System.arraycopy(timestamp, 0, json, body.prefix().length, timestamp.length);
+        System.arraycopy(body.suffix(), 0, json, body.prefix().length + timestamp.length, body.suffix().length);
+        return json;
+    }
+
+    /**
+     * The current time formatted like Jackson writes a {@link LocalDateTime}, reused for all the errors of the same
+     * millisecond.
+     */
+    private byte[] timestamp() {
+        final long millis = this.clock.millis();
+        final Timestamp last = this.lastTimestamp;
+        if (last.millis() == millis) {
+            return last.bytes();
+        }
+        final byte[] bytes = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.now(this.clock))
+                .getBytes(StandardCharsets.US_ASCII);
+        this.lastTimestamp = new Timestamp(millis, bytes);
+        return bytes;
+    }
+
+    private record Body(byte[] prefix, byte[] suffix) {
+    }
+
+    private record Timestamp(long millis, byte[] bytes) {
+    }
+}
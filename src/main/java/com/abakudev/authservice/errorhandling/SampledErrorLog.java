@@ -0,0 +1,67 @@
+package com.abakudev.authservice.errorhandling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limit for the logging of client errors. A flood of replayed tokens or bad logins would otherwise write one line
+ * per request: only the first {@code max-per-second} errors of each kind are logged every second, and the next logged
+ * line reports how many were skipped.
+ */
+@Component
+public class SampledErrorLog {
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    private final int maxPerSecond;
+    private final Clock clock;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SampledErrorLog(@Value("${application.error-log.max-per-second:10}") int maxPerSecond) {
+        this(maxPerSecond, Clock.systemUTC());
+    }
+
+    SampledErrorLog(int maxPerSecond, Clock clock) {
+        this.maxPerSecond = maxPerSecond;
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a logging permit for the given kind of error.
+     *
+     * @param key the kind of error, e.g. an error code or an exception class name
+     * @return the number of errors of that kind skipped since the last logged one, or -1 if this one must not be logged
+     */
+    public long acquire(String key) {
+        final long second = this.clock.millis() / MILLIS_PER_SECOND;
+        final Window window = this.windows.computeIfAbsent(key, k -> new Window());
+        if (window.second != second) {
+            synchronized (window) {
+                if (window.second != second) {
+                    window.count.set(0);
+                    window.second = second;
+                }
+            }
+        }
+        if (window.count.incrementAndGet() <= this.maxPerSecond) {
+            return window.skipped.getAndSet(0);
+        }
+        window.skipped.incrementAndGet();
+        return -1;
+    }
+
+    private static final class Window {
+
+        private volatile long second = Long.MIN_VALUE;
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong skipped = new AtomicLong();
+    }
+}
@@ -4,26 +4,43 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.http.HttpStatus;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import static java.lang.String.format;
 
 @Getter
 @Setter
 public class BusinessException extends RuntimeException implements BusinessExceptionPolicy {
 
+    private static final Map<BusinessExceptionReason, BusinessException> SHARED = new EnumMap<>(
+            BusinessExceptionReason.class);
+
+    static {
+        for (BusinessExceptionReason reason : BusinessExceptionReason.values()) {
+            if (isExpected(reason.getHttpStatus())) {
+                SHARED.put(reason, new BusinessException(reason, false));
+            }
+        }
+    }
+
     protected final String code;
     protected final String message;
     protected final HttpStatus httpStatus;
+    protected final BusinessExceptionReason reason;
 
     public BusinessException(final BusinessExceptionReason reason) {
         this.code = reason.getCode();
         this.message = reason.getMessage();
         this.httpStatus = reason.getHttpStatus();
+        this.reason = reason;
     }
 
     public BusinessException(final BusinessExceptionReason reason, final HttpStatus overridingHttpStatus) {
         this.code = reason.getCode();
         this.message = reason.getMessage();
         this.httpStatus = overridingHttpStatus;
+        this.reason = reason;
     }
 
     public BusinessException(final BusinessExceptionReason reason, final Object... parameters) {
@@ -35,6 +52,52 @@ public class BusinessException extends RuntimeException implements BusinessExcep
 
         this.code = reason.getCode();
         this.httpStatus = reason.getHttpStatus();
+        this.reason = reason;
+    }
+
+    private BusinessException(final BusinessExceptionReason reason, final boolean writableStackTrace) {
+        super(reason.getMessage(), null, false, writableStackTrace);
+        this.code = reason.getCode();
+        this.message = reason.getMessage();
+        this.httpStatus = reason.getHttpStatus();
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the exception to throw for the given reason. Client errors are expected and frequent (bad credentials,
+     * replayed or expired tokens), as are the overload rejections, so they get a shared instance without stack trace:
+     * throwing it allocates nothing. Server errors still get a fresh exception with its stack trace for
+     * troubleshooting.
+     *
+     * @param reason the reason of the failure
+     * @return the exception to throw
+     */
+    public static BusinessException of(final BusinessExceptionReason reason) {
+        final BusinessException shared = SHARED.get(reason);
+        return shared != null ? shared : new BusinessException(reason);
+    }
+
+    /**
+     * Whether a status is expected in normal operation: a client error, or the service turning requests away when it
+     * is overloaded.
+     *
+     * @param status the status of the response
+     * @return true if no stack trace is needed to troubleshoot it
+     */
+    public static boolean isExpected(final HttpStatus status) {
+        return !status.is5xxServerError() || status == HttpStatus.SERVICE_UNAVAILABLE;
+    }
+
+    /**
+     * Whether the exception carries the unmodified message and status of its reason, so that the response body only
+     * depends on the reason.
+     *
+     * @return true if the exception is rendered exactly as its reason
+     */
+    public boolean isCanonical() {
+        return this.reason != null
+                && this.message.equals(this.reason.getMessage())
+                && this.httpStatus == this.reason.getHttpStatus();
     }
 
 }
@@ -12,7 +12,16 @@ public enum BusinessExceptionReason implements BusinessExceptionPolicy {
     USER_ALREADY_EXISTS("E0002", "User already exists!", HttpStatus.BAD_REQUEST),
     INVALID_TOKEN("E0003", "Invalid token.", HttpStatus.BAD_REQUEST),
     USER_NOT_FOUND("E0004", "User not found!", HttpStatus.NOT_FOUND),
-    ACCESS_DENIED("E0005", "Access denied!", HttpStatus.FORBIDDEN);
+    ACCESS_DENIED("E0005", "Access denied!", HttpStatus.FORBIDDEN),
+    TOO_MANY_LOGIN_ATTEMPTS("E0006", "Too many login attempts, try again later.", HttpStatus.TOO_MANY_REQUESTS),
+    BAD_CREDENTIALS("E0007", "Bad credentials.", HttpStatus.UNAUTHORIZED),
+    UNKNOWN_ROLE("E0008", "Unknown role.", HttpStatus.BAD_REQUEST),
+    ROLE_IN_USE("E0009", "Role is assigned to users.", HttpStatus.CONFLICT),
+    ROLE_NOT_FOUND("E0010", "Role not found!", HttpStatus.NOT_FOUND),
+    SESSION_NOT_FOUND("E0011", "Session not found!", HttpStatus.NOT_FOUND),
+    CREDENTIALS_CHANGED("E0012", "Credentials changed in the meantime, sign in again.", HttpStatus.CONFLICT),
+    DATABASE_BUSY("E0013", "The service is busy, try again later.", HttpStatus.SERVICE_UNAVAILABLE),
+    OVERLOADED("E0014", "The service is overloaded, try again later.", HttpStatus.SERVICE_UNAVAILABLE);
 
     private final String code;
     private final String message;
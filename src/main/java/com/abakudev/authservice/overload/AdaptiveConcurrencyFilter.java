@@ -0,0 +1,71 @@
+package com.abakudev.authservice.overload;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+
+/**
+ * Sheds the requests beyond the {@link AdaptiveConcurrencyLimit} with {@code 503 Service Unavailable}, before the
+ * security filters spend a token validation or a password hash on them.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class AdaptiveConcurrencyFilter extends OncePerRequestFilter {
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    // resolved by name, the error attributes of Spring Boot are a HandlerExceptionResolver too
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final boolean enabled;
+
+    public AdaptiveConcurrencyFilter(AdaptiveConcurrencyLimit concurrencyLimit,
+                                     HandlerExceptionResolver handlerExceptionResolver,
+                                     @Value("${application.overload.enabled:true}") boolean enabled) {
+        this.concurrencyLimit = concurrencyLimit;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !this.enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        final RequestPriority priority = RequestPriority.of(request);
+        if (priority == RequestPriority.PROBE) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!this.concurrencyLimit.tryAcquire(priority)) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            this.handlerExceptionResolver.resolveException(request, response, null,
+                    BusinessException.of(BusinessExceptionReason.OVERLOADED));
+            return;
+        }
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        } finally {
+            this.concurrencyLimit.release(priority, System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.abakudev.authservice.overload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive limit of the requests in progress, in the style of the gradient limits of TCP congestion control: the
+ * limit follows what the instance can serve instead of a fixed thread or connection count.
+ *
+ * <p>Once per {@code window}, the average latency of each {@link RequestPriority class of requests} in the window is
+ * compared with its long-term average. When a class got more than {@code latency-tolerance} times slower, the requests
+ * queue somewhere (CPU, connection pool) and the limit shrinks in proportion, by half at most; a server error in the
+ * window shrinks it too. Otherwise the limit grows by the square root of itself, as long as the requests use at least
+ * half of it. Every change is smoothed over a few windows.
+ *
+ * <p>The {@link RequestPriority#PASSWORD_HASHING password hashing} requests may only use {@code password-hashing-share}
+ * of the limit, so that they are shed first and the token validated requests keep flowing.
+ */
+@Component
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double ERROR_GRADIENT = 0.9;
+    // about twenty windows, and ten times slower while congested so that an overload does not become the norm
+    private static final double LONG_TERM_WEIGHT = 0.05;
+    private static final double CONGESTED_LONG_TERM_WEIGHT = 0.005;
+
+    private final Map<RequestPriority, LatencyWindow> windows = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Counter> rejections = new EnumMap<>(RequestPriority.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder serverErrors = new LongAdder();
+    private final Clock clock;
+    private final double minLimit;
+    private final double maxLimit;
+    private final double passwordHashingShare;
+    private final double latencyTolerance;
+    private final long windowMillis;
+
+    private volatile double limit;
+    private volatile long windowStart;
+
+    @Autowired
+    public AdaptiveConcurrencyLimit(MeterRegistry meterRegistry,
+                                    @Value("${application.overload.initial-limit:200}") int initialLimit,
+                                    @Value("${application.overload.min-limit:20}") int minLimit,
+                                    @Value("${application.overload.max-limit:2000}") int maxLimit,
+                                    @Value("${application.overload.password-hashing-share:0.5}")
+                                    double passwordHashingShare,
+                                    @Value("${application.overload.latency-tolerance:2.0}") double latencyTolerance,
+                                    @Value("${application.overload.window:1s}") Duration window) {
+        this(meterRegistry, Clock.systemUTC(), initialLimit, minLimit, maxLimit, passwordHashingShare,
+                latencyTolerance, window);
+    }
+
+    AdaptiveConcurrencyLimit(MeterRegistry meterRegistry, Clock clock, int initialLimit, int minLimit, int maxLimit,
+                             double passwordHashingShare, double latencyTolerance, Duration window) {
+        this.clock = clock;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.passwordHashingShare = passwordHashingShare;
+        this.latencyTolerance = latencyTolerance;
+        this.windowMillis = window.toMillis();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.windowStart = clock.millis();
+        for (RequestPriority priority : new RequestPriority[]{RequestPriority.STANDARD,
+                RequestPriority.PASSWORD_HASHING}) {
+            final String tag = priority.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            this.windows.put(priority, new LatencyWindow());
+            this.rejections.put(priority, Counter.builder("http.concurrency.rejected")
+                    .description("Requests shed because the concurrency limit was reached")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+            Gauge.builder("http.concurrency.limit", this, limiter -> limiter.limit(priority))
+                    .description("Requests of the priority that may be in progress at once")
+                    .tag("priority", tag)
+                    .register(meterRegistry);
+        }
+        Gauge.builder("http.concurrency.inflight", this.inFlight, AtomicInteger::get)
+                .description("Requests in progress under the concurrency limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits a request of the priority if the limit allows it, {@link #release} must then be called once it is done.
+     *
+     * @return false if the request must be shed
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        final double cap = limit(priority);
+        while (true) {
+            final int current = this.inFlight.get();
+            if (current >= cap) {
+                this.rejections.get(priority).increment();
+                return false;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                this.peakInFlight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends an admitted request and samples its latency.
+     *
+     * @param serverError whether the request failed on the side of the server, a sign of overload too
+     */
+    public void release(RequestPriority priority, long latencyNanos, boolean serverError) {
+        this.inFlight.decrementAndGet();
+        this.windows.get(priority).add(latencyNanos);
+        if (serverError) {
+            this.serverErrors.increment();
+        }
+        final long now = this.clock.millis();
+        if (now - this.windowStart >= this.windowMillis) {
+            update(now);
+        }
+    }
+
+    double limit(RequestPriority priority) {
+        return priority == RequestPriority.PASSWORD_HASHING ? this.limit * this.passwordHashingShare : this.limit;
+    }
+
+    int inFlight() {
+        return this.inFlight.get();
+    }
+
+    private synchronized void update(long now) {
+        if (now - this.windowStart < this.windowMillis) {
+            return;
+        }
+        this.windowStart = now;
+        double gradient = 1;
+        for (LatencyWindow window : this.windows.values()) {
+            gradient = Math.min(gradient, window.roll(this.latencyTolerance));
+        }
+        if (this.serverErrors.sumThenReset() > 0) {
+            gradient = Math.min(gradient, ERROR_GRADIENT);
+        }
+        final int peak = this.peakInFlight.getAndSet(this.inFlight.get());
+        final double current = this.limit;
+        if (gradient >= 1 && peak < current / 2) {
+            // the requests do not use the limit, nothing tells that a higher one would be served as well
+            return;
+        }
+        final double target = gradient < 1 ? current * gradient : current + Math.sqrt(current);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit,
+                (1 - SMOOTHING) * current + SMOOTHING * target));
+    }
+
+    /**
+     * Latencies of the requests of a priority in the current window, and their long-term average.
+     */
+    private static final class LatencyWindow {
+
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder count = new LongAdder();
+        // only used under the lock of the update
+        private double longTermNanos = Double.NaN;
+
+        private void add(long latencyNanos) {
+            this.totalNanos.add(latencyNanos);
+            this.count.increment();
+        }
+
+        /**
+         * Ends the window.
+         *
+         * @return 1 if the window was no slower than the tolerance allows, the ratio of the tolerated latency to the
+         *         observed one otherwise
+         */
+        private double roll(double tolerance) {
+            final long samples = this.count.sumThenReset();
+            final long total = this.totalNanos.sumThenReset();
+            if (samples == 0) {
+                return 1;
+            }
+            final double average = (double) total / samples;
+            if (Double.isNaN(this.longTermNanos)) {
+                this.longTermNanos = average;
+                return 1;
+            }
+            final double gradient = Math.max(MIN_GRADIENT, Math.min(1, tolerance * this.longTermNanos / average));
+            this.longTermNanos += (gradient < 1 ? CONGESTED_LONG_TERM_WEIGHT : LONG_TERM_WEIGHT)
+                    * (average - this.longTermNanos);
+            return gradient;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.abakudev.authservice.overload;
+
+import com.abakudev.authservice.config.SecurityConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.Arrays;
+
+/**
+ * The classes of requests of the {@link AdaptiveConcurrencyFilter}, from the routes of {@link SecurityConfig}.
+ */
+public enum RequestPriority {
+
+    /**
+     * The health probes, never shed: an instance answering them late would be restarted or taken out of the load
+     * balancer, making the overload worse.
+     */
+    PROBE,
+    /**
+     * The token validated requests and the other cheap ones, they may use the whole limit.
+     */
+    STANDARD,
+    /**
+     * The routes hashing a password, logins first, they may only use a share of the limit and are shed first.
+     */
+    PASSWORD_HASHING;
+
+    private static final RequestMatcher PROBES = matcher(SecurityConfig.PROBES);
+    private static final RequestMatcher PASSWORD_HASHING_ROUTES = matcher(SecurityConfig.PASSWORD_HASHING_URL);
+
+    public static RequestPriority of(HttpServletRequest request) {
+        if (PASSWORD_HASHING_ROUTES.matches(request)) {
+            return PASSWORD_HASHING;
+        }
+        return PROBES.matches(request) ? PROBE : STANDARD;
+    }
+
+    private static RequestMatcher matcher(String... patterns) {
+        return new OrRequestMatcher(Arrays.stream(patterns)
+                .<RequestMatcher>map(AntPathRequestMatcher::new)
+                .toList());
+    }
+}
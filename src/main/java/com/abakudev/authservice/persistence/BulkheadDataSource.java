@@ -0,0 +1,94 @@
+package com.abakudev.authservice.persistence;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Data source taking a {@link DatabaseBulkhead} permit for every connection it hands out, given back when the
+ * connection is closed, so that no more requests than the pool can serve wait for a connection.
+ */
+public class BulkheadDataSource extends DelegatingDataSource {
+
+    private final DatabaseBulkhead bulkhead;
+
+    public BulkheadDataSource(DataSource targetDataSource, DatabaseBulkhead bulkhead) {
+        super(targetDataSource);
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final Runnable release = this.bulkhead.acquire();
+        try {
+            return guard(obtainTargetDataSource().getConnection(), release);
+        } catch (SQLException | RuntimeException | Error e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        final Runnable release = this.bulkhead.acquire();
+        try {
+            return guard(obtainTargetDataSource().getConnection(username, password), release);
+        } catch (SQLException | RuntimeException | Error e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    private static Connection guard(Connection connection, Runnable release) {
+        return (Connection) Proxy.newProxyInstance(BulkheadDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ReleasingHandler(connection, release));
+    }
+
+    /**
+     * Gives the permit back on the first {@link Connection#close()}, delegates everything else.
+     */
+    private static final class ReleasingHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final Runnable release;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleasingHandler(Connection target, Runnable release) {
+            this.target = target;
+            this.release = release;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    try {
+                        return method.invoke(this.target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    } finally {
+                        if (this.released.compareAndSet(false, true)) {
+                            this.release.run();
+                        }
+                    }
+                default:
+                    try {
+                        return method.invoke(this.target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+            }
+        }
+    }
+}
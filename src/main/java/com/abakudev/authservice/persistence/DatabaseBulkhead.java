@@ -0,0 +1,172 @@
+package com.abakudev.authservice.persistence;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Admission of the database work, sized to the connection pool. With virtual threads every request gets a thread, and
+ * without a limit in front of the pool they all queue on the connection acquisition until they time out, the latency
+ * of every request growing with the queue.
+ *
+ * <p>The connections are split between two lanes, so that a burst of logins cannot starve the token validation of the
+ * other requests, and the other way around:
+ * <ul>
+ *     <li>{@link Lane#READ}: the lookups of the JWT filter, cheap reads run through {@link #read(Supplier)};</li>
+ *     <li>{@link Lane#WRITE}: everything else, logins, refreshes and the other writes.</li>
+ * </ul>
+ * A request waits for a permit of its lane in FIFO order for at most {@code max-wait}, and is rejected at once when
+ * {@code max-queue} requests are already waiting. Both rejections are a {@link BusinessExceptionReason#DATABASE_BUSY}.
+ * The permits are taken by {@link BulkheadDataSource} when a connection is obtained and given back when it is closed.
+ */
+@Slf4j
+@Component
+public class DatabaseBulkhead {
+
+    /**
+     * The lanes of the database work, each with its own share of the connections.
+     */
+    public enum Lane {
+        READ,
+        WRITE
+    }
+
+    private static final ThreadLocal<Lane> CURRENT_LANE = new ThreadLocal<>();
+
+    private final Map<Lane, LaneLimiter> lanes = new EnumMap<>(Lane.class);
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    public DatabaseBulkhead(MeterRegistry meterRegistry,
+                            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                            @Value("${application.persistence.bulkhead.read-permits:0}") int readPermits,
+                            @Value("${application.persistence.bulkhead.write-permits:0}") int writePermits,
+                            @Value("${application.persistence.bulkhead.max-queue:200}") int maxQueue,
+                            @Value("${application.persistence.bulkhead.max-wait:1s}") Duration maxWait) {
+        final int reads = readPermits > 0 ? readPermits : Math.max(1, poolSize / 2);
+        final int writes = writePermits > 0 ? writePermits : Math.max(1, poolSize - reads);
+        if (reads + writes > poolSize) {
+            log.warn("The database bulkhead admits {} connections but the pool has {}, the others wait in the pool",
+                    reads + writes, poolSize);
+        }
+        this.lanes.put(Lane.READ, new LaneLimiter(Lane.READ, reads, meterRegistry));
+        this.lanes.put(Lane.WRITE, new LaneLimiter(Lane.WRITE, writes, meterRegistry));
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    /**
+     * Runs database work in the {@link Lane#READ read lane}, the connections it obtains use the permits of this lane.
+     */
+    public <T> T read(Supplier<T> work) {
+        final Lane previous = CURRENT_LANE.get();
+        CURRENT_LANE.set(Lane.READ);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_LANE.remove();
+            } else {
+                CURRENT_LANE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Takes a permit of the lane of the current thread, {@link Lane#WRITE} outside of {@link #read(Supplier)}.
+     *
+     * @return the action giving the permit back, to run exactly once
+     * @throws BusinessException {@link BusinessExceptionReason#DATABASE_BUSY} if the lane is full
+     */
+    public Runnable acquire() {
+        final Lane lane = CURRENT_LANE.get();
+        final LaneLimiter limiter = this.lanes.get(lane == null ? Lane.WRITE : lane);
+        try {
+            // a timed tryAcquire, unlike the untimed one, does not overtake the requests already waiting
+            if (limiter.permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                limiter.waitTime.record(0, TimeUnit.NANOSECONDS);
+            } else {
+                await(limiter);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw BusinessException.of(BusinessExceptionReason.DATABASE_BUSY);
+        }
+        return limiter.permits::release;
+    }
+
+    private void await(LaneLimiter limiter) throws InterruptedException {
+        if (limiter.queued.incrementAndGet() > this.maxQueue) {
+            limiter.queued.decrementAndGet();
+            limiter.queueFull.increment();
+            throw BusinessException.of(BusinessExceptionReason.DATABASE_BUSY);
+        }
+        final long start = System.nanoTime();
+        try {
+            final boolean acquired = limiter.permits.tryAcquire(this.maxWaitNanos, TimeUnit.NANOSECONDS);
+            limiter.waitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                limiter.timedOut.increment();
+                throw BusinessException.of(BusinessExceptionReason.DATABASE_BUSY);
+            }
+        } finally {
+            limiter.queued.decrementAndGet();
+        }
+    }
+
+    int availablePermits(Lane lane) {
+        return this.lanes.get(lane).permits.availablePermits();
+    }
+
+    private static final class LaneLimiter {
+
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Timer waitTime;
+        private final Counter queueFull;
+        private final Counter timedOut;
+
+        private LaneLimiter(Lane lane, int permits, MeterRegistry meterRegistry) {
+            // fair, the requests get the connections in the order they asked for them
+            this.permits = new Semaphore(permits, true);
+            final String name = lane.name().toLowerCase(Locale.ROOT);
+            this.waitTime = Timer.builder("db.bulkhead.wait")
+                    .description("Time waited for a database connection permit")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            this.queueFull = rejections(meterRegistry, name, "queue-full");
+            this.timedOut = rejections(meterRegistry, name, "timeout");
+            Gauge.builder("db.bulkhead.queued", this.queued, AtomicInteger::get)
+                    .description("Requests waiting for a database connection permit")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            Gauge.builder("db.bulkhead.available", this.permits, Semaphore::availablePermits)
+                    .description("Database connection permits available")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+        }
+
+        private static Counter rejections(MeterRegistry meterRegistry, String lane, String cause) {
+            return Counter.builder("db.bulkhead.rejected")
+                    .description("Requests rejected because the database was busy")
+                    .tag("lane", lane)
+                    .tag("cause", cause)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.abakudev.authservice.persistence;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker of the token validation lookups. After {@code failure-threshold} consecutive lookups failed because
+ * the database is unreachable, the breaker opens and the service is degraded: the lookups are skipped and the tokens
+ * are validated from memory, see {@code DegradedValidation}. Every {@code open-duration} one lookup goes through as a
+ * trial, the first one that succeeds closes the breaker.
+ *
+ * <p>The time spent degraded is exported as {@code auth.degraded.active} (the outage in progress) and
+ * {@code auth.degraded.time} (the outages over), and every transition is published as a {@link DegradedModeEvent}.
+ */
+@Slf4j
+@Component
+public class DatabaseCircuitBreaker {
+
+    private static final String SQL_STATE_CONNECTION_CLASS = "08";
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Duration alertAfter;
+    private final LongTaskTimer degradedActive;
+    private final Timer degradedTime;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong nextTrial = new AtomicLong();
+    // null while the breaker is closed
+    private volatile Outage outage;
+
+    @Autowired
+    public DatabaseCircuitBreaker(ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                                  @Value("${application.persistence.circuit-breaker.enabled:true}") boolean enabled,
+                                  @Value("${application.persistence.circuit-breaker.failure-threshold:5}")
+                                  int failureThreshold,
+                                  @Value("${application.persistence.circuit-breaker.open-duration:PT5S}")
+                                  Duration openDuration,
+                                  @Value("${application.persistence.circuit-breaker.alert-after:1m}")
+                                  Duration alertAfter) {
+        this(eventPublisher, meterRegistry, Clock.systemUTC(), enabled, failureThreshold, openDuration, alertAfter);
+    }
+
+    DatabaseCircuitBreaker(ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry, Clock clock,
+                           boolean enabled, int failureThreshold, Duration openDuration, Duration alertAfter) {
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.alertAfter = alertAfter;
+        this.degradedActive = LongTaskTimer.builder("auth.degraded.active")
+                .description("Outage of the database in progress, the tokens are validated from memory")
+                .register(meterRegistry);
+        this.degradedTime = Timer.builder("auth.degraded.time")
+                .description("Outages of the database over, during which the tokens were validated from memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tells whether the service is degraded, the breaker being open.
+     */
+    public boolean isOpen() {
+        return this.outage != null;
+    }
+
+    /**
+     * Tells whether a lookup may query the database: always while the breaker is closed, once per
+     * {@code open-duration} as a trial while it is open.
+     */
+    public boolean allowRequest() {
+        if (this.outage == null) {
+            return true;
+        }
+        final long now = this.clock.millis();
+        final long trial = this.nextTrial.get();
+        return now >= trial && this.nextTrial.compareAndSet(trial, now + this.openMillis);
+    }
+
+    /**
+     * Records that the database answered, closing the breaker if it was open.
+     */
+    public void onSuccess() {
+        this.consecutiveFailures.set(0);
+        if (this.outage != null) {
+            close();
+        }
+    }
+
+    /**
+     * Records a lookup that failed because the database is unreachable.
+     *
+     * @return whether the tokens may be validated from memory instead, false if the breaker is disabled
+     */
+    public boolean onOutage(Throwable failure) {
+        if (!this.enabled) {
+            return false;
+        }
+        this.nextTrial.set(this.clock.millis() + this.openMillis);
+        if (this.consecutiveFailures.incrementAndGet() >= this.failureThreshold && this.outage == null) {
+            open(failure);
+        }
+        return true;
+    }
+
+    /**
+     * Publishes the {@link DegradedModeEvent.Type#ALERT alert} once the outage in progress lasts {@code alert-after}.
+     */
+    @Scheduled(fixedDelayString = "${application.persistence.circuit-breaker.open-duration:PT5S}")
+    public void checkOutage() {
+        final Outage current = this.outage;
+        if (current == null) {
+            return;
+        }
+        final Duration elapsed = Duration.between(current.since(), this.clock.instant());
+        if (elapsed.compareTo(this.alertAfter) >= 0 && current.alerted().compareAndSet(false, true)) {
+            log.error("The database has been unavailable for {}, the tokens are still validated from memory",
+                    elapsed);
+            publish(DegradedModeEvent.Type.ALERT, current.since(), elapsed);
+        }
+    }
+
+    /**
+     * Tells whether a failure means that the database cannot be reached, as opposed to a failure of the query itself.
+     */
+    public static boolean isOutage(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException
+                    || cause instanceof TransientDataAccessResourceException
+                    || cause instanceof QueryTimeoutException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof SQLTimeoutException
+                    || (cause instanceof SQLException sql && sql.getSQLState() != null
+                    && sql.getSQLState().startsWith(SQL_STATE_CONNECTION_CLASS))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void open(Throwable failure) {
+        if (this.outage != null) {
+            return;
+        }
+        final Instant since = this.clock.instant();
+        this.outage = new Outage(since, this.degradedActive.start(), new AtomicBoolean());
+        log.warn("The database is unavailable, the tokens are validated from memory until it is back: {}",
+                failure.toString());
+        publish(DegradedModeEvent.Type.ENTERED, since, Duration.ZERO);
+    }
+
+    private synchronized void close() {
+        final Outage ended = this.outage;
+        if (ended == null) {
+            return;
+        }
+        this.outage = null;
+        this.degradedTime.record(ended.sample().stop(), TimeUnit.NANOSECONDS);
+        final Duration elapsed = Duration.between(ended.since(), this.clock.instant());
+        log.info("The database is available again after {}", elapsed);
+        publish(DegradedModeEvent.Type.EXITED, ended.since(), elapsed);
+    }
+
+    private void publish(DegradedModeEvent.Type type, Instant since, Duration elapsed) {
+        try {
+            this.eventPublisher.publishEvent(new DegradedModeEvent(type, since, elapsed));
+        } catch (RuntimeException e) {
+            // a failing listener must not fail the request that changed the state
+            log.warn("A listener of the degraded mode failed", e);
+        }
+    }
+
+    private record Outage(Instant since, LongTaskTimer.Sample sample, AtomicBoolean alerted) {
+    }
+}
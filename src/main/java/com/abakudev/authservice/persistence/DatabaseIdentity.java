@@ -0,0 +1,42 @@
+package com.abakudev.authservice.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+
+/**
+ * Single row identifying the database, generated by the first instance started against it. A database recreated from
+ * scratch, as with {@code ddl-auto: create-drop}, gets a new identity, which tells the {@link SnapshotStore} that the
+ * user ids of its snapshots may now belong to other users.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "database_identity")
+public class DatabaseIdentity implements Persistable<Integer> {
+
+    static final int ROW_ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private UUID identity;
+
+    /**
+     * Always inserted, so that two instances creating the identity at once fail on the key rather than one overwriting
+     * the identity of the other.
+     */
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,27 @@
+package com.abakudev.authservice.persistence;
+
+import java.util.UUID;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DatabaseIdentityRepository extends JpaRepository<DatabaseIdentity, Integer> {
+
+    /**
+     * Returns the identity of the database, creating it when this is the first instance started against it.
+     */
+    default UUID findOrCreate() {
+        final var existing = this.findById(DatabaseIdentity.ROW_ID);
+        if (existing.isPresent()) {
+            return existing.get().getIdentity();
+        }
+        try {
+            return this.saveAndFlush(new DatabaseIdentity(DatabaseIdentity.ROW_ID, UUID.randomUUID())).getIdentity();
+        } catch (DataIntegrityViolationException e) {
+            // created by another instance in the meantime
+            return this.findById(DatabaseIdentity.ROW_ID).orElseThrow().getIdentity();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.abakudev.authservice.persistence;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Published by the {@link DatabaseCircuitBreaker} when the service enters or leaves the degraded mode, and once per
+ * outage when it lasts longer than {@code alert-after}: the hook for paging or any other alerting.
+ *
+ * @param type    what happened
+ * @param since   when the degraded mode was entered
+ * @param elapsed how long the service has been degraded, zero when entering it
+ */
+public record DegradedModeEvent(Type type, Instant since, Duration elapsed) {
+
+    /**
+     * The transitions of the degraded mode.
+     */
+    public enum Type {
+        ENTERED,
+        ALERT,
+        EXITED
+    }
+}
@@ -0,0 +1,274 @@
+package com.abakudev.authservice.persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Read replicas serving the lookups of every authenticated request, {@code application.persistence.replicas}. Without
+ * replica every read goes to the primary and this class does nothing.
+ *
+ * <p>Only the reads run through {@link #read(String, Supplier)} go to a replica, the other ones, and every read inside
+ * a transaction that also writes, stay on the primary. A read goes to the primary anyway when:
+ * <ul>
+ *     <li>the user wrote through this instance recently ({@link #wrote(String)}): a token revoked by a logout, a
+ *     password change or a new session must not be read back from a replica that has not replayed it yet;</li>
+ *     <li>every replica is behind by more than {@code max-lag}, or unreachable, at the last lag check.</li>
+ * </ul>
+ * A write is considered replayed once the replicas may have been behind by {@code max-lag} for a whole lag check
+ * interval, which also bounds how long the writes made through the other instances may not be seen.
+ */
+@Slf4j
+@Component
+public class ReadReplicas {
+
+    /**
+     * Lag query of PostgreSQL, 0 when the replica has replayed everything it received and null on a primary.
+     */
+    static final String POSTGRES_LAG_QUERY = "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() "
+            + "then 0 else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+
+    private static final ThreadLocal<String> CURRENT_READER = new ThreadLocal<>();
+    private static final int LAG_QUERY_TIMEOUT_SECONDS = 1;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Map<String, Instant> recentWriters = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final Clock clock;
+    private final Duration maxLag;
+    private final Duration stickiness;
+    private final String lagQuery;
+    private final Counter replicaReads;
+    private final Counter pinnedReads;
+    private final Counter laggingReads;
+
+    @Autowired
+    public ReadReplicas(MeterRegistry meterRegistry,
+                        @Value("${application.persistence.replicas.urls:}") List<String> urls,
+                        @Value("${spring.datasource.username:}") String username,
+                        @Value("${spring.datasource.password:}") String password,
+                        @Value("${application.persistence.replicas.maximum-pool-size:10}") int poolSize,
+                        @Value("${application.persistence.replicas.connection-timeout:1s}") Duration connectionTimeout,
+                        @Value("${application.persistence.replicas.max-lag:1s}") Duration maxLag,
+                        @Value("${application.persistence.replicas.lag-check-interval:PT1S}") Duration lagCheckInterval,
+                        @Value("${application.persistence.replicas.lag-query:" + POSTGRES_LAG_QUERY + "}")
+                        String lagQuery) {
+        this(pools(meterRegistry, urls, username, password, poolSize, connectionTimeout), meterRegistry,
+                Clock.systemUTC(), maxLag, lagCheckInterval, lagQuery);
+    }
+
+    ReadReplicas(Map<String, DataSource> replicas, MeterRegistry meterRegistry, Clock clock, Duration maxLag,
+                 Duration lagCheckInterval, String lagQuery) {
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource, meterRegistry)));
+        this.clock = clock;
+        this.maxLag = maxLag;
+        this.stickiness = maxLag.plus(lagCheckInterval);
+        this.lagQuery = lagQuery;
+        this.replicaReads = reads(meterRegistry, "replica");
+        this.pinnedReads = reads(meterRegistry, "primary-after-write");
+        this.laggingReads = reads(meterRegistry, "primary-replicas-behind");
+    }
+
+    private static Map<String, DataSource> pools(MeterRegistry meterRegistry, List<String> urls, String username,
+                                                 String password, int poolSize, Duration connectionTimeout) {
+        final Map<String, DataSource> pools = new LinkedHashMap<>();
+        for (String url : urls) {
+            final HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + pools.size());
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setReadOnly(true);
+            config.setMaximumPoolSize(poolSize);
+            config.setConnectionTimeout(connectionTimeout.toMillis());
+            // started even when the replica is down, it is out of the rotation until a lag check reaches it
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.put(config.getPoolName(), new HikariDataSource(config));
+        }
+        return pools;
+    }
+
+    private static Counter reads(MeterRegistry meterRegistry, String route) {
+        return Counter.builder("db.replica.reads")
+                .description("Reads eligible for a read replica, by where they were sent")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return !this.replicas.isEmpty();
+    }
+
+    /**
+     * Runs read-only database work of the user on a replica when possible.
+     *
+     * @param user the email of the user the work is done for, its recent writes are read from the primary
+     */
+    public <T> T read(String user, Supplier<T> work) {
+        if (!isEnabled()) {
+            return work.get();
+        }
+        final String previous = CURRENT_READER.get();
+        CURRENT_READER.set(user);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_READER.remove();
+            } else {
+                CURRENT_READER.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Records a write of the user, its next reads go to the primary until the replicas have replayed it.
+     */
+    public void wrote(String user) {
+        if (isEnabled() && user != null) {
+            this.recentWriters.put(user, this.clock.instant().plus(this.stickiness));
+        }
+    }
+
+    /**
+     * The replica to take the connection requested by the current thread from.
+     *
+     * @return null when the connection must come from the primary
+     */
+    Replica replicaForCurrentRead() {
+        final String user = CURRENT_READER.get();
+        if (user == null) {
+            return null;
+        }
+        final Instant pinnedUntil = this.recentWriters.get(user);
+        if (pinnedUntil != null && pinnedUntil.isAfter(this.clock.instant())) {
+            this.pinnedReads.increment();
+            return null;
+        }
+        final int start = this.next.getAndIncrement();
+        for (int i = 0; i < this.replicas.size(); i++) {
+            final Replica replica = this.replicas.get(Math.floorMod(start + i, this.replicas.size()));
+            if (replica.inSync) {
+                this.replicaReads.increment();
+                return replica;
+            }
+        }
+        this.laggingReads.increment();
+        return null;
+    }
+
+    /**
+     * Measures how far behind each replica is, the replicas behind by more than {@code max-lag} are skipped until the
+     * next check. Also forgets the writes every replica has replayed.
+     */
+    @Scheduled(fixedDelayString = "${application.persistence.replicas.lag-check-interval:PT1S}")
+    public void checkLag() {
+        final Instant now = this.clock.instant();
+        this.recentWriters.values().removeIf(pinnedUntil -> !pinnedUntil.isAfter(now));
+        for (Replica replica : this.replicas) {
+            try {
+                replica.update(measureLag(replica.dataSource), this.maxLag);
+            } catch (SQLException e) {
+                replica.unreachable(e);
+            }
+        }
+    }
+
+    private Duration measureLag(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(LAG_QUERY_TIMEOUT_SECONDS);
+            try (ResultSet result = statement.executeQuery(this.lagQuery)) {
+                // no row or null: not a replica, nothing to replay
+                final double seconds = result.next() ? result.getDouble(1) : 0;
+                return Duration.ofNanos((long) (seconds * NANOS_PER_SECOND));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Replica replica : this.replicas) {
+            if (replica.dataSource instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * A replica and its state at the last lag check, out of sync until the first one.
+     */
+    static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean inSync;
+        private volatile boolean checked;
+        private volatile double lagSeconds = Double.NaN;
+
+        private Replica(String name, DataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            Gauge.builder("db.replica.lag", this, replica -> replica.lagSeconds)
+                    .description("Replication lag of the read replica at the last check, NaN when unreachable")
+                    .baseUnit("seconds")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        }
+
+        DataSource dataSource() {
+            return this.dataSource;
+        }
+
+        private void update(Duration lag, Duration maxLag) {
+            this.lagSeconds = lag.toNanos() / NANOS_PER_SECOND;
+            final boolean caughtUp = lag.compareTo(maxLag) <= 0;
+            if (caughtUp && (!this.inSync || !this.checked)) {
+                log.info("Read replica {} is in sync, {} behind", this.name, lag);
+            } else if (!caughtUp && (this.inSync || !this.checked)) {
+                log.warn("Read replica {} is {} behind, its reads go to the primary", this.name, lag);
+            }
+            this.inSync = caughtUp;
+            this.checked = true;
+        }
+
+        /**
+         * Takes the replica out of the rotation until the next successful lag check.
+         */
+        void unreachable(Exception e) {
+            if (this.inSync || !this.checked) {
+                log.warn("Read replica {} is unreachable, its reads go to the primary: {}", this.name,
+                        e.getMessage());
+            }
+            this.lagSeconds = Double.NaN;
+            this.inSync = false;
+            this.checked = true;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.abakudev.authservice.persistence;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Data source handing out the connections of the reads run through {@link ReadReplicas#read} from a replica, and every
+ * other connection from the primary it wraps. A replica failing to give a connection is taken out of the rotation and
+ * the read goes to the primary.
+ */
+public class ReplicaRoutingDataSource extends DelegatingDataSource {
+
+    private final ReadReplicas readReplicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReadReplicas readReplicas) {
+        super(primary);
+        this.readReplicas = readReplicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final ReadReplicas.Replica replica = this.readReplicas.replicaForCurrentRead();
+        if (replica != null) {
+            try {
+                return replica.dataSource().getConnection();
+            } catch (SQLException e) {
+                replica.unreachable(e);
+            }
+        }
+        return obtainTargetDataSource().getConnection();
+    }
+}
@@ -0,0 +1,234 @@
+package com.abakudev.authservice.persistence;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Local snapshots of the {@link Snapshotted} components, one file per component in {@code directory}, written every
+ * {@code interval} and on shutdown, and restored when the context starts, before the application runners.
+ *
+ * <p>A file holds a header followed by the content of the component:
+ * <pre>
+ * magic    long   "AUTHSNAP"
+ * format   int    layout of the header, {@value #FORMAT}
+ * version  int    {@link Snapshotted#snapshotVersion()} of the content
+ * database 2 long {@link DatabaseIdentity} the state was read from
+ * written  long   epoch milliseconds
+ * length   int    of the content, in bytes
+ * checksum int    CRC32C of the content
+ * </pre>
+ * Files are written to a temporary file and moved in place, and read through a memory mapping. A file that is
+ * truncated, corrupted or of another version is ignored and the component starts cold, as without a snapshot. So is a
+ * file written against another database, whose user ids may belong to other users; while the database cannot be
+ * reached at startup its identity is unknown and the files are restored unchecked, and nothing is written until it is
+ * known. Nothing is written nor restored while {@code directory} is empty.
+ */
+@Slf4j
+@Component
+public class SnapshotStore implements SmartInitializingSingleton {
+
+    static final int FORMAT = 2;
+    private static final long MAGIC = 0x4155_5448_534E_4150L;
+    private static final int WRITTEN_OFFSET = Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+    private static final int HEADER_BYTES = WRITTEN_OFFSET + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final String SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final List<Snapshotted> components;
+    private final Path directory;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Supplier<UUID> databaseIdentities;
+    private volatile UUID databaseIdentity;
+
+    @Autowired
+    public SnapshotStore(List<Snapshotted> components, MeterRegistry meterRegistry,
+                         DatabaseIdentityRepository databaseIdentityRepository,
+                         @Value("${application.persistence.snapshot.directory:}") String directory) {
+        this(components, meterRegistry, Clock.systemUTC(), directory.isBlank() ? null : Path.of(directory),
+                databaseIdentityRepository::findOrCreate);
+    }
+
+    SnapshotStore(List<Snapshotted> components, MeterRegistry meterRegistry, Clock clock, Path directory,
+                  Supplier<UUID> databaseIdentities) {
+        this.components = components;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.directory = directory;
+        this.databaseIdentities = databaseIdentities;
+    }
+
+    /**
+     * Restores every component, once all of them are created and before the application runners.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (this.directory == null) {
+            return;
+        }
+        final UUID identity = this.databaseIdentity();
+        this.components.forEach(component -> this.restore(component, identity));
+    }
+
+    /**
+     * Writes every component.
+     */
+    @Scheduled(fixedDelayString = "${application.persistence.snapshot.interval:PT1M}",
+            initialDelayString = "${application.persistence.snapshot.interval:PT1M}")
+    @PreDestroy
+    public void write() {
+        if (this.directory == null) {
+            return;
+        }
+        final UUID identity = this.databaseIdentity();
+        if (identity == null) {
+            // the files restored at startup are kept rather than overwritten with state of an unknown origin
+            log.warn("Not writing the snapshots, the identity of the database is not known yet");
+            return;
+        }
+        for (Snapshotted component : this.components) {
+            try {
+                write(component, identity);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not write the {} snapshot: {}", component.snapshotName(), e.toString());
+            }
+        }
+    }
+
+    void write(Snapshotted component, UUID identity) throws IOException {
+        final Timer.Sample sample = Timer.start(this.meterRegistry);
+        final ByteBuffer content = component.snapshot();
+        if (content == null) {
+            return;
+        }
+        final CRC32C checksum = new CRC32C();
+        checksum.update(content.duplicate());
+        Files.createDirectories(this.directory);
+        final Path temporary = this.directory.resolve(component.snapshotName() + SUFFIX + TEMPORARY_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) HEADER_BYTES + content.remaining());
+            file.putLong(MAGIC)
+                    .putInt(FORMAT)
+                    .putInt(component.snapshotVersion())
+                    .putLong(identity.getMostSignificantBits())
+                    .putLong(identity.getLeastSignificantBits())
+                    .putLong(this.clock.millis())
+                    .putInt(content.remaining())
+                    .putInt((int) checksum.getValue())
+                    .put(content);
+            file.force();
+        }
+        Files.move(temporary, file(component), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        sample.stop(Timer.builder("cache.snapshot.write")
+                .description("Writes of the local snapshots of the in-memory state")
+                .tag("name", component.snapshotName())
+                .register(this.meterRegistry));
+    }
+
+    /**
+     * Restores a component.
+     *
+     * @param identity the identity of the current database, null to restore without checking it
+     */
+    void restore(Snapshotted component, UUID identity) {
+        final Path file = file(component);
+        if (!Files.isRegularFile(file)) {
+            log.info("No {} snapshot, starting cold", component.snapshotName());
+            return;
+        }
+        final long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final ByteBuffer content = validate(mapped, component, identity);
+            final Instant writtenAt = Instant.ofEpochMilli(mapped.getLong(WRITTEN_OFFSET));
+            component.restore(content, writtenAt);
+            log.info("Restored the {} snapshot written {} ago ({} bytes) in {} ms", component.snapshotName(),
+                    Duration.between(writtenAt, this.clock.instant()), content.capacity(),
+                    Duration.ofNanos(System.nanoTime() - start).toMillis());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring the {} snapshot, starting cold: {}", component.snapshotName(), e.toString());
+        }
+    }
+
+    /**
+     * Returns the identity of the database, read once.
+     *
+     * @return null while the database cannot be reached
+     */
+    private UUID databaseIdentity() {
+        UUID identity = this.databaseIdentity;
+        if (identity == null) {
+            try {
+                identity = this.databaseIdentities.get();
+                this.databaseIdentity = identity;
+            } catch (RuntimeException e) {
+                log.warn("Could not read the identity of the database: {}", e.toString());
+            }
+        }
+        return identity;
+    }
+
+    private Path file(Snapshotted component) {
+        return this.directory.resolve(component.snapshotName() + SUFFIX);
+    }
+
+    /**
+     * Checks the header and the checksum.
+     *
+     * @param identity the identity of the current database, null to skip its check
+     * @return the content, positioned at its start
+     */
+    private static ByteBuffer validate(ByteBuffer file, Snapshotted component, UUID identity) {
+        if (file.remaining() < HEADER_BYTES || file.getLong() != MAGIC) {
+            throw new IllegalStateException("not a snapshot");
+        }
+        final int format = file.getInt();
+        final int version = file.getInt();
+        if (format != FORMAT || version != component.snapshotVersion()) {
+            throw new IllegalStateException("format " + format + " version " + version + ", expected format "
+                    + FORMAT + " version " + component.snapshotVersion());
+        }
+        final UUID database = new UUID(file.getLong(), file.getLong());
+        if (identity != null && !identity.equals(database)) {
+            throw new IllegalStateException("written against database " + database + ", current database " + identity);
+        }
+        file.getLong();
+        final int length = file.getInt();
+        final int expectedChecksum = file.getInt();
+        if (length < 0 || length != file.remaining()) {
+            throw new IllegalStateException("truncated");
+        }
+        final ByteBuffer content = file.slice();
+        final CRC32C checksum = new CRC32C();
+        checksum.update(content.duplicate());
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new IllegalStateException("checksum mismatch");
+        }
+        return content;
+    }
+}
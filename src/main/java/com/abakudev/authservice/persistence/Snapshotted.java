@@ -0,0 +1,61 @@
+package com.abakudev.authservice.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * In-memory state rebuilt from the database after a restart, written to a local file by the {@link SnapshotStore} so
+ * that a restarted instance starts warm and only catches up on what changed since.
+ */
+public interface Snapshotted {
+
+    /**
+     * Name of the snapshot file, unique among the snapshotted components.
+     */
+    String snapshotName();
+
+    /**
+     * Version of the layout of {@link #snapshot()}, a snapshot written with another version is ignored.
+     */
+    int snapshotVersion();
+
+    /**
+     * Captures the current state, called periodically while requests keep changing it.
+     *
+     * @return the state, ready to be read; null if there is nothing worth writing yet
+     */
+    ByteBuffer snapshot();
+
+    /**
+     * Restores the state of a snapshot, before the first request is served. A failure leaves the component as if no
+     * snapshot had been found, the state restored so far being only an optimization.
+     *
+     * @param content   the state as written by {@link #snapshot()}, backed by the mapped file
+     * @param writtenAt when the snapshot was written
+     */
+    void restore(ByteBuffer content, Instant writtenAt);
+
+    /**
+     * Encodes a string for {@link #putString(ByteBuffer, byte[])}, its size being known before the buffer is allocated.
+     */
+    static byte[] utf8(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an encoded string, preceded by its length.
+     */
+    static void putString(ByteBuffer content, byte[] string) {
+        content.putInt(string.length).put(string);
+    }
+
+    /**
+     * Reads a string written by {@link #putString(ByteBuffer, byte[])}.
+     */
+    static String getString(ByteBuffer content) {
+        final byte[] string = new byte[content.getInt()];
+        content.get(string);
+        return new String(string, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,241 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.persistence.DatabaseCircuitBreaker;
+import com.abakudev.authservice.persistence.Snapshotted;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.abakudev.authservice.persistence.Snapshotted.getString;
+import static com.abakudev.authservice.persistence.Snapshotted.putString;
+import static com.abakudev.authservice.persistence.Snapshotted.utf8;
+
+/**
+ * Validation of the tokens while the database is unreachable, see {@link DatabaseCircuitBreaker}.
+ * <p>
+ * The users loaded by the JWT filter are kept as snapshots, together with the revocations known to this instance:
+ * the sessions logged out or revoked here and the tokens the database reported revoked. While degraded, a token with a
+ * valid signature and not expired is accepted if the snapshot of its user was loaded less than {@code max-staleness}
+ * ago, its epoch is current and neither it nor its session was revoked. A revocation made through another instance is
+ * therefore missed for at most {@code max-staleness}.
+ * <p>
+ * Both are {@link Snapshotted snapshotted}, so that an instance restarted during an outage still validates the tokens
+ * of the users it knew. The password hashes are never written.
+ */
+@Component
+public class DegradedValidation implements Snapshotted {
+
+    private final Map<String, Snapshot> users = new ConcurrentHashMap<>();
+    // session id or token value, to the time after which the revoked token would be refused anyway
+    private final Map<String, Long> revocations = new ConcurrentHashMap<>();
+    private final JwtService jwtService;
+    private final TokenEpochs tokenEpochs;
+    private final Clock clock;
+    private final long maxStalenessMillis;
+    private final int maxEntries;
+    private final Counter accepted;
+    private final Counter rejected;
+
+    @Autowired
+    public DegradedValidation(JwtService jwtService, TokenEpochs tokenEpochs, MeterRegistry meterRegistry,
+                              @Value("${application.security.degraded-mode.max-staleness:10m}") Duration maxStaleness,
+                              @Value("${application.security.degraded-mode.max-entries:100000}") int maxEntries) {
+        this(jwtService, tokenEpochs, meterRegistry, Clock.systemUTC(), maxStaleness, maxEntries);
+    }
+
+    DegradedValidation(JwtService jwtService, TokenEpochs tokenEpochs, MeterRegistry meterRegistry, Clock clock,
+                       Duration maxStaleness, int maxEntries) {
+        this.jwtService = jwtService;
+        this.tokenEpochs = tokenEpochs;
+        this.clock = clock;
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.maxEntries = maxEntries;
+        this.accepted = Counter.builder("auth.degraded.requests")
+                .description("Tokens validated from memory while the database was unavailable")
+                .tag("outcome", "accepted")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.degraded.requests")
+                .description("Tokens validated from memory while the database was unavailable")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Keeps the user just loaded from the database.
+     */
+    public void remember(String email, UserDetails user) {
+        if (this.users.size() < this.maxEntries || this.users.containsKey(email)) {
+            this.users.put(email, new Snapshot(user, this.clock.millis()));
+        }
+    }
+
+    /**
+     * Records the revocation of every token of a session, kept as long as the session could have lived.
+     */
+    public void revokeSession(String sessionId) {
+        if (Objects.nonNull(sessionId)) {
+            revoke(sessionId, this.clock.millis() + this.jwtService.getRefreshExpiration());
+        }
+    }
+
+    /**
+     * Records the revocation of a token, kept until it expires.
+     */
+    public void revokeToken(String jwt, Date expiration) {
+        revoke(jwt, expiration.getTime());
+    }
+
+    /**
+     * Validates a token whose signature was verified without the database.
+     *
+     * @return the last known user of the token, empty if it cannot be trusted
+     */
+    public Optional<UserDetails> validate(String jwt, Claims claims) {
+        final Snapshot snapshot = this.users.get(claims.getSubject());
+        return outcome(snapshot, isTrusted(snapshot, JwtService.epochOf(claims),
+                claims.get(JwtService.SESSION_CLAIM, String.class))
+                && !this.revocations.containsKey(jwt)
+                && JwtService.isValid(claims, snapshot.user()));
+    }
+
+    /**
+     * Validates a reference token found in memory, not expired and not revoked through this instance.
+     *
+     * @return the last known user of the token, empty if it cannot be trusted
+     */
+    public Optional<UserDetails> validate(ReferenceTokens.ReferenceToken referenceToken) {
+        final Snapshot snapshot = this.users.get(referenceToken.email());
+        return outcome(snapshot, isTrusted(snapshot, referenceToken.epoch(), referenceToken.sessionId()));
+    }
+
+    private boolean isTrusted(Snapshot snapshot, int tokenEpoch, String sessionId) {
+        return Objects.nonNull(snapshot)
+                && this.clock.millis() - snapshot.loadedAt() <= this.maxStalenessMillis
+                && (!(snapshot.user() instanceof AuthenticatedUser user) || this.tokenEpochs.isCurrent(tokenEpoch, user))
+                && (Objects.isNull(sessionId) || !this.revocations.containsKey(sessionId));
+    }
+
+    private Optional<UserDetails> outcome(Snapshot snapshot, boolean valid) {
+        (valid ? this.accepted : this.rejected).increment();
+        return valid ? Optional.of(snapshot.user()) : Optional.empty();
+    }
+
+    /**
+     * Forgets the snapshots too old to be used and the revocations of the tokens expired since.
+     */
+    @Scheduled(fixedDelayString = "${application.security.degraded-mode.prune-interval:PT1M}")
+    public void prune() {
+        final long now = this.clock.millis();
+        this.users.values().removeIf(snapshot -> now - snapshot.loadedAt() > this.maxStalenessMillis);
+        this.revocations.values().removeIf(until -> until < now);
+    }
+
+    @Override
+    public String snapshotName() {
+        return "degraded-validation";
+    }
+
+    @Override
+    public int snapshotVersion() {
+        return 1;
+    }
+
+    @Override
+    public ByteBuffer snapshot() {
+        final List<EncodedUser> users = new ArrayList<>();
+        this.users.forEach((email, snapshot) -> {
+            if (snapshot.user() instanceof AuthenticatedUser user) {
+                users.add(new EncodedUser(utf8(email), snapshot.loadedAt(), user.id(), user.tokenEpoch(),
+                        utf8(user.role())));
+            }
+        });
+        final List<EncodedRevocation> revocations = new ArrayList<>();
+        this.revocations.forEach((key, until) -> revocations.add(new EncodedRevocation(utf8(key), until)));
+        final ByteBuffer content = ByteBuffer.allocate(Integer.BYTES * 2
+                + users.stream().mapToInt(EncodedUser::size).sum()
+                + revocations.stream().mapToInt(EncodedRevocation::size).sum());
+        content.putInt(users.size());
+        users.forEach(user -> {
+            putString(content, user.email());
+            content.putLong(user.loadedAt()).putInt(user.id()).putInt(user.tokenEpoch());
+            putString(content, user.role());
+        });
+        content.putInt(revocations.size());
+        revocations.forEach(revocation -> {
+            putString(content, revocation.key());
+            content.putLong(revocation.until());
+        });
+        return content.flip();
+    }
+
+    @Override
+    public void restore(ByteBuffer content, Instant writtenAt) {
+        final Map<String, Snapshot> restoredUsers = new HashMap<>();
+        for (int i = content.getInt(); i > 0; i--) {
+            final String email = getString(content);
+            final long loadedAt = content.getLong();
+            final int id = content.getInt();
+            final int tokenEpoch = content.getInt();
+            final String role = getString(content);
+            restoredUsers.put(email, new Snapshot(new AuthenticatedUser(id, email, null, role, tokenEpoch), loadedAt));
+        }
+        final Map<String, Long> restoredRevocations = new HashMap<>();
+        for (int i = content.getInt(); i > 0; i--) {
+            restoredRevocations.put(getString(content), content.getLong());
+        }
+        restoredRevocations.forEach(this::revoke);
+        restoredUsers.forEach((email, snapshot) -> {
+            if (this.users.size() < this.maxEntries) {
+                this.users.merge(email, snapshot, (known, restored) -> known.loadedAt() >= restored.loadedAt()
+                        ? known : restored);
+            }
+        });
+        this.prune();
+    }
+
+    int size() {
+        return this.users.size() + this.revocations.size();
+    }
+
+    private void revoke(String key, long until) {
+        // the revocations are kept even over the limit, forgetting one would let its token in
+        this.revocations.merge(key, until, Math::max);
+    }
+
+    private record Snapshot(UserDetails user, long loadedAt) {
+    }
+
+    private record EncodedUser(byte[] email, long loadedAt, int id, int tokenEpoch, byte[] role) {
+
+        private int size() {
+            return Integer.BYTES + this.email.length + Long.BYTES + Integer.BYTES * 2 + Integer.BYTES
+                    + this.role.length;
+        }
+    }
+
+    private record EncodedRevocation(byte[] key, long until) {
+
+        private int size() {
+            return Integer.BYTES + this.key.length + Long.BYTES;
+        }
+    }
+}
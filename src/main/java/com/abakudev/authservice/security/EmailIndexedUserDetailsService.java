@@ -0,0 +1,52 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.user.EmailMembershipIndex;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link UserDetailsService} used by the login {@code AuthenticationProvider}. Emails that the
+ * {@link EmailMembershipIndex} reports as not registered are rejected without a database query.
+ *
+ * <p>To keep the response time from revealing whether an account exists, a rejected lookup waits for as long as a
+ * real lookup currently takes (exponentially weighted moving average). The password hash cost is equalised by
+ * {@code DaoAuthenticationProvider}, which hashes the submitted password when the user is not found.
+ */
+public class EmailIndexedUserDetailsService implements UserDetailsService {
+
+    private static final int EWMA_WEIGHT_SHIFT = 3;
+
+    private final UserDetailsService delegate;
+    private final EmailMembershipIndex emailIndex;
+    private final AtomicLong averageLookupNanos = new AtomicLong();
+
+    public EmailIndexedUserDetailsService(UserDetailsService delegate, EmailMembershipIndex emailIndex) {
+        this.delegate = delegate;
+        this.emailIndex = emailIndex;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        if (!this.emailIndex.mightContain(username)) {
+            LockSupport.parkNanos(this.averageLookupNanos.get());
+            throw new UsernameNotFoundException("User with " + username + " not found.");
+        }
+        long start = System.nanoTime();
+        try {
+            return this.delegate.loadUserByUsername(username);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            this.averageLookupNanos.getAndUpdate(average -> average == 0
+                    ? elapsed
+                    : average + ((elapsed - average) >> EWMA_WEIGHT_SHIFT));
+        }
+    }
+
+    long averageLookupNanos() {
+        return this.averageLookupNanos.get();
+    }
+}
@@ -0,0 +1,615 @@
+package com.abakudev.authservice.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.RequiredTypeException;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Encoder and decoder of the HS256 tokens issued by {@link JwtService}, without jjwt on the paths every request takes.
+ * <p>
+ * The tokens of this service always have the same shape: the header {@code {"alg":"HS256"}}, then the claims
+ * {@code sid}, {@code epoch}, {@code jti}, {@code sub}, {@code iat} and {@code exp} in this order, the first two being
+ * optional, with plain ASCII strings. Such a token is written into a single byte array: the header segment is
+ * precomputed, the claims are written as JSON and Base64URL-encoded in place, and the signature is computed by a
+ * pooled {@link Mac}. Decoding checks the signature against the token bytes, then reads the known claims straight
+ * from the JSON into {@link ParsedClaims} instead of a generic claims map.
+ * <p>
+ * Anything else is left to jjwt: {@link #encode} and {@link #decode} return null for the claims, tokens and failures
+ * they do not handle, including a wrong signature and an expired token, so that the exceptions and the claims seen by
+ * the callers stay exactly those of jjwt. The output of both is checked against jjwt by {@code Hs256TokenCodecTest}.
+ * <p>
+ * The {@link Mac} instances are pooled rather than thread-local: the requests run on virtual threads, a thread-local
+ * instance would be created again for every request.
+ */
+final class Hs256TokenCodec {
+
+    static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_BYTES = 32;
+    private static final int SIGNATURE_LENGTH = 43;
+    private static final int POOL_SIZE = 64;
+    private static final int MAX_NUMBER_DIGITS = 18;
+    private static final int RADIX = 10;
+    private static final int MILLIS_PER_SECOND = 1000;
+    private static final int FIRST_PRINTABLE = 0x20;
+    private static final int LAST_ASCII = 0x7E;
+    private static final int BITS_PER_CHAR = 6;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int CHAR_MASK = 0x3F;
+    private static final int BYTE_MASK = 0xFF;
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUES = new byte[LAST_ASCII + 1];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    // after the alphabet
+    private static final byte[] HEADER = base64Url("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII));
+    private static final String HEADER_STRING = new String(HEADER, StandardCharsets.US_ASCII);
+
+    private final SecretKeySpec key;
+    private final AtomicReferenceArray<Mac> macs = new AtomicReferenceArray<>(POOL_SIZE);
+
+    Hs256TokenCodec(byte[] key) {
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        // fails at startup rather than on the first request when the key cannot be used
+        release(newMac());
+    }
+
+    /**
+     * Encodes a token with the claims of {@link JwtService}.
+     *
+     * @param sessionId  {@code sid}, or null
+     * @param epoch      {@code epoch}, or null
+     * @param issuedAt   {@code iat}, epoch milliseconds truncated to seconds as jjwt does
+     * @param expiration {@code exp}, epoch milliseconds truncated to seconds as jjwt does
+     * @return the token, null when a string needs escaping and jjwt must encode it
+     */
+    String encode(String sessionId, Integer epoch, String id, String subject, long issuedAt, long expiration) {
+        if (!isPlain(sessionId) || !isPlain(id) || !isPlain(subject)) {
+            return null;
+        }
+        final JsonWriter json = new JsonWriter(length(sessionId) + length(id) + length(subject));
+        json.open();
+        if (sessionId != null) {
+            json.string(JwtService.SESSION_CLAIM, sessionId);
+        }
+        if (epoch != null) {
+            json.number(JwtService.EPOCH_CLAIM, epoch);
+        }
+        json.string(Claims.ID, id);
+        json.string(Claims.SUBJECT, subject);
+        json.number(Claims.ISSUED_AT, issuedAt / MILLIS_PER_SECOND);
+        json.number(Claims.EXPIRATION, expiration / MILLIS_PER_SECOND);
+        json.close();
+
+        final int payloadLength = base64UrlLength(json.length);
+        final byte[] token = new byte[HEADER.length + 1 + payloadLength + 1 + SIGNATURE_LENGTH];
+        System.arraycopy(HEADER, 0, token, 0, HEADER.length);
+        token[HEADER.length] = '.';
+        base64Url(json.bytes, json.length, token, HEADER.length + 1);
+        final int signed = HEADER.length + 1 + payloadLength;
+        token[signed] = '.';
+        final byte[] signature = sign(token, signed);
+        base64Url(signature, SIGNATURE_BYTES, token, signed + 1);
+        return new String(token, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decodes a token issued by {@link #encode} or by jjwt with the same claims.
+     *
+     * @return the claims, null when the token must be parsed by jjwt: another shape, a wrong signature or expired
+     */
+    Claims decode(String token) {
+        final int length = token.length();
+        if (length <= HEADER.length + SIGNATURE_LENGTH + 2 || !token.startsWith(HEADER_STRING)
+                || token.charAt(HEADER.length) != '.') {
+            return null;
+        }
+        final int signed = length - SIGNATURE_LENGTH - 1;
+        if (token.charAt(signed) != '.' || token.indexOf('.', HEADER.length + 1) != signed) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            final char c = token.charAt(i);
+            if (c > LAST_ASCII) {
+                return null;
+            }
+            bytes[i] = (byte) c;
+        }
+        final byte[] expected = new byte[SIGNATURE_LENGTH];
+        base64Url(sign(bytes, signed), SIGNATURE_BYTES, expected, 0);
+        if (!MessageDigest.isEqual(expected, Arrays.copyOfRange(bytes, signed + 1, length))) {
+            return null;
+        }
+        final byte[] payload = base64UrlDecode(bytes, HEADER.length + 1, signed);
+        final ParsedClaims claims = payload == null ? null : ParsedClaims.parse(payload);
+        if (claims == null || (claims.expiration != null
+                && System.currentTimeMillis() > claims.expiration.longValue() * MILLIS_PER_SECOND)) {
+            return null;
+        }
+        return claims;
+    }
+
+    private byte[] sign(byte[] content, int length) {
+        final Mac mac = acquire();
+        try {
+            mac.update(content, 0, length);
+            final byte[] signature = new byte[SIGNATURE_BYTES];
+            mac.doFinal(signature, 0);
+            return signature;
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            release(mac);
+        }
+    }
+
+    private Mac acquire() {
+        final int start = ThreadLocalRandom.current().nextInt(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            final Mac mac = this.macs.getAndSet((start + i) % POOL_SIZE, null);
+            if (mac != null) {
+                return mac;
+            }
+        }
+        return newMac();
+    }
+
+    private void release(Mac mac) {
+        final int start = ThreadLocalRandom.current().nextInt(POOL_SIZE);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (this.macs.compareAndSet((start + i) % POOL_SIZE, null, mac)) {
+                return;
+            }
+        }
+        // the pool is full, the instance is dropped
+    }
+
+    private Mac newMac() {
+        try {
+            final Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(this.key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign the tokens with " + ALGORITHM, e);
+        }
+    }
+
+    private static boolean isPlain(String string) {
+        if (string == null) {
+            return true;
+        }
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            if (c < FIRST_PRINTABLE || c > LAST_ASCII || c == '"' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int length(String string) {
+        return string == null ? 0 : string.length();
+    }
+
+    private static int base64UrlLength(int length) {
+        return (length * BITS_PER_BYTE + BITS_PER_CHAR - 1) / BITS_PER_CHAR;
+    }
+
+    private static byte[] base64Url(byte[] source) {
+        final byte[] encoded = new byte[base64UrlLength(source.length)];
+        base64Url(source, source.length, encoded, 0);
+        return encoded;
+    }
+
+    /**
+     * Encodes {@code length} bytes into {@code target} from {@code offset}, without padding.
+     */
+    private static void base64Url(byte[] source, int length, byte[] target, int offset) {
+        int position = offset;
+        int bits = 0;
+        int buffer = 0;
+        for (int i = 0; i < length; i++) {
+            buffer = (buffer << BITS_PER_BYTE) | (source[i] & BYTE_MASK);
+            bits += BITS_PER_BYTE;
+            while (bits >= BITS_PER_CHAR) {
+                bits -= BITS_PER_CHAR;
+                target[position++] = ALPHABET[(buffer >> bits) & CHAR_MASK];
+            }
+        }
+        if (bits > 0) {
+            target[position] = ALPHABET[(buffer << (BITS_PER_CHAR - bits)) & CHAR_MASK];
+        }
+    }
+
+    /**
+     * Decodes the characters from {@code from} to {@code to}, exclusive.
+     *
+     * @return the bytes, null when a character is not Base64URL or the length is not one of an encoding
+     */
+    private static byte[] base64UrlDecode(byte[] source, int from, int to) {
+        final int length = to - from;
+        final int decodedLength = length * BITS_PER_CHAR / BITS_PER_BYTE;
+        if (base64UrlLength(decodedLength) != length) {
+            return null;
+        }
+        final byte[] decoded = new byte[decodedLength];
+        int position = 0;
+        int bits = 0;
+        int buffer = 0;
+        for (int i = from; i < to; i++) {
+            final byte value = VALUES[source[i]];
+            if (value < 0) {
+                return null;
+            }
+            buffer = (buffer << BITS_PER_CHAR) | value;
+            bits += BITS_PER_CHAR;
+            if (bits >= BITS_PER_BYTE) {
+                bits -= BITS_PER_BYTE;
+                decoded[position++] = (byte) (buffer >> bits);
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Writes the claims object as Jackson does for jjwt: no whitespace, the members in order.
+     */
+    private static final class JsonWriter {
+
+        // the fixed parts: braces, names, quotes, separators and numbers
+        private static final int FIXED_LENGTH = 128;
+
+        private final byte[] bytes;
+        private int length;
+
+        private JsonWriter(int stringsLength) {
+            this.bytes = new byte[FIXED_LENGTH + stringsLength];
+        }
+
+        private void open() {
+            this.bytes[this.length++] = '{';
+        }
+
+        private void close() {
+            // replaces the last separator
+            this.bytes[this.length - 1] = '}';
+        }
+
+        private void string(String name, String value) {
+            name(name);
+            this.bytes[this.length++] = '"';
+            ascii(value);
+            this.bytes[this.length++] = '"';
+            this.bytes[this.length++] = ',';
+        }
+
+        private void number(String name, long value) {
+            name(name);
+            long remaining = value;
+            if (remaining < 0) {
+                this.bytes[this.length++] = '-';
+                remaining = -remaining;
+            }
+            int digits = 1;
+            for (long bound = RADIX; bound <= remaining && digits < MAX_NUMBER_DIGITS; bound *= RADIX) {
+                digits++;
+            }
+            for (int i = this.length + digits - 1; i >= this.length; i--) {
+                this.bytes[i] = (byte) ('0' + remaining % RADIX);
+                remaining /= RADIX;
+            }
+            this.length += digits;
+            this.bytes[this.length++] = ',';
+        }
+
+        private void name(String name) {
+            this.bytes[this.length++] = '"';
+            ascii(name);
+            this.bytes[this.length++] = '"';
+            this.bytes[this.length++] = ':';
+        }
+
+        private void ascii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                this.bytes[this.length++] = (byte) value.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * The claims of a decoded token, read without building a map. Only a copy is made, lazily, when the claims are
+     * used as a map. Read-only, as the claims of a parsed token are.
+     */
+    static final class ParsedClaims extends AbstractMap<String, Object> implements Claims {
+
+        private String sessionId;
+        private Integer epoch;
+        private String id;
+        private String subject;
+        private Number issuedAt;
+        private Number expiration;
+        private Map<String, Object> map;
+
+        /**
+         * Reads a flat JSON object made of the known claims only, without whitespace nor escapes.
+         *
+         * @return the claims, null for anything else
+         */
+        static ParsedClaims parse(byte[] json) {
+            final ParsedClaims claims = new ParsedClaims();
+            final Reader reader = new Reader(json);
+            if (!reader.expect('{')) {
+                return null;
+            }
+            do {
+                final String name = reader.string();
+                if (name == null || !reader.expect(':') || !claims.read(name, reader)) {
+                    return null;
+                }
+            } while (reader.expect(','));
+            return reader.expect('}') && reader.atEnd() ? claims : null;
+        }
+
+        private boolean read(String name, Reader reader) {
+            switch (name) {
+                case JwtService.SESSION_CLAIM -> {
+                    this.sessionId = this.sessionId == null ? reader.string() : null;
+                    return this.sessionId != null;
+                }
+                case JwtService.EPOCH_CLAIM -> {
+                    final Number number = this.epoch == null ? reader.number() : null;
+                    this.epoch = number instanceof Integer integer ? integer : null;
+                    return this.epoch != null;
+                }
+                case Claims.ID -> {
+                    this.id = this.id == null ? reader.string() : null;
+                    return this.id != null;
+                }
+                case Claims.SUBJECT -> {
+                    this.subject = this.subject == null ? reader.string() : null;
+                    return this.subject != null;
+                }
+                case Claims.ISSUED_AT -> {
+                    this.issuedAt = this.issuedAt == null ? reader.number() : null;
+                    return this.issuedAt != null;
+                }
+                case Claims.EXPIRATION -> {
+                    this.expiration = this.expiration == null ? reader.number() : null;
+                    return this.expiration != null;
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public String getSubject() {
+            return this.subject;
+        }
+
+        @Override
+        public String getId() {
+            return this.id;
+        }
+
+        @Override
+        public Date getIssuedAt() {
+            return toDate(this.issuedAt);
+        }
+
+        @Override
+        public Date getExpiration() {
+            return toDate(this.expiration);
+        }
+
+        @Override
+        public String getIssuer() {
+            return null;
+        }
+
+        @Override
+        public String getAudience() {
+            return null;
+        }
+
+        @Override
+        public Date getNotBefore() {
+            return null;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (!(key instanceof String name)) {
+                return null;
+            }
+            return switch (name) {
+                case JwtService.SESSION_CLAIM -> this.sessionId;
+                case JwtService.EPOCH_CLAIM -> this.epoch;
+                case Claims.ID -> this.id;
+                case Claims.SUBJECT -> this.subject;
+                case Claims.ISSUED_AT -> this.issuedAt;
+                case Claims.EXPIRATION -> this.expiration;
+                default -> null;
+            };
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        /**
+         * Converts as jjwt does for the types its claims hold.
+         */
+        @Override
+        public <T> T get(String claimName, Class<T> requiredType) {
+            final Object value = get(claimName);
+            if (value == null || requiredType.isInstance(value)) {
+                return requiredType.cast(value);
+            }
+            if (value instanceof Number number) {
+                if (requiredType == Date.class) {
+                    return requiredType.cast(toDate(number));
+                }
+                if (requiredType == Long.class) {
+                    return requiredType.cast(number.longValue());
+                }
+            }
+            throw new RequiredTypeException("Expected value to be of type: " + requiredType + ", but was "
+                    + value.getClass());
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            if (this.map == null) {
+                final Map<String, Object> map = new LinkedHashMap<>();
+                for (String name : new String[]{JwtService.SESSION_CLAIM, JwtService.EPOCH_CLAIM, Claims.ID,
+                        Claims.SUBJECT, Claims.ISSUED_AT, Claims.EXPIRATION}) {
+                    final Object value = get(name);
+                    if (value != null) {
+                        map.put(name, value);
+                    }
+                }
+                this.map = Collections.unmodifiableMap(map);
+            }
+            return this.map.entrySet();
+        }
+
+        @Override
+        public Claims setIssuer(String iss) {
+            throw readOnly();
+        }
+
+        @Override
+        public Claims setSubject(String sub) {
+            throw readOnly();
+        }
+
+        @Override
+        public Claims setAudience(String aud) {
+            throw readOnly();
+        }
+
+        @Override
+        public Claims setExpiration(Date exp) {
+            throw readOnly();
+        }
+
+        @Override
+        public Claims setNotBefore(Date nbf) {
+            throw readOnly();
+        }
+
+        @Override
+        public Claims setIssuedAt(Date iat) {
+            throw readOnly();
+        }
+
+        @Override
+        public Claims setId(String jti) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("The claims of a parsed token are read-only");
+        }
+
+        private static Date toDate(Number seconds) {
+            return seconds == null ? null : new Date(seconds.longValue() * MILLIS_PER_SECOND);
+        }
+    }
+
+    /**
+     * Reads the JSON written by {@link JsonWriter}.
+     */
+    private static final class Reader {
+
+        private final byte[] json;
+        private int position;
+
+        private Reader(byte[] json) {
+            this.json = json;
+        }
+
+        private boolean expect(char c) {
+            if (this.position < this.json.length && this.json[this.position] == c) {
+                this.position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean atEnd() {
+            return this.position == this.json.length;
+        }
+
+        /**
+         * @return the string, null if there is none here or it has an escape or a non-printable character
+         */
+        private String string() {
+            if (!expect('"')) {
+                return null;
+            }
+            final int start = this.position;
+            while (this.position < this.json.length) {
+                final byte b = this.json[this.position];
+                if (b == '"') {
+                    return new String(this.json, start, this.position++ - start, StandardCharsets.US_ASCII);
+                }
+                if (b < FIRST_PRINTABLE || b > LAST_ASCII || b == '\\') {
+                    return null;
+                }
+                this.position++;
+            }
+            return null;
+        }
+
+        /**
+         * @return the integer, as an Integer when it fits like Jackson reads it, null if there is none here
+         */
+        private Number number() {
+            final boolean negative = expect('-');
+            final int start = this.position;
+            long value = 0;
+            while (this.position < this.json.length && this.json[this.position] >= '0'
+                    && this.json[this.position] <= '9') {
+                value = value * RADIX + this.json[this.position++] - '0';
+            }
+            final int digits = this.position - start;
+            if (digits == 0 || digits > MAX_NUMBER_DIGITS || (digits > 1 && this.json[start] == '0')
+                    || (this.position < this.json.length && (this.json[this.position] == '.'
+                    || this.json[this.position] == 'e' || this.json[this.position] == 'E'))) {
+                return null;
+            }
+            final long signed = negative ? -value : value;
+            // not a conditional expression, that would promote both to long
+            if (signed == (int) signed) {
+                return Integer.valueOf((int) signed);
+            }
+            return Long.valueOf(signed);
+        }
+    }
+}
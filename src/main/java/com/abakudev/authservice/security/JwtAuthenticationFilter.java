@@ -1,11 +1,22 @@
 package com.abakudev.authservice.security;
 
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.persistence.DatabaseBulkhead;
+import com.abakudev.authservice.persistence.DatabaseCircuitBreaker;
+import com.abakudev.authservice.persistence.ReadReplicas;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import com.abakudev.authservice.token.SessionActivity;
+import com.abakudev.authservice.token.Token;
 import com.abakudev.authservice.token.TokenRepository;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,9 +25,12 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @Component
 @RequiredArgsConstructor
@@ -25,6 +39,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
     private final TokenRepository tokenRepository;
+    private final RoleRegistry roleRegistry;
+    private final TokenEpochs tokenEpochs;
+    private final SessionActivity sessionActivity;
+    private final DatabaseBulkhead databaseBulkhead;
+    private final ReadReplicas readReplicas;
+    private final DatabaseCircuitBreaker circuitBreaker;
+    private final DegradedValidation degradedValidation;
+    private final ReferenceTokens referenceTokens;
+    // resolved by name, the error attributes of Spring Boot are a HandlerExceptionResolver too
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    // a burst of requests carrying the same token shares one user and one token lookup
+    private final SingleFlight<String, UserDetails> userLookups = new SingleFlight<>();
+    private final SingleFlight<String, Optional<Token>> tokenLookups = new SingleFlight<>();
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
@@ -35,31 +62,153 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
         if (Objects.isNull(authHeader) || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
         final int beginIndex = 7;
         jwt = authHeader.substring(beginIndex);
-        userEmail = this.jwtService.extractUsername(jwt);
-        if (Objects.nonNull(userEmail) && Objects.isNull(SecurityContextHolder.getContext().getAuthentication())) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            var isTokenValid = this.tokenRepository.findByTokenValue(jwt)
-                    .map(t -> !t.isExpired() && !t.isRevoked())
-                    .orElse(false);
-            if (this.jwtService.isTokenValid(jwt, userDetails) && Boolean.TRUE.equals(isTokenValid)) {
+        final Supplier<Optional<UserDetails>> fromDatabase;
+        final Supplier<Optional<UserDetails>> fromMemory;
+        if (this.referenceTokens.isReference(jwt)) {
+            // an opaque handle, looked up rather than parsed
+            fromDatabase = () -> this.validateReference(jwt);
+            fromMemory = () -> this.referenceTokens.find(jwt).flatMap(this.degradedValidation::validate);
+        } else {
+            final Claims claims;
+            try {
+                claims = this.jwtService.extractAllClaims(jwt);
+            } catch (JwtException e) {
+                // expired, tampered or garbage token: the request goes on unauthenticated and is rejected by the
+                // authorization rules, without a stack trace going up to the container
+                filterChain.doFilter(request, response);
+                return;
+            }
+            final String userEmail = claims.getSubject();
+            if (Objects.isNull(userEmail)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            fromDatabase = () -> this.validate(jwt, claims, userEmail);
+            fromMemory = () -> this.degradedValidation.validate(jwt, claims);
+        }
+        if (Objects.isNull(SecurityContextHolder.getContext().getAuthentication())) {
+            final Optional<UserDetails> authenticated;
+            try {
+                authenticated = this.authenticate(fromDatabase, fromMemory);
+            } catch (BusinessException busy) {
+                // the database is busy, answered like the same failure in a controller
+                this.handlerExceptionResolver.resolveException(request, response, null, busy);
+                return;
+            }
+            authenticated.ifPresent(userDetails -> {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
-                        userDetails.getAuthorities()
+                        userDetails instanceof AuthenticatedUser user
+                                ? this.roleRegistry.authoritiesOf(user.role())
+                                : userDetails.getAuthorities()
                 );
                 authToken.setDetails(
                         new WebAuthenticationDetailsSource().buildDetails(request)
                 );
                 SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+            });
         }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Validates the token against the database, or from memory while the database is unreachable.
+     *
+     * @throws BusinessException when the database is busy
+     */
+    private Optional<UserDetails> authenticate(Supplier<Optional<UserDetails>> fromDatabase,
+                                               Supplier<Optional<UserDetails>> fromMemory) {
+        if (!this.circuitBreaker.allowRequest()) {
+            // the database is unreachable, the token is checked against what this instance last knew
+            return fromMemory.get();
+        }
+        try {
+            final Optional<UserDetails> authenticated = fromDatabase.get();
+            this.circuitBreaker.onSuccess();
+            return authenticated;
+        } catch (RuntimeException e) {
+            if (NestedExceptionUtils.getMostSpecificCause(e) instanceof BusinessException busy) {
+                throw busy;
+            }
+            if (!DatabaseCircuitBreaker.isOutage(e)) {
+                // the database answered, the failure is the query's
+                this.circuitBreaker.onSuccess();
+                throw e;
+            }
+            if (!this.circuitBreaker.onOutage(e)) {
+                throw e;
+            }
+            return fromMemory.get();
+        }
+    }
+
+    /**
+     * Validates the token against the database: its user and its stored row.
+     */
+    private Optional<UserDetails> validate(String jwt, Claims claims, String userEmail) {
+        final UserDetails userDetails = this.userLookups.execute(userEmail,
+                () -> lookup(userEmail, () -> this.userDetailsService.loadUserByUsername(userEmail)));
+        // kept first, the epoch it carries replaces the one of TokenEpochs once the database has caught up
+        this.degradedValidation.remember(userEmail, userDetails);
+        // tokens issued before the last "log out everywhere" or password change are rejected without a lookup
+        if (userDetails instanceof AuthenticatedUser user
+                && !this.tokenEpochs.isCurrent(JwtService.epochOf(claims), user)) {
+            return Optional.empty();
+        }
+        final Optional<Token> storedToken = this.tokenLookups.execute(jwt,
+                        () -> lookup(userEmail, () -> this.tokenRepository.findByTokenValue(jwt)))
+                .filter(t -> !t.isExpired() && !t.isRevoked());
+        if (storedToken.isEmpty()) {
+            // remembered for the degraded mode, the database would not tell while it is unreachable
+            this.degradedValidation.revokeToken(jwt, claims.getExpiration());
+            return Optional.empty();
+        }
+        if (!JwtService.isValid(claims, userDetails)) {
+            return Optional.empty();
+        }
+        this.sessionActivity.touch(storedToken.get().getId());
+        return Optional.of(userDetails);
+    }
+
+    /**
+     * Validates a reference token: a map lookup, the stored row being read when the handle is unknown to this instance
+     * or was not checked for a while, then the user as for a JWT.
+     */
+    private Optional<UserDetails> validateReference(String handle) {
+        Optional<ReferenceTokens.ReferenceToken> referenceToken = this.referenceTokens.find(handle);
+        if (referenceToken.isEmpty() || this.referenceTokens.needsCheck(referenceToken.get())) {
+            // from the primary, the handle may have been issued through another instance a moment ago
+            referenceToken = this.tokenLookups.execute(handle, () -> this.databaseBulkhead.read(
+                            () -> this.tokenRepository.findActiveWithUser(handle)))
+                    .flatMap(token -> this.referenceTokens.remember(handle, token, token.getUser().getEmail()));
+            if (referenceToken.isEmpty()) {
+                this.referenceTokens.revoke(handle);
+                return Optional.empty();
+            }
+        }
+        final String userEmail = referenceToken.get().email();
+        final UserDetails userDetails = this.userLookups.execute(userEmail,
+                () -> lookup(userEmail, () -> this.userDetailsService.loadUserByUsername(userEmail)));
+        this.degradedValidation.remember(userEmail, userDetails);
+        if (userDetails instanceof AuthenticatedUser user
+                && !this.tokenEpochs.isCurrent(referenceToken.get().epoch(), user)) {
+            return Optional.empty();
+        }
+        this.sessionActivity.touch(referenceToken.get().tokenId());
+        return Optional.of(userDetails);
+    }
+
+    /**
+     * Runs a lookup in the read lane of the bulkhead, on a read replica unless the user wrote recently.
+     */
+    private <T> T lookup(String userEmail, Supplier<T> query) {
+        return this.databaseBulkhead.read(() -> this.readReplicas.read(userEmail, query));
+    }
 }
@@ -1,6 +1,9 @@
 package com.abakudev.authservice.security;
 
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -10,26 +13,59 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+/**
+ * Issues and parses the HS256 tokens of the service. The tokens with the usual claims go through
+ * {@link Hs256TokenCodec}, the others through jjwt.
+ */
 @Service
 public class JwtService {
 
+    /**
+     * Claim holding the {@link User#getTokenEpoch() token epoch} of the user the token was issued to.
+     */
+    public static final String EPOCH_CLAIM = "epoch";
+
+    /**
+     * Claim holding the login session the token belongs to, shared by the access and refresh tokens of a session.
+     */
+    public static final String SESSION_CLAIM = "sid";
+
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
     @Value("${application.security.jwt.expiration}")
     private long jwtExpiration;
     @Value("${application.security.jwt.refresh-token.expiration}")
     private long refreshExpiration;
+    private volatile Signing signing;
 
     public String extractUsername(String token) {
         return this.extractClaim(token, Claims::getSubject);
     }
 
+    /**
+     * Returns the token epoch of the token, {@code 0} for the tokens issued before epochs were introduced.
+     */
+    public int extractEpoch(String token) {
+        return this.extractClaim(token, JwtService::epochOf);
+    }
+
+    public static int epochOf(Claims claims) {
+        final Integer epoch = claims.get(EPOCH_CLAIM, Integer.class);
+        return epoch == null ? 0 : epoch;
+    }
+
+    public String extractSessionId(String token) {
+        return this.extractClaim(token, claims -> claims.get(SESSION_CLAIM, String.class));
+    }
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = this.extractAllClaims(token);
         return claimsResolver.apply(claims);
@@ -43,45 +79,90 @@ public class JwtService {
         return this.buildToken(extraClaims, userDetails, this.jwtExpiration);
     }
 
+    public String generateToken(UserDetails userDetails, String sessionId) {
+        return this.buildToken(Map.of(SESSION_CLAIM, sessionId), userDetails, this.jwtExpiration);
+    }
+
     public String generateRefreshToken(UserDetails userDetails) {
         return this.buildToken(new HashMap<>(), userDetails, this.refreshExpiration);
     }
 
+    public String generateRefreshToken(UserDetails userDetails, String sessionId) {
+        return this.buildToken(Map.of(SESSION_CLAIM, sessionId), userDetails, this.refreshExpiration);
+    }
+
+    public long getRefreshExpiration() {
+        return this.refreshExpiration;
+    }
+
     private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
-        return Jwts
+        final Signing signing = this.signing();
+        final Object sessionId = extraClaims.get(SESSION_CLAIM);
+        if (extraClaims.size() == (Objects.isNull(sessionId) ? 0 : 1)
+                && (Objects.isNull(sessionId) || sessionId instanceof String)) {
+            final long now = System.currentTimeMillis();
+            final String token = signing.codec().encode((String) sessionId,
+                    userDetails instanceof AuthenticatedUser user ? user.tokenEpoch() : null,
+                    UUID.randomUUID().toString(), userDetails.getUsername(), now, now + expiration);
+            if (Objects.nonNull(token)) {
+                return token;
+            }
+        }
+        var builder = Jwts
                 .builder()
-                .setClaims(extraClaims)
+                .setClaims(extraClaims);
+        if (userDetails instanceof AuthenticatedUser user) {
+            builder.claim(EPOCH_CLAIM, user.tokenEpoch());
+        }
+        return builder
+                // unique id, so that two tokens issued within the same second for the same user never collide
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signing.key(), SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = this.extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isValid(this.extractAllClaims(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Tells whether already parsed claims were issued to the given user and are not expired, without parsing the
+     * token again.
+     */
+    public static boolean isValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Parses a token, checking its signature and its expiration.
+     *
+     * @throws io.jsonwebtoken.JwtException when the token is malformed, not signed with the key or expired
+     */
+    public Claims extractAllClaims(String token) {
+        final Signing signing = this.signing();
+        final Claims claims = signing.codec().decode(token);
+        return Objects.nonNull(claims) ? claims : signing.parser().parseClaimsJws(token).getBody();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(this.getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private Signing signing() {
+        final Signing signing = this.signing;
+        if (Objects.nonNull(signing) && signing.secretKey().equals(this.secretKey)) {
+            return signing;
+        }
+        final byte[] keyBytes = Decoders.BASE64.decode(this.secretKey);
+        final Key key = Keys.hmacShaKeyFor(keyBytes);
+        final Signing created = new Signing(this.secretKey, key, Jwts.parserBuilder().setSigningKey(key).build(),
+                new Hs256TokenCodec(keyBytes));
+        this.signing = created;
+        return created;
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(this.secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * The key, decoded once, and what signs and parses with it.
+     */
+    private record Signing(String secretKey, Key key, JwtParser parser, Hs256TokenCodec codec) {
     }
 }
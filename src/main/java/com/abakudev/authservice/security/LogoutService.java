@@ -1,6 +1,9 @@
 package com.abakudev.authservice.security;
 
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.persistence.ReadReplicas;
 import com.abakudev.authservice.token.TokenRepository;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -16,6 +19,11 @@ import java.util.Objects;
 public class LogoutService implements LogoutHandler {
 
     private final TokenRepository tokenRepository;
+    private final EntityCacheEviction cacheEviction;
+    private final JwtService jwtService;
+    private final ReadReplicas readReplicas;
+    private final DegradedValidation degradedValidation;
+    private final ReferenceTokens referenceTokens;
 
     @Override
     public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
@@ -33,7 +41,19 @@ public class LogoutService implements LogoutHandler {
             storedToken.setExpired(true);
             storedToken.setRevoked(true);
             this.tokenRepository.save(storedToken);
+            this.cacheEviction.evictToken(storedToken.getId());
+            this.degradedValidation.revokeSession(storedToken.getSessionId());
+            this.referenceTokens.revoke(jwt);
+            readRevocationFromPrimary(jwt);
             SecurityContextHolder.clearContext();
         }
     }
+
+    private void readRevocationFromPrimary(String jwt) {
+        try {
+            this.readReplicas.wrote(this.jwtService.extractUsername(jwt));
+        } catch (JwtException e) {
+            // expired, the token is refused before any lookup anyway
+        }
+    }
 }
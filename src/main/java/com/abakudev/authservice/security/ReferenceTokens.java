@@ -0,0 +1,304 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.persistence.Snapshotted;
+import com.abakudev.authservice.token.Token;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.abakudev.authservice.persistence.Snapshotted.getString;
+import static com.abakudev.authservice.persistence.Snapshotted.putString;
+import static com.abakudev.authservice.persistence.Snapshotted.utf8;
+
+/**
+ * Opaque access tokens, issued instead of a JWT to the clients that ask for one at login or registration
+ * ({@link #FORMAT_HEADER}), when {@code application.security.reference-tokens.enabled}.
+ * <p>
+ * A reference token is a random 128-bit handle, 22 characters once encoded, that maps to its session in memory: the
+ * JWT filter validates it with one map lookup and without parsing or signature check, and revoking it is a removal.
+ * The handle is also the value of the session's {@link Token} row, so the sessions are listed, refreshed and revoked
+ * as for the JWTs, and a handle unknown to this instance, issued through another one or before a restart, is looked
+ * up there once. A handle known here is checked against its row again every {@code revalidate-after}, which bounds how
+ * long a revocation made through another instance is missed, as the second-level cache does for the JWTs.
+ * <p>
+ * The handles are {@link Snapshotted snapshotted}, a restarted instance does not look up again every handle it knew.
+ * Both the map and the snapshot are keyed by a digest of the handle, never by the handle itself, so that neither a heap
+ * dump nor the snapshot file holds a bearer token usable as is.
+ */
+@Component
+public class ReferenceTokens implements Snapshotted {
+
+    /**
+     * Request header by which a client asks for a reference token, with the value {@link #FORMAT}.
+     */
+    public static final String FORMAT_HEADER = "X-Token-Format";
+    public static final String FORMAT = "reference";
+    static final int HANDLE_BYTES = 16;
+    private static final int HANDLE_LENGTH = 22;
+    /**
+     * The characters a handle can end with: its last character carries 2 bits of the handle and 4 unused bits, zero in
+     * the canonical encoding.
+     */
+    private static final String LAST_CHARACTERS = "AQgw";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<Handle, ReferenceToken> tokens = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Clock clock;
+    private final boolean enabled;
+    private final long expirationMillis;
+    private final long revalidateAfterMillis;
+    private final int maxEntries;
+
+    @Autowired
+    public ReferenceTokens(@Value("${application.security.reference-tokens.enabled:false}") boolean enabled,
+                           @Value("${application.security.jwt.expiration}") long expirationMillis,
+                           @Value("${application.security.reference-tokens.revalidate-after:PT30S}")
+                           Duration revalidateAfter,
+                           @Value("${application.security.reference-tokens.max-entries:100000}") int maxEntries) {
+        this(Clock.systemUTC(), enabled, expirationMillis, revalidateAfter, maxEntries);
+    }
+
+    ReferenceTokens(Clock clock, boolean enabled, long expirationMillis, Duration revalidateAfter, int maxEntries) {
+        this.clock = clock;
+        this.enabled = enabled;
+        this.expirationMillis = expirationMillis;
+        this.revalidateAfterMillis = revalidateAfter.toMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Tells whether the token sent by a client is a handle rather than a JWT, always false while disabled.
+     */
+    public boolean isReference(String token) {
+        // a JWT has at least two dots, a handle none
+        return this.enabled && token.length() == HANDLE_LENGTH && token.indexOf('.') < 0;
+    }
+
+    /**
+     * Generates a new handle, registered by {@link #remember(String, Token, String)} once its row is saved.
+     */
+    public String generate() {
+        final byte[] handle = new byte[HANDLE_BYTES];
+        this.random.nextBytes(handle);
+        return ENCODER.encodeToString(handle);
+    }
+
+    /**
+     * Returns when a handle generated now expires, as a JWT access token issued now would.
+     */
+    public Instant expiresAt() {
+        return Instant.ofEpochMilli(this.clock.millis() + this.expirationMillis);
+    }
+
+    /**
+     * Maps a handle to the session of its row, just saved or just read from the database.
+     *
+     * @return the handle's token, empty if the row is not the one of a reference token or the token expired
+     */
+    public Optional<ReferenceToken> remember(String handle, Token token, String email) {
+        final Handle key = Handle.decode(handle);
+        if (Objects.isNull(key) || Objects.isNull(token.getAccessExpiresAt())) {
+            return Optional.empty();
+        }
+        final long now = this.clock.millis();
+        final ReferenceToken referenceToken = new ReferenceToken(token.getId(), email, token.getSessionId(),
+                token.getEpoch(), token.getAccessExpiresAt().toEpochMilli(), now);
+        if (referenceToken.expiresAt() <= now) {
+            this.tokens.remove(key);
+            return Optional.empty();
+        }
+        if (this.tokens.size() < this.maxEntries || this.tokens.containsKey(key)) {
+            this.tokens.put(key, referenceToken);
+        }
+        return Optional.of(referenceToken);
+    }
+
+    /**
+     * Looks a handle up in memory.
+     *
+     * @return the handle's token, empty if unknown to this instance or expired
+     */
+    public Optional<ReferenceToken> find(String handle) {
+        final Handle key = Handle.decode(handle);
+        final ReferenceToken referenceToken = Objects.isNull(key) ? null : this.tokens.get(key);
+        if (Objects.isNull(referenceToken) || referenceToken.expiresAt() <= this.clock.millis()) {
+            return Optional.empty();
+        }
+        return Optional.of(referenceToken);
+    }
+
+    /**
+     * Tells whether the token must be checked against its row before being accepted again.
+     */
+    public boolean needsCheck(ReferenceToken referenceToken) {
+        return this.clock.millis() - referenceToken.verifiedAt() > this.revalidateAfterMillis;
+    }
+
+    /**
+     * Forgets a handle, after its revocation or when its row is gone.
+     */
+    public void revoke(String handle) {
+        final Handle key = Handle.decode(handle);
+        if (Objects.nonNull(key)) {
+            this.tokens.remove(key);
+        }
+    }
+
+    /**
+     * Forgets the expired handles.
+     */
+    @Scheduled(fixedDelayString = "${application.security.reference-tokens.prune-interval:PT1M}")
+    public void prune() {
+        final long now = this.clock.millis();
+        this.tokens.values().removeIf(referenceToken -> referenceToken.expiresAt() <= now);
+    }
+
+    int size() {
+        return this.tokens.size();
+    }
+
+    @Override
+    public String snapshotName() {
+        return "reference-tokens";
+    }
+
+    @Override
+    public int snapshotVersion() {
+        return 2;
+    }
+
+    @Override
+    public ByteBuffer snapshot() {
+        final List<EncodedToken> tokens = new ArrayList<>();
+        this.tokens.forEach((handle, referenceToken) -> tokens.add(new EncodedToken(handle, referenceToken,
+                utf8(referenceToken.email()), utf8(Objects.requireNonNullElse(referenceToken.sessionId(), "")))));
+        final ByteBuffer content = ByteBuffer.allocate(Integer.BYTES
+                + tokens.stream().mapToInt(EncodedToken::size).sum());
+        content.putInt(tokens.size());
+        tokens.forEach(token -> {
+            content.putLong(token.handle().high()).putLong(token.handle().low())
+                    .putInt(token.token().tokenId())
+                    .putInt(token.token().epoch())
+                    .putLong(token.token().expiresAt())
+                    .putLong(token.token().verifiedAt());
+            putString(content, token.email());
+            putString(content, token.sessionId());
+        });
+        return content.flip();
+    }
+
+    @Override
+    public void restore(ByteBuffer content, Instant writtenAt) {
+        final Map<Handle, ReferenceToken> restored = new HashMap<>();
+        for (int i = content.getInt(); i > 0; i--) {
+            final Handle handle = new Handle(content.getLong(), content.getLong());
+            final int tokenId = content.getInt();
+            final int epoch = content.getInt();
+            final long expiresAt = content.getLong();
+            final long verifiedAt = content.getLong();
+            final String email = getString(content);
+            final String sessionId = getString(content);
+            restored.put(handle, new ReferenceToken(tokenId, email, sessionId.isEmpty() ? null : sessionId, epoch,
+                    expiresAt, verifiedAt));
+        }
+        restored.forEach((handle, referenceToken) -> {
+            // a handle remembered since the start was verified more recently
+            if (this.tokens.size() < this.maxEntries) {
+                this.tokens.putIfAbsent(handle, referenceToken);
+            }
+        });
+        this.prune();
+    }
+
+    /**
+     * The session a handle maps to.
+     *
+     * @param tokenId    id of the handle's {@link Token} row
+     * @param email      the user the token was issued to
+     * @param sessionId  the login session
+     * @param epoch      {@link Token#getEpoch() token epoch} of the user when the token was issued
+     * @param expiresAt  when the token expires, epoch milliseconds
+     * @param verifiedAt when the row was last saved or read, epoch milliseconds
+     */
+    public record ReferenceToken(Integer tokenId, String email, String sessionId, int epoch, long expiresAt,
+                                 long verifiedAt) {
+    }
+
+    /**
+     * The digest of a handle: the first 128 bits of the SHA-256 of its bytes, two longs hashed by their bits.
+     */
+    private record Handle(long high, long low) {
+
+        private static final MessageDigest SHA256 = sha256();
+
+        /**
+         * Returns null for anything but the canonical encoding of a handle, the 16 strings differing in the unused bits
+         * of the last character would otherwise all be the same handle.
+         */
+        private static Handle decode(String handle) {
+            if (handle.length() != HANDLE_LENGTH || LAST_CHARACTERS.indexOf(handle.charAt(HANDLE_LENGTH - 1)) < 0) {
+                return null;
+            }
+            final byte[] bytes;
+            try {
+                bytes = DECODER.decode(handle);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            final ByteBuffer digest = ByteBuffer.wrap(digest().digest(bytes));
+            return new Handle(digest.getLong(), digest.getLong());
+        }
+
+        /**
+         * A copy of the digest, cheaper than looking the algorithm up in the providers on each request. A thread local
+         * would not be reused: the requests run on virtual threads, one per request.
+         */
+        private static MessageDigest digest() {
+            try {
+                return (MessageDigest) SHA256.clone();
+            } catch (CloneNotSupportedException e) {
+                return sha256();
+            }
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform implements SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private record EncodedToken(Handle handle, ReferenceToken token, byte[] email, byte[] sessionId) {
+
+        private int size() {
+            return Long.BYTES * 2 + Integer.BYTES * 2 + Long.BYTES * 2 + Integer.BYTES + this.email.length
+                    + Integer.BYTES + this.sessionId.length;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.abakudev.authservice.security;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the concurrent calls for the same key into one: the first caller runs the lookup and the callers arriving
+ * while it is in flight wait for its result instead of running their own. Nothing is kept once the lookup is over, the
+ * next call runs a fresh one, so this is no cache and never serves a result older than the in-flight lookup.
+ * <p>
+ * The waiting callers park on a {@link CompletableFuture}, which does not pin their virtual threads. The result is
+ * shared between the callers and must not be modified. A failure of the lookup is thrown to every caller of the flight.
+ *
+ * @param <K> the type of the lookup key
+ * @param <V> the type of the looked up value
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> lookup) {
+        final CompletableFuture<V> flight = new CompletableFuture<>();
+        final CompletableFuture<V> leader = this.inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return join(leader);
+        }
+        try {
+            final V value = lookup.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key, flight);
+        }
+    }
+
+    int inFlightCount() {
+        return this.inFlight.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // rethrow the failure of the lookup as is, the callers handle it like their own
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.persistence.Snapshotted;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.User;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the users' token epochs ({@link User#getTokenEpoch()}).
+ * <p>
+ * A token is only accepted while the epoch it carries is not older than the current epoch of its user, so revoking
+ * every session of a user is a single row update followed by {@link #advance(Integer, int)}, and checking a token is
+ * a map lookup and an integer comparison. An epoch advanced here wins over a lower epoch read from a loaded user, so a
+ * user entity loaded before a revocation cannot bring the old tokens back. Revocations made through other instances
+ * are picked up from the user loaded for the request.
+ * <p>
+ * Only the epochs the database has not caught up with yet are kept: once a user is loaded with an epoch at least as
+ * high, its entry is dropped and the loaded epoch is used, so the map holds the recent revocations rather than every
+ * user seen.
+ * <p>
+ * The epochs are {@link Snapshotted snapshotted}, restoring older epochs is harmless since the highest epoch wins.
+ */
+@Component
+public class TokenEpochs implements Snapshotted {
+
+    private final Map<Integer, Integer> epochs = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the oldest epoch still accepted for the tokens of the given user.
+     */
+    public int current(AuthenticatedUser user) {
+        return this.current(user.id(), user.tokenEpoch());
+    }
+
+    /**
+     * Returns the oldest epoch still accepted for the tokens of the given user.
+     *
+     * @param userId      the user id
+     * @param loadedEpoch the epoch of the user as just read from the database
+     */
+    public int current(Integer userId, int loadedEpoch) {
+        final Integer known = this.epochs.get(userId);
+        if (known == null) {
+            return loadedEpoch;
+        }
+        if (known > loadedEpoch) {
+            return known;
+        }
+        // the database has caught up, a concurrent advance replaces the value and is kept
+        this.epochs.remove(userId, known);
+        return loadedEpoch;
+    }
+
+    /**
+     * Returns the number of epochs the database has not caught up with yet.
+     */
+    int size() {
+        return this.epochs.size();
+    }
+
+    /**
+     * Records that the tokens of the given user are only accepted from the given epoch on.
+     */
+    public void advance(Integer userId, int epoch) {
+        this.epochs.merge(userId, epoch, Math::max);
+    }
+
+    /**
+     * Tells whether a token carrying the given epoch is still accepted for the given user.
+     */
+    public boolean isCurrent(int tokenEpoch, AuthenticatedUser user) {
+        return tokenEpoch >= this.current(user);
+    }
+
+    @Override
+    public String snapshotName() {
+        return "token-epochs";
+    }
+
+    @Override
+    public int snapshotVersion() {
+        return 1;
+    }
+
+    @Override
+    public ByteBuffer snapshot() {
+        final List<Map.Entry<Integer, Integer>> entries = List.copyOf(this.epochs.entrySet());
+        final ByteBuffer content = ByteBuffer.allocate(Integer.BYTES + entries.size() * Integer.BYTES * 2)
+                .putInt(entries.size());
+        entries.forEach(entry -> content.putInt(entry.getKey()).putInt(entry.getValue()));
+        return content.flip();
+    }
+
+    @Override
+    public void restore(ByteBuffer content, Instant writtenAt) {
+        final int[] pairs = new int[content.getInt() * 2];
+        content.asIntBuffer().get(pairs);
+        for (int i = 0; i < pairs.length; i += 2) {
+            this.advance(pairs[i], pairs[i + 1]);
+        }
+    }
+}
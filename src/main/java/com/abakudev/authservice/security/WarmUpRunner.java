@@ -0,0 +1,144 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Runs the hot paths of the service on synthetic users before it reports ready, so that the first requests after a
+ * deployment do not run them interpreted: issuing and parsing tokens, building the authorities of the principal, and
+ * hashing passwords.
+ *
+ * <p>The runners complete before Spring Boot switches the readiness state to accepting traffic, so the readiness probe
+ * fails until the warm-up is over. The warm-up stops at its time budget even if the rounds are not all done, the
+ * database is not touched.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final String PASSWORD = "warm-up-password";
+
+    private final JwtService jwtService;
+    private final RoleRegistry roleRegistry;
+    private final PasswordEncoder passwordEncoder;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration timeBudget;
+    private final int tokenRounds;
+    private final int passwordRounds;
+
+    @Autowired
+    public WarmUpRunner(JwtService jwtService,
+                        RoleRegistry roleRegistry,
+                        PasswordEncoder passwordEncoder,
+                        @Value("${application.warm-up.enabled:true}") boolean enabled,
+                        @Value("${application.warm-up.time-budget:10s}") Duration timeBudget,
+                        @Value("${application.warm-up.token-rounds:10000}") int tokenRounds,
+                        @Value("${application.warm-up.password-rounds:8}") int passwordRounds) {
+        this(jwtService, roleRegistry, passwordEncoder, Clock.systemUTC(), enabled, timeBudget, tokenRounds,
+                passwordRounds);
+    }
+
+    WarmUpRunner(JwtService jwtService, RoleRegistry roleRegistry, PasswordEncoder passwordEncoder, Clock clock,
+                 boolean enabled, Duration timeBudget, int tokenRounds, int passwordRounds) {
+        this.jwtService = jwtService;
+        this.roleRegistry = roleRegistry;
+        this.passwordEncoder = passwordEncoder;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.timeBudget = timeBudget;
+        this.tokenRounds = tokenRounds;
+        this.passwordRounds = passwordRounds;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!this.enabled) {
+            return;
+        }
+        final Result result = warmUp();
+        if (result.budgetExhausted()) {
+            log.warn("Warm-up stopped at its time budget of {} after {} token rounds and {} password rounds",
+                    this.timeBudget, result.tokenRounds(), result.passwordRounds());
+        } else {
+            log.info("Warm-up took {} ms for {} token rounds and {} password rounds", result.elapsed().toMillis(),
+                    result.tokenRounds(), result.passwordRounds());
+        }
+    }
+
+    Result warmUp() {
+        final Instant start = this.clock.instant();
+        final Instant deadline = start.plus(this.timeBudget);
+        final Role[] roles = Role.values();
+        int tokens = 0;
+        int passwords = 0;
+        String hash = null;
+        while ((tokens < this.tokenRounds || passwords < this.passwordRounds)
+                && this.clock.instant().isBefore(deadline)) {
+            // the password rounds are spread over the token rounds, so that a short budget still warms up both
+            if (passwords < this.passwordRounds
+                    && (long) passwords * this.tokenRounds <= (long) tokens * this.passwordRounds) {
+                hash = passwordRound(hash);
+                passwords++;
+            } else {
+                tokenRound(tokens, roles[tokens % roles.length]);
+                tokens++;
+            }
+        }
+        return new Result(tokens, passwords, Duration.between(start, this.clock.instant()),
+                tokens < this.tokenRounds || passwords < this.passwordRounds);
+    }
+
+    /**
+     * Hashes the password the first time, then matches it against the hash like a login does.
+     */
+    private String passwordRound(String hash) {
+        if (hash == null) {
+            return this.passwordEncoder.encode(PASSWORD);
+        }
+        if (!this.passwordEncoder.matches(PASSWORD, hash)) {
+            throw new IllegalStateException("The password encoder does not match its own hash");
+        }
+        return hash;
+    }
+
+    /**
+     * Issues the tokens of a session and authenticates them like {@link JwtAuthenticationFilter} does.
+     */
+    private void tokenRound(int round, Role role) {
+        final var user = new AuthenticatedUser(-round - 1, "warm-up-" + round + "@warm-up.invalid", "", role.name(), 0);
+        final String sessionId = String.valueOf(round);
+        final String accessToken = this.jwtService.generateToken(user, sessionId);
+        final String refreshToken = this.jwtService.generateRefreshToken(user, sessionId);
+        final Claims claims = this.jwtService.extractAllClaims(accessToken);
+        if (!user.email().equals(claims.getSubject()) || JwtService.epochOf(claims) != user.tokenEpoch()
+                || !this.jwtService.isTokenValid(accessToken, user)
+                || !sessionId.equals(this.jwtService.extractSessionId(refreshToken))) {
+            throw new IllegalStateException("The warm-up token of " + user.email() + " does not verify");
+        }
+        final List<GrantedAuthority> authorities = this.roleRegistry.authoritiesOf(user.role());
+        this.roleRegistry.grantedBits(new UsernamePasswordAuthenticationToken(user, null, authorities));
+    }
+
+    record Result(int tokenRounds, int passwordRounds, Duration elapsed, boolean budgetExhausted) {
+    }
+}
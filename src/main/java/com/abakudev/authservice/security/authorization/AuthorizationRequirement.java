@@ -0,0 +1,48 @@
+package com.abakudev.authservice.security.authorization;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A {@code @PreAuthorize} expression compiled into typed requirements: every clause must be satisfied, and a clause is
+ * satisfied when the user holds one of its authorities. Clauses are bitsets over the authority indexes of the
+ * {@link RoleRegistry}, so a check is one bitset intersection per clause.
+ *
+ * @param clauses the clauses, all of them must be satisfied
+ */
+public record AuthorizationRequirement(List<BitSet> clauses) {
+
+    public static final AuthorizationRequirement NONE = new AuthorizationRequirement(List.of());
+
+    public AuthorizationRequirement {
+        clauses = List.copyOf(clauses);
+    }
+
+    /**
+     * Combines two requirements, e.g. the class-level and the method-level ones of a handler method.
+     *
+     * @param other the other requirement
+     * @return a requirement satisfied when both are
+     */
+    public AuthorizationRequirement and(AuthorizationRequirement other) {
+        var combined = new ArrayList<>(this.clauses);
+        combined.addAll(other.clauses);
+        return new AuthorizationRequirement(combined);
+    }
+
+    /**
+     * Checks the requirement.
+     *
+     * @param granted the authorities held by the user, see {@link RoleRegistry#grantedBits}
+     * @return whether every clause is satisfied
+     */
+    public boolean isSatisfiedBy(BitSet granted) {
+        for (BitSet clause : this.clauses) {
+            if (!clause.intersects(granted)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,71 @@
+package com.abakudev.authservice.security.authorization;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the {@code @PreAuthorize} expressions used in this service into {@link AuthorizationRequirement}s. Only
+ * conjunctions ({@code and}) of {@code hasRole}, {@code hasAnyRole}, {@code hasAuthority} and {@code hasAnyAuthority}
+ * are supported; anything else, as well as an unknown role or authority, is rejected so that a typo fails the startup
+ * instead of silently denying (or granting) access.
+ */
+@RequiredArgsConstructor
+public class PreAuthorizeCompiler {
+
+    private static final Pattern CONJUNCTION = Pattern.compile("\\s+and\\s+|\\s*&&\\s*");
+    private static final Pattern CHECK = Pattern.compile(
+            "\\s*(hasRole|hasAnyRole|hasAuthority|hasAnyAuthority)\\s*\\(\\s*('[^']*'(?:\\s*,\\s*'[^']*')*)\\s*\\)\\s*");
+    private static final Pattern ARGUMENT_SEPARATOR = Pattern.compile("\\s*,\\s*");
+
+    private final RoleRegistry roleRegistry;
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression the {@code @PreAuthorize} value
+     * @return the compiled requirement
+     * @throws IllegalArgumentException if the expression is not supported or references an unknown role or authority
+     */
+    public AuthorizationRequirement compile(String expression) {
+        List<BitSet> clauses = new ArrayList<>();
+        for (String check : CONJUNCTION.split(expression.trim())) {
+            final Matcher matcher = CHECK.matcher(check);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Unsupported @PreAuthorize expression: " + expression);
+            }
+            final BitSet clause = new BitSet();
+            final boolean roleCheck = matcher.group(1).endsWith("Role");
+            for (String quoted : ARGUMENT_SEPARATOR.split(matcher.group(2))) {
+                final String argument = quoted.substring(1, quoted.length() - 1);
+                clause.set(this.roleRegistry.indexOf(roleCheck
+                        ? RoleRegistry.ROLE_PREFIX + requireRole(argument, expression)
+                        : requireAuthority(argument, expression)));
+            }
+            clauses.add(clause);
+        }
+        return new AuthorizationRequirement(clauses);
+    }
+
+    private String requireRole(String name, String expression) {
+        if (!this.roleRegistry.isKnownRole(name)) {
+            throw new IllegalArgumentException("Unknown role '" + name + "' in @PreAuthorize expression: " + expression);
+        }
+        return name;
+    }
+
+    private String requireAuthority(String authority, String expression) {
+        final boolean known = authority.startsWith(RoleRegistry.ROLE_PREFIX)
+                ? this.roleRegistry.isKnownRole(authority.substring(RoleRegistry.ROLE_PREFIX.length()))
+                : this.roleRegistry.isKnownPermission(authority);
+        if (!known) {
+            throw new IllegalArgumentException(
+                    "Unknown authority '" + authority + "' in @PreAuthorize expression: " + expression);
+        }
+        return authority;
+    }
+}
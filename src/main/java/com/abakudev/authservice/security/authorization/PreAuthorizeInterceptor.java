@@ -0,0 +1,36 @@
+package com.abakudev.authservice.security.authorization;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Enforces the compiled {@code @PreAuthorize} requirements of the handler method before it is invoked. Replaces the
+ * method security proxies and their per-call SpEL evaluation; a denial goes through the usual
+ * {@link AccessDeniedException} handling.
+ */
+@Component
+@RequiredArgsConstructor
+public class PreAuthorizeInterceptor implements HandlerInterceptor {
+
+    private final PreAuthorizeRequirements requirements;
+    private final RoleRegistry roleRegistry;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod
+                && !this.requirements.requirementOf(handlerMethod)
+                        .isSatisfiedBy(this.roleRegistry.grantedBits(SecurityContextHolder.getContext()
+                                .getAuthentication()))) {
+            throw new AccessDeniedException("Access Denied");
+        }
+        return true;
+    }
+}
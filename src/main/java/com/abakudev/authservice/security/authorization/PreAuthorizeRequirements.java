@@ -0,0 +1,84 @@
+package com.abakudev.authservice.security.authorization;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The compiled {@code @PreAuthorize} requirements of every request handler method. They are all compiled once the
+ * context is started (and the {@link RoleRegistry} loaded), so that an unsupported expression or an unknown authority
+ * fails the startup, and the {@link PreAuthorizeInterceptor} only does a map lookup and bit mask tests per request.
+ * <p>
+ * A class-level and a method-level annotation are both enforced. The annotation is only supported on controllers: it
+ * is rejected on any other bean, where nothing would enforce it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PreAuthorizeRequirements implements SmartInitializingSingleton {
+
+    private final ApplicationContext applicationContext;
+    private final RoleRegistry roleRegistry;
+    private final Map<Method, AuthorizationRequirement> requirements = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (String beanName : this.applicationContext.getBeanDefinitionNames()) {
+            final Class<?> type = this.applicationContext.getType(beanName);
+            if (type == null) {
+                continue;
+            }
+            final Class<?> userClass = ClassUtils.getUserClass(type);
+            if (!AnnotatedElementUtils.hasAnnotation(userClass, Controller.class) && isAnnotated(userClass)) {
+                throw new IllegalStateException("@PreAuthorize is only enforced on controllers, found on " + userClass);
+            }
+        }
+        this.applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values().forEach(mapping ->
+                mapping.getHandlerMethods().values().forEach(this::requirementOf));
+        log.info("Compiled @PreAuthorize requirements of {} handler methods", this.requirements.size());
+    }
+
+    /**
+     * Returns the requirement of a handler method.
+     *
+     * @param handlerMethod the handler method
+     * @return its requirement, {@link AuthorizationRequirement#NONE} when it is not annotated
+     */
+    public AuthorizationRequirement requirementOf(HandlerMethod handlerMethod) {
+        return this.requirements.computeIfAbsent(handlerMethod.getMethod(),
+                method -> compile(handlerMethod.getBeanType(), method));
+    }
+
+    private AuthorizationRequirement compile(Class<?> beanType, Method method) {
+        final PreAuthorizeCompiler compiler = new PreAuthorizeCompiler(this.roleRegistry);
+        AuthorizationRequirement requirement = AuthorizationRequirement.NONE;
+        final PreAuthorize onClass = AnnotatedElementUtils.findMergedAnnotation(beanType, PreAuthorize.class);
+        if (onClass != null) {
+            requirement = requirement.and(compiler.compile(onClass.value()));
+        }
+        final PreAuthorize onMethod = AnnotatedElementUtils.findMergedAnnotation(method, PreAuthorize.class);
+        if (onMethod != null) {
+            requirement = requirement.and(compiler.compile(onMethod.value()));
+        }
+        return requirement;
+    }
+
+    private static boolean isAnnotated(Class<?> type) {
+        return AnnotatedElementUtils.hasAnnotation(type, PreAuthorize.class)
+                || !MethodIntrospector.selectMethods(type, (MethodIntrospector.MetadataLookup<PreAuthorize>)
+                        method -> AnnotatedElementUtils.findMergedAnnotation(method, PreAuthorize.class)).isEmpty();
+    }
+}
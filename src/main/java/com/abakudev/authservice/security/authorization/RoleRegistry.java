@@ -0,0 +1,181 @@
+package com.abakudev.authservice.security.authorization;
+
+import com.abakudev.authservice.user.Permission;
+import com.abakudev.authservice.user.Role;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the role definitions stored in the database, compiled into one dense permission bitset per role.
+ * <p>
+ * Every authority (a permission, or {@code ROLE_<name>} for the role itself) gets a bit index the first time it is
+ * seen. Indexes are never reused nor reassigned, so the bitsets of the compiled {@code @PreAuthorize} requirements stay
+ * valid across reloads. A reload builds a new immutable {@link Snapshot} and publishes it with a single volatile
+ * write: readers never lock and never see a half-updated set of roles, and authorization checks are a map lookup and a
+ * bitset intersection, without any database access.
+ */
+@Slf4j
+@Component
+public class RoleRegistry {
+
+    public static final String ROLE_PREFIX = "ROLE_";
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Set.of());
+
+    /**
+     * Replaces all the roles.
+     *
+     * @param definitions the permissions of every role, by role name
+     */
+    public void update(Map<String, ? extends Collection<String>> definitions) {
+        Map<String, CompiledRole> roles = new HashMap<>();
+        Set<String> authorities = new HashSet<>();
+        definitions.forEach((name, permissions) -> {
+            final BitSet bits = new BitSet();
+            final List<GrantedAuthority> granted = new ArrayList<>(permissions.size() + 1);
+            for (String permission : new TreeSet<>(permissions)) {
+                bits.set(indexOf(permission));
+                granted.add(new SimpleGrantedAuthority(permission));
+                authorities.add(permission);
+            }
+            bits.set(indexOf(ROLE_PREFIX + name));
+            granted.add(new SimpleGrantedAuthority(ROLE_PREFIX + name));
+            roles.put(name, new CompiledRole(name, bits, List.copyOf(granted)));
+        });
+        this.snapshot = new Snapshot(Map.copyOf(roles), Set.copyOf(authorities));
+        log.info("Loaded {} roles with {} distinct permissions", roles.size(), authorities.size());
+    }
+
+    /**
+     * Returns a role.
+     *
+     * @param name the role name
+     * @return the compiled role, or null if there is no such role
+     */
+    public CompiledRole role(String name) {
+        return name == null ? null : this.snapshot.roles().get(name);
+    }
+
+    public Collection<CompiledRole> roles() {
+        return this.snapshot.roles().values();
+    }
+
+    /**
+     * The authorities of a role, built once per reload.
+     *
+     * @param name the role name
+     * @return the authorities, empty if there is no such role
+     */
+    public List<GrantedAuthority> authoritiesOf(String name) {
+        final CompiledRole role = role(name);
+        return role == null ? List.of() : role.authorities();
+    }
+
+    /**
+     * Whether a role is known, either because it is defined in the database or because it is built in.
+     */
+    public boolean isKnownRole(String name) {
+        return this.snapshot.roles().containsKey(name) || isBuiltInRole(name);
+    }
+
+    /**
+     * Whether a permission is known, either because a role grants it or because it is built in.
+     */
+    public boolean isKnownPermission(String permission) {
+        return this.snapshot.permissions().contains(permission) || isBuiltInPermission(permission);
+    }
+
+    /**
+     * Returns the bit index of an authority, allocating the next one for a new authority.
+     *
+     * @param authority a permission, or {@code ROLE_<name>}
+     * @return its stable bit index
+     */
+    public int indexOf(String authority) {
+        final Integer index = this.indexes.get(authority);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this.indexes) {
+            return this.indexes.computeIfAbsent(authority, a -> this.indexes.size());
+        }
+    }
+
+    /**
+     * The authorities granted to an authentication as a bitset. The returned bitset must not be modified.
+     *
+     * @param authentication the authentication, possibly null
+     * @return the granted authorities
+     */
+    public BitSet grantedBits(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return new BitSet();
+        }
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            final CompiledRole role = role(user.role());
+            return role == null ? new BitSet() : role.bits();
+        }
+        // principals built outside of the JWT filter only carry authority strings
+        final BitSet bits = new BitSet();
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            final String name = authority.getAuthority();
+            final CompiledRole role = name != null && name.startsWith(ROLE_PREFIX)
+                    ? role(name.substring(ROLE_PREFIX.length())) : null;
+            if (role != null) {
+                bits.or(role.bits());
+            }
+            final Integer index = name == null ? null : this.indexes.get(name);
+            if (index != null) {
+                bits.set(index);
+            }
+        }
+        return bits;
+    }
+
+    private static boolean isBuiltInRole(String name) {
+        for (Role role : Role.values()) {
+            if (role.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBuiltInPermission(String permission) {
+        for (Permission builtIn : Permission.values()) {
+            if (builtIn.getName().equals(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A role compiled for authorization checks.
+     *
+     * @param name        the role name
+     * @param bits        the bit indexes of its permissions and of the role itself, must not be modified
+     * @param authorities the same authorities as Spring Security objects
+     */
+    public record CompiledRole(String name, BitSet bits, List<GrantedAuthority> authorities) {
+    }
+
+    private record Snapshot(Map<String, CompiledRole> roles, Set<String> permissions) {
+    }
+}
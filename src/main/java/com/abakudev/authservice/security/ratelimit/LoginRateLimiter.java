@@ -0,0 +1,136 @@
+package com.abakudev.authservice.security.ratelimit;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.user.EmailAddresses;
+import org.apache.logging.log4j.util.Strings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Brute-force throttling for the login endpoint. Failed attempts are counted per email and per client IP address over
+ * a sliding window, and further attempts are refused once either count reaches its limit, before any password hash
+ * or database work is done.
+ * <p>
+ * An attempt is {@link #acquire acquired} before its password hash and {@link #release released} once known, the
+ * attempts in progress counting as failures until then: a parallel burst against one email or from one address cannot
+ * run more hashes than the limit allows.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final int maxFailuresPerEmail;
+    private final int maxFailuresPerIp;
+    private final SlidingWindowCounter failuresByEmail;
+    private final SlidingWindowCounter failuresByIp;
+    private final Map<String, Integer> inProgressByEmail = new ConcurrentHashMap<>();
+    private final Map<String, Integer> inProgressByIp = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LoginRateLimiter(@Value("${application.security.login-rate-limit.enabled:true}") boolean enabled,
+                            @Value("${application.security.login-rate-limit.window:15m}") Duration window,
+                            @Value("${application.security.login-rate-limit.max-failures-per-email:5}")
+                            int maxFailuresPerEmail,
+                            @Value("${application.security.login-rate-limit.max-failures-per-ip:50}")
+                            int maxFailuresPerIp,
+                            @Value("${application.security.login-rate-limit.sketch-width:16384}") int sketchWidth) {
+        this(enabled, window, maxFailuresPerEmail, maxFailuresPerIp, sketchWidth, Clock.systemUTC());
+    }
+
+    LoginRateLimiter(boolean enabled, Duration window, int maxFailuresPerEmail, int maxFailuresPerIp,
+                     int sketchWidth, Clock clock) {
+        this.enabled = enabled;
+        this.maxFailuresPerEmail = maxFailuresPerEmail;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.failuresByEmail = new SlidingWindowCounter(window, sketchWidth, clock);
+        this.failuresByIp = new SlidingWindowCounter(window, sketchWidth, clock);
+    }
+
+    /**
+     * Refuses the attempt when the email or the IP address has too many recent failures, the attempts in progress
+     * included, otherwise counts it as in progress until {@link #release}.
+     *
+     * @param email     the email of the login attempt
+     * @param ipAddress the client IP address, may be {@code null}
+     * @throws BusinessException with {@link BusinessExceptionReason#TOO_MANY_LOGIN_ATTEMPTS}
+     */
+    public void acquire(String email, String ipAddress) {
+        if (!this.enabled) {
+            return;
+        }
+        final String emailKey = Strings.isNotBlank(email) ? EmailAddresses.normalize(email) : null;
+        reserve(this.inProgressByEmail, this.failuresByEmail, emailKey, this.maxFailuresPerEmail);
+        try {
+            reserve(this.inProgressByIp, this.failuresByIp, Strings.isNotBlank(ipAddress) ? ipAddress : null,
+                    this.maxFailuresPerIp);
+        } catch (BusinessException e) {
+            unreserve(this.inProgressByEmail, emailKey);
+            throw e;
+        }
+    }
+
+    /**
+     * Ends an attempt {@link #acquire acquired} before, after its failure has been {@link #recordFailure recorded}
+     * if it failed.
+     *
+     * @param email     the email of the login attempt
+     * @param ipAddress the client IP address, may be {@code null}
+     */
+    public void release(String email, String ipAddress) {
+        if (!this.enabled) {
+            return;
+        }
+        unreserve(this.inProgressByEmail, Strings.isNotBlank(email) ? EmailAddresses.normalize(email) : null);
+        unreserve(this.inProgressByIp, Strings.isNotBlank(ipAddress) ? ipAddress : null);
+    }
+
+    /**
+     * Records a failed attempt for the email and the IP address.
+     *
+     * @param email     the email of the login attempt
+     * @param ipAddress the client IP address, may be {@code null}
+     */
+    public void recordFailure(String email, String ipAddress) {
+        if (!this.enabled) {
+            return;
+        }
+        if (Strings.isNotBlank(email)) {
+            this.failuresByEmail.increment(EmailAddresses.normalize(email));
+        }
+        if (Strings.isNotBlank(ipAddress)) {
+            this.failuresByIp.increment(ipAddress);
+        }
+    }
+
+    private static void reserve(Map<String, Integer> inProgress, SlidingWindowCounter failures, String key,
+                                int maxFailures) {
+        if (key == null) {
+            return;
+        }
+        // the check and the reservation are atomic per key, the exception leaves the count unchanged
+        inProgress.compute(key, (k, count) -> {
+            final int reserved = count == null ? 0 : count;
+            if (failures.estimate(k) + reserved >= maxFailures) {
+                throw BusinessException.of(BusinessExceptionReason.TOO_MANY_LOGIN_ATTEMPTS);
+            }
+            return reserved + 1;
+        });
+    }
+
+    private static void unreserve(Map<String, Integer> inProgress, String key) {
+        if (key != null) {
+            inProgress.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    int inProgress() {
+        return this.inProgressByEmail.size() + this.inProgressByIp.size();
+    }
+}
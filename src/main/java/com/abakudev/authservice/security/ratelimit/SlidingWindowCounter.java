@@ -0,0 +1,166 @@
+package com.abakudev.authservice.security.ratelimit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Approximate, lock-free sliding-window event counter for an unbounded number of keys.
+ *
+ * <p>Each window is a count-min sketch: a fixed {@code depth x width} matrix of atomic counters, so memory does not
+ * grow with the number of distinct keys (emails, IP addresses) and an estimate can only over-count, never
+ * under-count. The sliding window is approximated from the current and the previous fixed window, weighting the
+ * previous one by the fraction of it still covered by the sliding window.
+ *
+ * <p>The rows are indexed by double hashing the two halves of a keyed hash (HMAC-SHA256 under a random key drawn per
+ * counter): keys that share every counter cannot be crafted, so failing on chosen keys cannot lock out another one.
+ */
+public class SlidingWindowCounter {
+
+    private static final int DEPTH = 4;
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+    private static final int KEY_BYTES = 32;
+
+    private final Clock clock;
+    private final SecretKeySpec hashKey;
+    // a Mac is not thread-safe and creating one per key costs more than the hash itself
+    private final ThreadLocal<Mac> hashes;
+    private final long windowMillis;
+    private final int width;
+    private final AtomicReference<Windows> windows;
+
+    /**
+     * Creates a counter.
+     *
+     * @param window the length of the sliding window
+     * @param width  the number of counters per sketch row, rounded up to a power of two
+     * @param clock  the clock used to slide the window
+     */
+    public SlidingWindowCounter(Duration window, int width, Clock clock) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("The window must be positive.");
+        }
+        this.clock = clock;
+        final byte[] key = new byte[KEY_BYTES];
+        new SecureRandom().nextBytes(key);
+        this.hashKey = new SecretKeySpec(key, HASH_ALGORITHM);
+        this.hashes = ThreadLocal.withInitial(this::newMac);
+        this.windowMillis = window.toMillis();
+        this.width = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        long start = alignedStart(clock.millis());
+        this.windows = new AtomicReference<>(new Windows(new Sketch(start - this.windowMillis, this.width),
+                new Sketch(start, this.width)));
+    }
+
+    /**
+     * Records one event for the given key.
+     *
+     * @param key the key
+     * @return the estimated number of events in the sliding window, including this one
+     */
+    public long increment(String key) {
+        long now = this.clock.millis();
+        var current = windowsAt(now);
+        Hash hash = hash(key);
+        int count = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            count = Math.min(count, current.current().counters().incrementAndGet(current.current().index(row, hash)));
+        }
+        return count + previousWeight(current, now, hash);
+    }
+
+    /**
+     * Returns the estimated number of events recorded for the given key in the sliding window.
+     *
+     * @param key the key
+     * @return the estimate, never lower than the actual count
+     */
+    public long estimate(String key) {
+        long now = this.clock.millis();
+        var current = windowsAt(now);
+        Hash hash = hash(key);
+        return current.current().estimate(hash) + previousWeight(current, now, hash);
+    }
+
+    private long previousWeight(Windows current, long now, Hash hash) {
+        long previous = current.previous().estimate(hash);
+        if (previous == 0) {
+            return 0;
+        }
+        long elapsed = Math.max(now - current.current().start(), 0);
+        return (long) Math.ceil(previous * (double) (this.windowMillis - elapsed) / this.windowMillis);
+    }
+
+    private Windows windowsAt(long now) {
+        while (true) {
+            var current = this.windows.get();
+            long start = alignedStart(now);
+            if (current.current().start() >= start) {
+                return current;
+            }
+            var previous = current.current().start() == start - this.windowMillis
+                    ? current.current()
+                    : new Sketch(start - this.windowMillis, this.width);
+            var rotated = new Windows(previous, new Sketch(start, this.width));
+            if (this.windows.compareAndSet(current, rotated)) {
+                return rotated;
+            }
+        }
+    }
+
+    private long alignedStart(long now) {
+        return now - Math.floorMod(now, this.windowMillis);
+    }
+
+    private Hash hash(String key) {
+        final ByteBuffer digest = ByteBuffer.wrap(this.hashes.get().doFinal(key.getBytes(StandardCharsets.UTF_8)));
+        // odd, so that the rows of a key never collapse onto the same counter
+        return new Hash(digest.getLong(), digest.getLong() | 1);
+    }
+
+    private Mac newMac() {
+        try {
+            final Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(this.hashKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            // every Java platform implements HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The two independent halves of the keyed hash of a key, combined by double hashing into one index per row.
+     */
+    private record Hash(long h1, long h2) {
+    }
+
+    private record Windows(Sketch previous, Sketch current) {
+    }
+
+    private record Sketch(long start, AtomicIntegerArray counters, int mask) {
+
+        Sketch(long start, int width) {
+            this(start, new AtomicIntegerArray(DEPTH * width), width - 1);
+        }
+
+        int index(int row, Hash hash) {
+            return row * (this.mask + 1) + (int) ((hash.h1() + row * hash.h2()) & this.mask);
+        }
+
+        long estimate(Hash hash) {
+            int count = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                count = Math.min(count, this.counters.get(index(row, hash)));
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.abakudev.authservice.token;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/users/{userId}/sessions")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Sessions")
+public class AdminSessionController {
+
+    private final SessionService service;
+
+    @Operation(summary = "List the sessions of a user", description = "List the active sessions of a user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Active sessions"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
+    })
+    @GetMapping
+    @PreAuthorize("hasAuthority('admin:read')")
+    public ResponseEntity<List<SessionResponse>> findActive(@PathVariable Integer userId) {
+        return ResponseEntity.ok(this.service.findActive(userId));
+    }
+
+    @Operation(summary = "Revoke a session of a user", description = "Revoke the access and refresh tokens of a session")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Session revoked"),
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+    })
+    @DeleteMapping("/{sessionId}")
+    @PreAuthorize("hasAuthority('admin:update')")
+    public ResponseEntity<Void> revoke(@PathVariable Integer userId, @PathVariable String sessionId) {
+        this.service.revoke(userId, sessionId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.abakudev.authservice.token;
+
+import com.abakudev.authservice.config.EntityCacheEviction;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks when the tokens were last used without writing to the database on every request.
+ *
+ * <p>Uses are recorded in memory, where the uses of a token in between two flushes coalesce into one entry, and are
+ * written by a periodic JDBC batch of {@link #BATCH_SIZE} updates per round trip. {@link Token#getLastSeenAt()} may thus
+ * lag behind by up to one flush interval, {@link #lastSeen(Token)} gives the up-to-date value. Uses recorded when a
+ * flush fails are dropped: the last-seen time is informative only. The written tokens are evicted from the
+ * second-level cache, which does not see these updates.
+ */
+@Slf4j
+@Component
+public class SessionActivity {
+
+    static final int BATCH_SIZE = 500;
+    private static final String UPDATE_LAST_SEEN = "update tokens set last_seen_at = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityCacheEviction cacheEviction;
+    private final Clock clock;
+    private final Map<Integer, Instant> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SessionActivity(JdbcTemplate jdbcTemplate, EntityCacheEviction cacheEviction) {
+        this(jdbcTemplate, cacheEviction, Clock.systemUTC());
+    }
+
+    SessionActivity(JdbcTemplate jdbcTemplate, EntityCacheEviction cacheEviction, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheEviction = cacheEviction;
+        this.clock = clock;
+    }
+
+    /**
+     * Records that the given token has just been used.
+     */
+    public void touch(Integer tokenId) {
+        this.pending.put(tokenId, this.clock.instant());
+    }
+
+    /**
+     * Returns when the token was last used, including the uses not written yet.
+     */
+    public Instant lastSeen(Token token) {
+        return this.pending.getOrDefault(token.getId(), token.getLastSeenAt());
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${application.security.sessions.last-seen-flush-interval:PT10S}")
+    public void flush() {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> updates = new ArrayList<>(this.pending.size());
+        List<Integer> tokenIds = new ArrayList<>(this.pending.size());
+        for (Integer tokenId : this.pending.keySet()) {
+            // a use recorded after the removal stays pending for the next flush
+            final Instant lastSeen = this.pending.remove(tokenId);
+            if (lastSeen != null) {
+                updates.add(new Object[]{Timestamp.from(lastSeen), tokenId});
+                tokenIds.add(tokenId);
+            }
+        }
+        try {
+            for (int from = 0; from < updates.size(); from += BATCH_SIZE) {
+                this.jdbcTemplate.batchUpdate(UPDATE_LAST_SEEN,
+                        updates.subList(from, Math.min(from + BATCH_SIZE, updates.size())));
+            }
+            this.cacheEviction.evictTokens(tokenIds);
+            log.debug("Wrote the last use of {} tokens", updates.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not write the last use of {} tokens: {}", updates.size(), e.getMessage());
+        }
+    }
+
+    int pendingCount() {
+        return this.pending.size();
+    }
+}
@@ -0,0 +1,23 @@
+package com.abakudev.authservice.token;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+/**
+ * An active login session.
+ *
+ * @param id         the session id, to revoke the session
+ * @param device     the user agent of the client that opened the session
+ * @param ipAddress  the IP address the session was opened from
+ * @param createdAt  when the session was opened
+ * @param lastSeenAt when the session was last used, {@code null} if never used since the last refresh
+ * @param expiresAt  when the refresh token of the session expires
+ */
+public record SessionResponse(String id,
+                              String device,
+                              @JsonProperty("ip_address") String ipAddress,
+                              @JsonProperty("created_at") Instant createdAt,
+                              @JsonProperty("last_seen_at") Instant lastSeenAt,
+                              @JsonProperty("expires_at") Instant expiresAt) {
+}
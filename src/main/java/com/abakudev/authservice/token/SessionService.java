@@ -0,0 +1,98 @@
+package com.abakudev.authservice.token;
+
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.persistence.ReadReplicas;
+import com.abakudev.authservice.security.DegradedValidation;
+import com.abakudev.authservice.security.ReferenceTokens;
+import com.abakudev.authservice.security.TokenEpochs;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Listing and revocation of the login sessions. A session is opened by a login or a registration and lives as long as
+ * its refresh token; its current access token row carries the session details.
+ */
+@Service
+@RequiredArgsConstructor
+public class SessionService {
+
+    private final TokenRepository tokenRepository;
+    private final UserRepository userRepository;
+    private final TokenEpochs tokenEpochs;
+    private final SessionActivity sessionActivity;
+    private final EntityCacheEviction cacheEviction;
+    private final DegradedValidation degradedValidation;
+    private final ReferenceTokens referenceTokens;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadReplicas readReplicas;
+
+    public List<SessionResponse> findActive(Principal connectedUser) {
+        final AuthenticatedUser user = connectedUserOf(connectedUser);
+        return this.findActive(user.id(), this.tokenEpochs.current(user));
+    }
+
+    public List<SessionResponse> findActive(Integer userId) {
+        final int epoch = this.userRepository.findTokenEpoch(userId)
+                .orElseThrow(() -> BusinessException.of(BusinessExceptionReason.USER_NOT_FOUND));
+        return this.findActive(userId, this.tokenEpochs.current(userId, epoch));
+    }
+
+    public void revoke(Principal connectedUser, String sessionId) {
+        final AuthenticatedUser user = connectedUserOf(connectedUser);
+        this.revokeSession(user.id(), sessionId);
+        this.readReplicas.wrote(user.email());
+    }
+
+    /**
+     * Revokes the access token and the refresh token of a session of the given user.
+     */
+    public void revoke(Integer userId, String sessionId) {
+        this.revokeSession(userId, sessionId);
+        // the tokens of the user are read from the primary until the replicas have replayed the revocation
+        this.userRepository.findEmail(userId).ifPresent(this.readReplicas::wrote);
+    }
+
+    /**
+     * Revokes the tokens of the session. They are updated one by one rather than by a bulk update, which would make
+     * Hibernate empty the whole token regions of the second-level cache: only the revoked tokens are evicted.
+     */
+    private void revokeSession(Integer userId, String sessionId) {
+        final List<Token> revoked = this.transactionTemplate.execute(status -> {
+            final List<Token> session = this.tokenRepository.findActiveBySession(userId, sessionId);
+            session.forEach(token -> {
+                token.setRevoked(true);
+                token.setExpired(true);
+            });
+            return this.tokenRepository.saveAll(session);
+        });
+        if (revoked.isEmpty()) {
+            throw BusinessException.of(BusinessExceptionReason.SESSION_NOT_FOUND);
+        }
+        this.cacheEviction.evictTokens(revoked.stream().map(Token::getId).toList());
+        this.cacheEviction.evictTokenValues(revoked.stream().map(Token::getTokenValue).toList());
+        this.degradedValidation.revokeSession(sessionId);
+        revoked.forEach(token -> this.referenceTokens.revoke(token.getTokenValue()));
+    }
+
+    private List<SessionResponse> findActive(Integer userId, int epoch) {
+        return this.tokenRepository.findActiveSessions(userId, epoch, Instant.now())
+                .stream()
+                .map(token -> new SessionResponse(token.getSessionId(), token.getDevice(), token.getIpAddress(),
+                        token.getCreatedAt(), this.sessionActivity.lastSeen(token), token.getExpiresAt()))
+                .toList();
+    }
+
+    private static AuthenticatedUser connectedUserOf(Principal connectedUser) {
+        return (AuthenticatedUser) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+    }
+}
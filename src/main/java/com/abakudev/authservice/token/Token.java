@@ -1,6 +1,7 @@
 package com.abakudev.authservice.token;
 
 import com.abakudev.authservice.user.User;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -9,27 +10,48 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
+import java.time.Instant;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "tokens")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Token.CACHE_REGION)
+@NaturalIdCache(region = Token.VALUE_CACHE_REGION)
+@Table(name = "tokens", indexes = @Index(name = "idx_tokens_user_active", columnList = "user_id, revoked, expired"))
 public class Token {
 
+    public static final int TOKEN_VALUE_LENGTH = 1000;
+    public static final int SESSION_ID_LENGTH = 36;
+    public static final String CACHE_REGION = "tokens";
+    public static final String VALUE_CACHE_REGION = "tokens-by-value";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Integer id;
 
-    @Column(unique = true)
+    /**
+     * The issued JWT or reference token handle, looked up through {@link TokenRepository#findByTokenValue(String)}.
+     */
+    @NaturalId
+    @Column(length = TOKEN_VALUE_LENGTH)
     private String tokenValue;
 
     @Enumerated(EnumType.STRING)
@@ -41,5 +63,45 @@ public class Token {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private User user;
+
+    /**
+     * Login session the token belongs to, shared by the access tokens that replace each other on refresh.
+     */
+    @Column(length = SESSION_ID_LENGTH)
+    private String sessionId;
+
+    /**
+     * User agent of the client that opened the session.
+     */
+    private String device;
+
+    private String ipAddress;
+
+    /**
+     * {@link User#getTokenEpoch() Token epoch} of the user when the token was issued.
+     */
+    private int epoch;
+
+    /**
+     * When the session was opened, kept across refreshes.
+     */
+    private Instant createdAt;
+
+    /**
+     * When the refresh token of the session expires, kept across refreshes.
+     */
+    private Instant expiresAt;
+
+    /**
+     * When the access token expires, only set for the reference tokens: a JWT carries its own expiration.
+     */
+    private Instant accessExpiresAt;
+
+    /**
+     * Last time the token was used, written in batches by {@link SessionActivity} so it may lag behind a little.
+     */
+    private Instant lastSeenAt;
 }
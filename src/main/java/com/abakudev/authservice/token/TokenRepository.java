@@ -1,19 +1,43 @@
 package com.abakudev.authservice.token;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface TokenRepository extends JpaRepository<Token, Integer> {
+public interface TokenRepository extends JpaRepository<Token, Integer>, TokenValueLookup {
 
-    @Query(value = "select t from Token t "
-            + "inner join User u on t.user.id = u.id "
-            + "where u.id = :id and (t.expired = false or t.revoked = false)")
-    List<Token> findAllValidTokenByUser(Integer id);
+    /**
+     * Lists the sessions of the user that can still be used, one token per session, most recently opened first.
+     * Served by the {@code idx_tokens_user_active} index.
+     */
+    @Query("select t from Token t where t.user.id = :userId and t.revoked = false and t.expired = false "
+            + "and t.expiresAt > :now and t.epoch >= :epoch order by t.createdAt desc")
+    List<Token> findActiveSessions(Integer userId, int epoch, Instant now);
 
-    Optional<Token> findByTokenValue(String token);
+    /**
+     * Looks up the row of a reference token with its user, whose email the handle does not carry.
+     */
+    @Query("select t from Token t join fetch t.user where t.tokenValue = :tokenValue "
+            + "and t.revoked = false and t.expired = false")
+    Optional<Token> findActiveWithUser(String tokenValue);
+
+    @Query("select t from Token t where t.user.id = :userId and t.sessionId = :sessionId "
+            + "and t.revoked = false and t.expired = false")
+    List<Token> findActiveBySession(Integer userId, String sessionId);
+
+    /**
+     * Locks the active tokens of the session until the end of the transaction. A transaction waiting on the lock reads
+     * the rows again once it gets it, and no longer finds the tokens revoked in the meantime.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Token t where t.user.id = :userId and t.sessionId = :sessionId "
+            + "and t.revoked = false and t.expired = false")
+    List<Token> lockActiveBySession(Integer userId, String sessionId);
 }
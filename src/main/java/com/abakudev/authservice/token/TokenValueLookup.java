@@ -0,0 +1,12 @@
+package com.abakudev.authservice.token;
+
+import java.util.Optional;
+
+/**
+ * Looks the tokens up by their natural id rather than by a query, so that the lookup is served from the
+ * second-level cache when it is enabled.
+ */
+public interface TokenValueLookup {
+
+    Optional<Token> findByTokenValue(String tokenValue);
+}
@@ -0,0 +1,20 @@
+package com.abakudev.authservice.token;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+class TokenValueLookupImpl implements TokenValueLookup {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Token> findByTokenValue(String tokenValue) {
+        return this.entityManager.unwrap(Session.class).bySimpleNaturalId(Token.class).loadOptional(tokenValue);
+    }
+}
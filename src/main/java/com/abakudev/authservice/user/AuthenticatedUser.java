@@ -0,0 +1,70 @@
+package com.abakudev.authservice.user;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable principal of an authenticated request, holding only what authentication needs. Loaded by the
+ * {@link UserRepository#findAuthenticatedUserByEmail(String)} projection, so that the {@link User} entity and its
+ * associations are only loaded where they are modified.
+ *
+ * @param id         the user id
+ * @param email      the normalized email, used as username
+ * @param password   the password hash
+ * @param role       the name of the {@link RoleDefinition} of the user
+ * @param tokenEpoch the {@link User#getTokenEpoch() token epoch} of the user when loaded
+ */
+public record AuthenticatedUser(Integer id, String email, String password, String role, int tokenEpoch)
+        implements UserDetails {
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getPassword(), user.getRole(),
+                user.getTokenEpoch());
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        // the permissions of the role are resolved by RoleRegistry, which reflects the current role definitions
+        return List.of(new SimpleGrantedAuthority("ROLE_" + this.role));
+    }
+
+    @Override
+    public String getPassword() {
+        return this.password;
+    }
+
+    @Override
+    public String getUsername() {
+        return this.email;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        // never print the password hash
+        return "AuthenticatedUser[id=" + this.id + ", email=" + this.email + ", role=" + this.role + "]";
+    }
+}
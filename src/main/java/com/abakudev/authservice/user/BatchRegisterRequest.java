@@ -0,0 +1,21 @@
+package com.abakudev.authservice.user;
+
+import com.abakudev.authservice.auth.request.RegisterRequest;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Users to register in bulk. They are validated one by one by {@link UserImportService}: an invalid user is skipped and
+ * reported, the others are still registered.
+ * <p>
+ * The passwords are hashed while the request waits, at a few tens of hashes per second on the default hashing pool, so
+ * a request carries at most {@link #MAX_USERS} users to answer within the usual proxy and client timeouts; larger
+ * onboardings are split into several requests.
+ */
+public record BatchRegisterRequest(@NotEmpty @Size(max = BatchRegisterRequest.MAX_USERS)
+                                   List<RegisterRequest> users) {
+
+    public static final int MAX_USERS = 500;
+}
@@ -0,0 +1,18 @@
+package com.abakudev.authservice.user;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk registration.
+ *
+ * @param created       the number of users created
+ * @param alreadyExists the normalized emails that were skipped because they are already registered or repeated in the
+ *                      request
+ * @param invalid       the positions in the request of the users that were skipped because they are not valid
+ */
+public record BatchRegisterResponse(int created,
+                                    @JsonProperty("already_exists") List<String> alreadyExists,
+                                    List<Integer> invalid) {
+}
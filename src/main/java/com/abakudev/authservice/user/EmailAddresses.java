@@ -0,0 +1,17 @@
+package com.abakudev.authservice.user;
+
+import java.util.Locale;
+
+/**
+ * Canonical form of the email addresses used as login identifiers. Emails are stored, indexed and looked up in this
+ * form, so that {@code User@Mail.com} and {@code user@mail.com} are the same account.
+ */
+public final class EmailAddresses {
+
+    private EmailAddresses() {
+    }
+
+    public static String normalize(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
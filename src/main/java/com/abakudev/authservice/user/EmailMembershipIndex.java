@@ -0,0 +1,231 @@
+package com.abakudev.authservice.user;
+
+import com.abakudev.authservice.persistence.Snapshotted;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * In-memory bloom filter of the registered emails, answering "not a user" from its bits alone, without a query.
+ *
+ * <p>The filter never gives false negatives for emails it has seen; a positive answer only means "maybe" and has to be
+ * confirmed by a query. Until the initial load from the database has completed, and whenever the index is disabled,
+ * every email is reported as possibly registered. The users registered through this instance are added as they
+ * register, the ones registered through other instances are picked up by a periodic catch-up on
+ * {@link User#getCreatedAt()} (indexed), so an instance may refuse such a user for at most one refresh interval. The
+ * catch-up never runs on the request path: a spray of unknown emails costs no query, and a miss takes no longer than
+ * the wait that hides it.
+ *
+ * <p>The filter is {@link Snapshotted snapshotted}: a restarted instance restores it and only loads the users created
+ * since the snapshot, instead of every email. A snapshot must only be restored against the database it was taken from.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class EmailMembershipIndex implements ApplicationRunner, Snapshotted {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_2 = 0xc4ceb9fe1a85ec53L;
+    private static final int MIX_SHIFT = 33;
+    private static final int WORD_SHIFT = 6;
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+    private static final int SNAPSHOT_HEADER_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final boolean enabled;
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashFunctions;
+
+    private volatile boolean ready;
+    // set before the initial load when restored from a snapshot
+    private volatile Instant loadedUntil;
+
+    @Autowired
+    public EmailMembershipIndex(UserRepository userRepository,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${application.security.email-index.enabled:true}") boolean enabled,
+                                @Value("${application.security.email-index.expected-users:1000000}") long expectedUsers,
+                                @Value("${application.security.email-index.false-positive-rate:0.01}")
+                                double falsePositiveRate) {
+        this(userRepository, transactionTemplate, Clock.systemUTC(), enabled, expectedUsers, falsePositiveRate);
+    }
+
+    EmailMembershipIndex(UserRepository userRepository, TransactionTemplate transactionTemplate, Clock clock,
+                         boolean enabled, long expectedUsers, double falsePositiveRate) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.enabled = enabled;
+        double ln2 = Math.log(2);
+        long bitsNeeded = (long) Math.ceil(-expectedUsers * Math.log(falsePositiveRate) / (ln2 * ln2));
+        this.bitCount = Math.max(Long.SIZE, bitsNeeded);
+        this.hashFunctions = Math.max(1, (int) Math.round((double) this.bitCount / expectedUsers * ln2));
+        this.bits = new AtomicLongArray((int) ((this.bitCount + Long.SIZE - 1) / Long.SIZE));
+    }
+
+    /**
+     * Loads every registered email. Runs before the other application runners so that seeded users are indexed too.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!this.enabled) {
+            return;
+        }
+        Instant start = this.clock.instant();
+        if (this.loadedUntil != null) {
+            List<String> created = this.userRepository.findEmailsCreatedSince(this.loadedUntil);
+            created.forEach(this::add);
+            this.loadedUntil = start.minus(CLOCK_SKEW);
+            this.ready = true;
+            log.info("Email membership index restored from its snapshot, caught up with {} users in {} ms",
+                    created.size(), Duration.between(start, this.clock.instant()).toMillis());
+            return;
+        }
+        long[] loaded = {0};
+        this.transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> emails = this.userRepository.streamAllEmails()) {
+                emails.forEach(email -> {
+                    add(email);
+                    loaded[0]++;
+                });
+            }
+        });
+        this.loadedUntil = start.minus(CLOCK_SKEW);
+        this.ready = true;
+        log.info("Email membership index loaded {} users in {} ms ({} bits, {} hash functions)", loaded[0],
+                Duration.between(start, this.clock.instant()).toMillis(), this.bitCount, this.hashFunctions);
+    }
+
+    /**
+     * Adds the users created on any instance since the last load.
+     */
+    @Scheduled(fixedDelayString = "${application.security.email-index.refresh-interval:PT10S}")
+    public void refresh() {
+        if (!this.ready) {
+            return;
+        }
+        Instant start = this.clock.instant();
+        this.userRepository.findEmailsCreatedSince(this.loadedUntil).forEach(this::add);
+        this.loadedUntil = start.minus(CLOCK_SKEW);
+    }
+
+    public void add(String email) {
+        long hash = hash(email);
+        for (int i = 0; i < this.hashFunctions; i++) {
+            long bit = bitIndex(hash, i);
+            int word = (int) (bit >>> WORD_SHIFT);
+            long mask = 1L << bit;
+            if ((this.bits.get(word) & mask) == 0) {
+                this.bits.accumulateAndGet(word, mask, (current, m) -> current | m);
+            }
+        }
+    }
+
+    /**
+     * Tells whether the email may belong to a registered user.
+     *
+     * @param email the email
+     * @return {@code false} only if the email was not registered as of the last catch-up
+     */
+    public boolean mightContain(String email) {
+        if (!this.ready) {
+            return true;
+        }
+        long hash = hash(email);
+        for (int i = 0; i < this.hashFunctions; i++) {
+            long bit = bitIndex(hash, i);
+            if ((this.bits.get((int) (bit >>> WORD_SHIFT)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    @Override
+    public String snapshotName() {
+        return "email-index";
+    }
+
+    @Override
+    public int snapshotVersion() {
+        return 1;
+    }
+
+    @Override
+    public ByteBuffer snapshot() {
+        if (!this.ready) {
+            return null;
+        }
+        // read first: the emails of the users created before it are already in the bits copied after it
+        final Instant until = this.loadedUntil;
+        final ByteBuffer content = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES + this.bits.length() * Long.BYTES)
+                .putLong(this.bitCount)
+                .putInt(this.hashFunctions)
+                .putLong(until.toEpochMilli());
+        for (int i = 0; i < this.bits.length(); i++) {
+            content.putLong(this.bits.get(i));
+        }
+        return content.flip();
+    }
+
+    @Override
+    public void restore(ByteBuffer content, Instant writtenAt) {
+        if (!this.enabled) {
+            return;
+        }
+        if (content.getLong() != this.bitCount || content.getInt() != this.hashFunctions) {
+            throw new IllegalStateException("the index was sized for other expected-users or false-positive-rate");
+        }
+        final Instant until = Instant.ofEpochMilli(content.getLong());
+        final long[] words = new long[this.bits.length()];
+        content.asLongBuffer().get(words);
+        for (int i = 0; i < words.length; i++) {
+            this.bits.accumulateAndGet(i, words[i], (current, restored) -> current | restored);
+        }
+        this.loadedUntil = until;
+    }
+
+    private long bitIndex(long hash, int function) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> Integer.SIZE);
+        return Math.floorMod(h1 + (long) function * h2, this.bitCount);
+    }
+
+    private static long hash(String email) {
+        String key = EmailAddresses.normalize(email);
+        long h = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= FNV_PRIME;
+        }
+        h ^= h >>> MIX_SHIFT;
+        h *= MIX_1;
+        h ^= h >>> MIX_SHIFT;
+        h *= MIX_2;
+        return h ^ (h >>> MIX_SHIFT);
+    }
+}
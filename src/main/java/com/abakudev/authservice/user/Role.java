@@ -2,13 +2,12 @@ package com.abakudev.authservice.user;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-
 import java.util.Collections;
-import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+/**
+ * The built-in roles, seeded as {@link RoleDefinition}s on the first start. Roles are then managed in the database.
+ */
 @RequiredArgsConstructor
 public enum Role {
 
@@ -36,13 +35,4 @@ public enum Role {
 
     @Getter
     private final Set<Permission> permissions;
-
-    public List<SimpleGrantedAuthority> getAuthorities() {
-        var authorities = getPermissions()
-                .stream()
-                .map(permission -> new SimpleGrantedAuthority(permission.getName()))
-                .collect(Collectors.toList());
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + this.name()));
-        return authorities;
-    }
 }
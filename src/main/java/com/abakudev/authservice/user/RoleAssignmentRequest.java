@@ -0,0 +1,6 @@
+package com.abakudev.authservice.user;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RoleAssignmentRequest(@NotBlank String role) {
+}
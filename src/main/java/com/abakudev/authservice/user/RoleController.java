@@ -0,0 +1,79 @@
+package com.abakudev.authservice.user;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@Validated
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Roles")
+public class RoleController {
+
+    private static final String ROLE_NAME_PATTERN = "[A-Z][A-Z0-9_]*";
+
+    private final RoleDefinitionService service;
+
+    @Operation(summary = "List roles", description = "List the roles and the permissions they grant")
+    @GetMapping("/roles")
+    @PreAuthorize("hasAuthority('admin:read')")
+    public ResponseEntity<List<RoleDefinitionResponse>> findAll() {
+        return ResponseEntity.ok(this.service.findAll());
+    }
+
+    @Operation(summary = "Create or update a role", description = "Create a role or replace its permissions")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Role saved"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+    })
+    @PutMapping("/roles/{name}")
+    @PreAuthorize("hasAuthority('admin:update')")
+    public ResponseEntity<RoleDefinitionResponse> save(@PathVariable @Pattern(regexp = ROLE_NAME_PATTERN) String name,
+                                                       @Valid @RequestBody RoleDefinitionRequest request) {
+        return ResponseEntity.ok(this.service.save(name, request));
+    }
+
+    @Operation(summary = "Delete a role", description = "Delete a role that is not assigned to any user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Role deleted"),
+            @ApiResponse(responseCode = "404", description = "Role not found"),
+            @ApiResponse(responseCode = "409", description = "Role assigned to users"),
+    })
+    @DeleteMapping("/roles/{name}")
+    @PreAuthorize("hasAuthority('admin:delete')")
+    public ResponseEntity<Void> delete(@PathVariable String name) {
+        this.service.delete(name);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Assign a role", description = "Assign a role to a user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Role assigned"),
+            @ApiResponse(responseCode = "400", description = "Unknown role"),
+            @ApiResponse(responseCode = "404", description = "User not found"),
+    })
+    @PutMapping("/users/{userId}/role")
+    @PreAuthorize("hasAuthority('admin:update')")
+    public ResponseEntity<Void> assign(@PathVariable Integer userId, @Valid @RequestBody RoleAssignmentRequest request) {
+        this.service.assign(userId, request);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.abakudev.authservice.user;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RoleDefinitionRepository extends JpaRepository<RoleDefinition, Integer> {
+
+    Optional<RoleDefinition> findByName(String name);
+
+    @Query("select distinct r from RoleDefinition r left join fetch r.permissions")
+    List<RoleDefinition> findAllWithPermissions();
+}
@@ -0,0 +1,14 @@
+package com.abakudev.authservice.user;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.Set;
+
+/**
+ * The permissions granted by a role, e.g. {@code admin:read}.
+ */
+public record RoleDefinitionRequest(@NotNull Set<@Pattern(regexp = RoleDefinitionRequest.PERMISSION_PATTERN) String> permissions) {
+
+    public static final String PERMISSION_PATTERN = "[a-z][a-z0-9_-]*:[a-z][a-z0-9_-]*";
+}
@@ -0,0 +1,11 @@
+package com.abakudev.authservice.user;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+public record RoleDefinitionResponse(String name, Set<String> permissions) {
+
+    static RoleDefinitionResponse of(RoleDefinition role) {
+        return new RoleDefinitionResponse(role.getName(), new TreeSet<>(role.getPermissions()));
+    }
+}
@@ -0,0 +1,115 @@
+package com.abakudev.authservice.user;
+
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Management of the role definitions. Every change is followed by a reload of the {@link RoleRegistry} once committed,
+ * and the registry is also reloaded periodically to pick up the changes made through other instances.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RoleDefinitionService implements InitializingBean {
+
+    private final RoleDefinitionRepository repository;
+    private final UserRepository userRepository;
+    private final RoleRegistry roleRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityCacheEviction cacheEviction;
+
+    @Override
+    public void afterPropertiesSet() {
+        seedBuiltInRoles();
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.roles.refresh-interval:PT30S}",
+            initialDelayString = "${application.security.roles.refresh-interval:PT30S}")
+    public void reload() {
+        final List<RoleDefinition> definitions = this.transactionTemplate.execute(
+                status -> this.repository.findAllWithPermissions());
+        this.roleRegistry.update(definitions.stream()
+                .collect(Collectors.toMap(RoleDefinition::getName, RoleDefinition::getPermissions)));
+    }
+
+    public List<RoleDefinitionResponse> findAll() {
+        return this.repository.findAllWithPermissions().stream()
+                .map(RoleDefinitionResponse::of)
+                .toList();
+    }
+
+    /**
+     * Creates a role or replaces its permissions.
+     */
+    public RoleDefinitionResponse save(String name, RoleDefinitionRequest request) {
+        final RoleDefinition saved = this.transactionTemplate.execute(status -> {
+            final RoleDefinition role = this.repository.findByName(name)
+                    .orElseGet(() -> RoleDefinition.builder().name(name).build());
+            role.setPermissions(new HashSet<>(request.permissions()));
+            return this.repository.saveAndFlush(role);
+        });
+        reload();
+        return RoleDefinitionResponse.of(saved);
+    }
+
+    /**
+     * Deletes a role that is not assigned to any user.
+     */
+    public void delete(String name) {
+        this.transactionTemplate.executeWithoutResult(status -> {
+            final RoleDefinition role = this.repository.findByName(name)
+                    .orElseThrow(() -> BusinessException.of(BusinessExceptionReason.ROLE_NOT_FOUND));
+            if (this.userRepository.existsByRole(name)) {
+                throw BusinessException.of(BusinessExceptionReason.ROLE_IN_USE);
+            }
+            this.repository.delete(role);
+        });
+        reload();
+    }
+
+    public void assign(Integer userId, RoleAssignmentRequest request) {
+        if (this.roleRegistry.role(request.role()) == null) {
+            throw BusinessException.of(BusinessExceptionReason.UNKNOWN_ROLE);
+        }
+        final User user = this.userRepository.findById(userId)
+                .orElseThrow(() -> BusinessException.of(BusinessExceptionReason.USER_NOT_FOUND));
+        user.setRole(request.role());
+        this.userRepository.save(user);
+        this.cacheEviction.evictUser(userId);
+    }
+
+    private void seedBuiltInRoles() {
+        if (this.repository.count() > 0) {
+            return;
+        }
+        final Map<String, RoleDefinition> builtIn = Arrays.stream(Role.values())
+                .collect(Collectors.toMap(Role::name, role -> RoleDefinition.builder()
+                        .name(role.name())
+                        .permissions(role.getPermissions().stream()
+                                .map(Permission::getName)
+                                .collect(Collectors.toCollection(HashSet::new)))
+                        .build()));
+        try {
+            this.repository.saveAllAndFlush(builtIn.values());
+            log.info("Seeded built-in roles {}", builtIn.keySet());
+        } catch (DataIntegrityViolationException e) {
+            log.info("Built-in roles already seeded by another instance");
+        }
+    }
+}
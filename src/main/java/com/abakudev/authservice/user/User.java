@@ -1,32 +1,48 @@
 package com.abakudev.authservice.user;
 
 import com.abakudev.authservice.token.Token;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.EnumType;
-import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
-import java.util.Collection;
+import java.time.Instant;
 import java.util.List;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CreationTimestamp;
 
+/**
+ * A registered user. Authentication works on the {@link AuthenticatedUser} projection, the entity is only loaded to
+ * be modified.
+ */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "users")
-public class User implements UserDetails {
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@Table(name = "users", uniqueConstraints = @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email"),
+        indexes = @Index(name = "idx_users_created_at", columnList = "created_at"))
+public class User {
+
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+    public static final String CACHE_REGION = "users";
 
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -34,47 +50,32 @@ public class User implements UserDetails {
 
     private String firstname;
     private String lastname;
+    /**
+     * Login identifier, always stored in the form given by {@link EmailAddresses#normalize(String)}.
+     */
+    @Column(nullable = false)
     private String email;
+    @ToString.Exclude
     private String password;
 
-    @Enumerated(EnumType.STRING)
-    private Role role;
+    /**
+     * Name of a {@link RoleDefinition}.
+     */
+    private String role;
+
+    /**
+     * Security epoch carried by the issued tokens, tokens of an older epoch are rejected. Only ever changed through
+     * the {@link UserRepository} updates, so that saving a stale entity cannot bring it back.
+     */
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    private int tokenEpoch;
 
     @OneToMany(mappedBy = "user")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Token> tokens;
 
-    @Override
-    public Collection<? extends GrantedAuthority> getAuthorities() {
-        return this.role.getAuthorities();
-    }
-
-    @Override
-    public String getPassword() {
-        return this.password;
-    }
-
-    @Override
-    public String getUsername() {
-        return this.email;
-    }
-
-    @Override
-    public boolean isAccountNonExpired() {
-        return true;
-    }
-
-    @Override
-    public boolean isAccountNonLocked() {
-        return true;
-    }
-
-    @Override
-    public boolean isCredentialsNonExpired() {
-        return true;
-    }
-
-    @Override
-    public boolean isEnabled() {
-        return true;
-    }
+    @CreationTimestamp
+    private Instant createdAt;
 }
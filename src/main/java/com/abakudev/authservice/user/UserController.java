@@ -1,17 +1,27 @@
 package com.abakudev.authservice.user;
 
+import com.abakudev.authservice.token.SessionResponse;
+import com.abakudev.authservice.token.SessionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.security.Principal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -20,11 +30,14 @@ import java.security.Principal;
 public class UserController {
 
     private final UserService service;
+    private final UserImportService importService;
+    private final SessionService sessionService;
 
     @Operation(summary = "Change password for connected user", description = "Change password for connected user")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Password changed successfully"),
             @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "409", description = "Password changed or sessions revoked in the meantime"),
     })
     @PatchMapping("/change-password")
     public ResponseEntity<Void> changePassword(@RequestBody ChangePasswordRequest request,
@@ -32,4 +45,49 @@ public class UserController {
         this.service.changePassword(request, connectedUser);
         return ResponseEntity.ok().build();
     }
+
+    @Operation(summary = "List sessions", description = "List the active sessions of the connected user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Active sessions"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+    })
+    @GetMapping("/sessions")
+    public ResponseEntity<List<SessionResponse>> findSessions(Principal connectedUser) {
+        return ResponseEntity.ok(this.sessionService.findActive(connectedUser));
+    }
+
+    @Operation(summary = "Revoke a session", description = "Revoke the access and refresh tokens of a session of the connected user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Session revoked"),
+            @ApiResponse(responseCode = "404", description = "Session not found"),
+    })
+    @DeleteMapping("/sessions/{sessionId}")
+    public ResponseEntity<Void> revokeSession(@PathVariable String sessionId, Principal connectedUser) {
+        this.sessionService.revoke(connectedUser, sessionId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Log out everywhere", description = "Revoke every access and refresh token of the connected user")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Sessions revoked"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+    })
+    @DeleteMapping("/sessions")
+    public ResponseEntity<Void> revokeAllSessions(Principal connectedUser) {
+        this.service.revokeAllSessions(connectedUser);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Register users in bulk", description = "Create up to " + BatchRegisterRequest.MAX_USERS
+            + " users at once, skipping and reporting the emails already registered and the invalid users")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Users created"),
+            @ApiResponse(responseCode = "400", description = "Bad request"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+    })
+    @PostMapping("/batch")
+    @PreAuthorize("hasAuthority('admin:create')")
+    public ResponseEntity<BatchRegisterResponse> registerBatch(@Valid @RequestBody BatchRegisterRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(this.importService.importUsers(request.users()));
+    }
 }
@@ -0,0 +1,160 @@
+package com.abakudev.authservice.user;
+
+import com.abakudev.authservice.auth.request.RegisterRequest;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bulk registration for onboarding jobs. Passwords are hashed on a dedicated pool of {@code hashing-threads}, users are
+ * inserted in JDBC batches (see {@code hibernate.jdbc.batch_size}) one transaction per chunk, and no tokens are issued.
+ * <p>
+ * An import is a single request for the concurrency limit of the instance, its hashes run on the dedicated pool rather
+ * than the common pool, so that however many users are imported, and however many imports run, they never take more
+ * than {@code hashing-threads} cores from the other requests.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final EmailMembershipIndex emailIndex;
+    private final RoleRegistry roleRegistry;
+    private final Validator validator;
+    private final ExecutorService hashingExecutor;
+
+    @Autowired
+    public UserImportService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                             TransactionTemplate transactionTemplate, EmailMembershipIndex emailIndex,
+                             RoleRegistry roleRegistry, Validator validator,
+                             @Value("${application.user-import.hashing-threads:2}") int hashingThreads) {
+        this(userRepository, passwordEncoder, transactionTemplate, emailIndex, roleRegistry, validator,
+                Executors.newFixedThreadPool(hashingThreads,
+                        Thread.ofPlatform().name("user-import-hashing-", 0).daemon().factory()));
+    }
+
+    UserImportService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                      TransactionTemplate transactionTemplate, EmailMembershipIndex emailIndex,
+                      RoleRegistry roleRegistry, Validator validator, ExecutorService hashingExecutor) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = transactionTemplate;
+        this.emailIndex = emailIndex;
+        this.roleRegistry = roleRegistry;
+        this.validator = validator;
+        this.hashingExecutor = hashingExecutor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.hashingExecutor.shutdownNow();
+    }
+
+    public BatchRegisterResponse importUsers(List<RegisterRequest> requests) {
+        List<String> alreadyExists = new ArrayList<>();
+        List<Integer> invalid = new ArrayList<>();
+        Map<String, RegisterRequest> candidates = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            final RegisterRequest request = requests.get(i);
+            if (request == null || !this.validator.validate(request).isEmpty()
+                    || (request.getRole() != null && this.roleRegistry.role(request.getRole()) == null)) {
+                invalid.add(i);
+                continue;
+            }
+            String email = EmailAddresses.normalize(request.getEmail());
+            if (candidates.putIfAbsent(email, request) != null) {
+                alreadyExists.add(email);
+            }
+        }
+        for (List<String> emails : chunks(new ArrayList<>(candidates.keySet()))) {
+            this.userRepository.findExistingEmails(emails).forEach(existing -> {
+                candidates.remove(existing);
+                alreadyExists.add(existing);
+            });
+        }
+
+        List<CompletableFuture<User>> hashed = candidates.entrySet().stream()
+                .map(entry -> CompletableFuture.supplyAsync(() -> User.builder()
+                        .firstname(entry.getValue().getFirstname())
+                        .lastname(entry.getValue().getLastname())
+                        .email(entry.getKey())
+                        .password(this.passwordEncoder.encode(entry.getValue().getPassword()))
+                        .role(Objects.requireNonNullElse(entry.getValue().getRole(), Role.USER.name()))
+                        .build(), this.hashingExecutor))
+                .toList();
+        List<User> users = hashed.stream().map(CompletableFuture::join).toList();
+
+        int created = 0;
+        for (List<User> chunk : chunks(users)) {
+            created += insert(chunk, alreadyExists);
+        }
+        log.info("Imported {} users, {} already existing, {} invalid", created, alreadyExists.size(), invalid.size());
+        return new BatchRegisterResponse(created, alreadyExists, invalid);
+    }
+
+    /**
+     * Inserts a chunk in a single batched transaction. If a concurrent registration took one of the emails, the chunk
+     * is rolled back and retried user by user so that only the conflicting users are skipped.
+     */
+    private int insert(List<User> chunk, List<String> alreadyExists) {
+        try {
+            this.transactionTemplate.executeWithoutResult(status -> {
+                this.userRepository.saveAll(chunk);
+                this.userRepository.flush();
+            });
+            chunk.forEach(user -> this.emailIndex.add(user.getEmail()));
+            return chunk.size();
+        } catch (DataIntegrityViolationException e) {
+            if (!UserRepository.isDuplicateEmail(e)) {
+                throw e;
+            }
+        }
+        int created = 0;
+        Set<String> conflicts = new HashSet<>();
+        for (User user : chunk) {
+            user.setId(null);
+            try {
+                this.userRepository.saveAndFlush(user);
+                this.emailIndex.add(user.getEmail());
+                created++;
+            } catch (DataIntegrityViolationException e) {
+                if (!UserRepository.isDuplicateEmail(e)) {
+                    throw e;
+                }
+                conflicts.add(user.getEmail());
+            }
+        }
+        alreadyExists.addAll(conflicts);
+        return created;
+    }
+
+    private static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += CHUNK_SIZE) {
+            chunks.add(items.subList(from, Math.min(from + CHUNK_SIZE, items.size())));
+        }
+        return chunks;
+    }
+}
@@ -1,12 +1,90 @@
 package com.abakudev.authservice.user;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
 
     Optional<User> findByEmail(String email);
+
+    /**
+     * Loads the principal of a request. Served from the query cache when the second-level cache is enabled, any write
+     * to the users table invalidates the cached results.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select new com.abakudev.authservice.user.AuthenticatedUser("
+            + "u.id, u.email, u.password, u.role, u.tokenEpoch) from User u where u.email = :email")
+    Optional<AuthenticatedUser> findAuthenticatedUserByEmail(String email);
+
+    boolean existsByRole(String role);
+
+    @Query("select u.tokenEpoch from User u where u.id = :id")
+    Optional<Integer> findTokenEpoch(Integer id);
+
+    @Query("select u.email from User u where u.id = :id")
+    Optional<String> findEmail(Integer id);
+
+    /**
+     * Invalidates every token issued to the user in a single row update.
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.tokenEpoch = u.tokenEpoch + 1 where u.id = :id")
+    int advanceTokenEpoch(Integer id);
+
+    /**
+     * Stores the new password hash and invalidates every token issued to the user in the same row update. The token
+     * epoch doubles as the version of the credentials: nothing is updated, and 0 is returned, when it is no longer
+     * the expected one, that is when the password was changed or the sessions revoked in the meantime.
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password, u.tokenEpoch = u.tokenEpoch + 1 "
+            + "where u.id = :id and u.tokenEpoch = :tokenEpoch")
+    int updatePasswordAndAdvanceTokenEpoch(Integer id, int tokenEpoch, String password);
+
+    /**
+     * Streams every registered email, must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.email from User u")
+    Stream<String> streamAllEmails();
+
+    @Query("select u.email from User u where u.createdAt >= :since")
+    List<String> findEmailsCreatedSince(Instant since);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    /**
+     * Tells whether an insert failed on the unique email constraint rather than on any other integrity rule.
+     */
+    static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(User.EMAIL_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -1,5 +1,10 @@
 package com.abakudev.authservice.user;
 
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.persistence.ReadReplicas;
+import com.abakudev.authservice.security.TokenEpochs;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -13,24 +18,46 @@ public class UserService {
 
     private final PasswordEncoder passwordEncoder;
     private final UserRepository repository;
+    private final TokenEpochs tokenEpochs;
+    private final EntityCacheEviction cacheEviction;
+    private final ReadReplicas readReplicas;
 
     public void changePassword(ChangePasswordRequest request, Principal connectedUser) {
 
-        var user = (User) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+        var user = (AuthenticatedUser) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
 
+        // check if the two new passwords are the same, before spending any hashing work
+        if (!request.getNewPassword().equals(request.getConfirmationPassword())) {
+            throw new IllegalStateException("Password are not the same");
+        }
         // check if the current password is correct
         if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
             throw new IllegalStateException("Wrong password");
         }
-        // check if the two new passwords are the same
-        if (!request.getNewPassword().equals(request.getConfirmationPassword())) {
-            throw new IllegalStateException("Password are not the same");
+
+        // hashed before the update, no connection is held during the BCrypt work
+        final String encodedPassword = this.passwordEncoder.encode(request.getNewPassword());
+        // save the new password, the tokens issued with the old one are revoked by the same update
+        if (this.repository.updatePasswordAndAdvanceTokenEpoch(user.id(), user.tokenEpoch(), encodedPassword) == 0) {
+            // the principal is stale, also drop it from the cache so that the next sign-in reads the current row
+            this.cacheEviction.evictUser(user.id());
+            throw BusinessException.of(BusinessExceptionReason.CREDENTIALS_CHANGED);
         }
+        this.readReplicas.wrote(user.email());
+        this.publishTokenEpoch(user.id());
+    }
+
+    public void revokeAllSessions(Principal connectedUser) {
 
-        // update the password
-        user.setPassword(this.passwordEncoder.encode(request.getNewPassword()));
+        var user = (AuthenticatedUser) ((UsernamePasswordAuthenticationToken) connectedUser).getPrincipal();
+
+        this.repository.advanceTokenEpoch(user.id());
+        this.readReplicas.wrote(user.email());
+        this.publishTokenEpoch(user.id());
+    }
 
-        // save the new password
-        this.repository.save(user);
+    private void publishTokenEpoch(Integer userId) {
+        this.cacheEviction.evictUser(userId);
+        this.repository.findTokenEpoch(userId).ifPresent(epoch -> this.tokenEpochs.advance(userId, epoch));
     }
 }
@@ -0,0 +1,211 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the time to first request of the service for several ways of launching it, see the {@code startup} and
+ * {@code native} Maven profiles. Each variant is started {@code runs} times in a fresh process, the time is taken from
+ * the process start to the first HTTP response to a login request. The resident memory of the process is read once it
+ * has answered (Linux only), then the process is stopped.
+ *
+ * <p>Run as a single-file program, it needs nothing but the JDK:
+ *
+ * <pre>
+ * java src/startup/StartupBenchmark.java "jit=-jar target/auth-service-1.0.0.jar" runs=5 "app-args=--spring.datasource.url=..."
+ * </pre>
+ *
+ * <p>Every {@code name=options} argument is a variant, launched with the given JVM options, or as an executable when the
+ * options do not start with a dash ({@code "native=target/auth-service"}). The other arguments are the settings
+ * {@code runs} (5), {@code port} (18090), {@code timeout-seconds} (120), {@code app-args} (the arguments given to the
+ * application, the server port is added) and {@code smoke-login} ({@code email:password} of an account that every
+ * started process must sign in, list the sessions of and serve the API documentation for, to smoke test a build).
+ */
+public final class StartupBenchmark {
+
+    private static final int HTTP_OK = 200;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final long KIB_PER_MIB = 1024L;
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"access_token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final Map<String, List<String>> variants = new LinkedHashMap<>();
+    private int runs = 5;
+    private int port = 18090;
+    private Duration timeout = Duration.ofSeconds(120);
+    private List<String> appArgs = List.of();
+    private String smokeLogin;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    public static void main(String[] args) throws Exception {
+        var benchmark = new StartupBenchmark();
+        for (String arg : args) {
+            benchmark.configure(arg);
+        }
+        if (benchmark.variants.isEmpty()) {
+            throw new IllegalArgumentException("Usage: StartupBenchmark name=jvm-options... [runs=5] [port=18090] "
+                    + "[timeout-seconds=120] [app-args=...] [smoke-login=email:password]");
+        }
+        benchmark.run();
+    }
+
+    private void configure(String arg) {
+        if (arg.isBlank()) {
+            return;
+        }
+        final int separator = arg.indexOf('=');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected name=value, got " + arg);
+        }
+        final String name = arg.substring(0, separator).trim();
+        final String value = arg.substring(separator + 1).trim();
+        switch (name) {
+            case "runs" -> this.runs = Integer.parseInt(value);
+            case "port" -> this.port = Integer.parseInt(value);
+            case "timeout-seconds" -> this.timeout = Duration.ofSeconds(Long.parseLong(value));
+            case "app-args" -> this.appArgs = split(value);
+            case "smoke-login" -> this.smokeLogin = value.isEmpty() ? null : value;
+            default -> this.variants.put(name, split(value));
+        }
+    }
+
+    private void run() throws Exception {
+        System.out.printf("%-12s %6s %10s %10s %10s %14s%n", "variant", "runs", "min ms", "median ms", "max ms",
+                "median rss MiB");
+        for (Map.Entry<String, List<String>> variant : this.variants.entrySet()) {
+            long[] millis = new long[this.runs];
+            long[] rssKib = new long[this.runs];
+            for (int i = 0; i < this.runs; i++) {
+                long[] run = measure(variant.getKey(), variant.getValue());
+                millis[i] = run[0];
+                rssKib[i] = run[1];
+            }
+            Arrays.sort(millis);
+            Arrays.sort(rssKib);
+            final long medianRss = rssKib[rssKib.length / 2];
+            System.out.printf("%-12s %6d %10d %10d %10d %14s%n", variant.getKey(), this.runs, millis[0],
+                    millis[millis.length / 2], millis[millis.length - 1],
+                    medianRss < 0 ? "-" : String.valueOf(medianRss / KIB_PER_MIB));
+        }
+    }
+
+    /**
+     * Launches the variant once.
+     *
+     * @return the time to the first request in milliseconds and the resident memory in KiB, or -1 if unknown
+     */
+    private long[] measure(String name, List<String> options) throws Exception {
+        List<String> command = new ArrayList<>();
+        if (options.isEmpty() || options.get(0).startsWith("-")) {
+            command.add(ProcessHandle.current().info().command().orElse("java"));
+        }
+        command.addAll(options);
+        command.addAll(this.appArgs);
+        command.add("--server.port=" + this.port);
+        File log = File.createTempFile("startup-" + name.replaceAll("\\W", "_") + "-", ".log");
+        final long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            final long deadline = start + this.timeout.toNanos();
+            while (!respond()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(name + " did not answer within " + this.timeout + ", see " + log);
+                }
+                Thread.sleep(POLL_INTERVAL);
+            }
+            final long millis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+            if (this.smokeLogin != null) {
+                smokeTest(name, log);
+            }
+            final long rss = residentKib(process.pid());
+            // only the log of a failed start is kept
+            log.deleteOnExit();
+            return new long[]{millis, rss};
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Sends a login for an unknown account, any response means the service is serving requests.
+     */
+    private boolean respond() throws InterruptedException {
+        var request = HttpRequest.newBuilder(uri("/api/v1/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"startup@benchmark.invalid\",\"password\":\"-\"}"))
+                .build();
+        try {
+            this.http.send(request, HttpResponse.BodyHandlers.discarding());
+            return true;
+        } catch (IOException e) {
+            // not listening yet
+            return false;
+        }
+    }
+
+    /**
+     * Signs in, lists the sessions and fetches the API documentation, which goes through JWT signing and parsing, the
+     * entities and the JSON binding of the application.
+     */
+    private void smokeTest(String name, File log) throws IOException, InterruptedException {
+        final int separator = this.smokeLogin.indexOf(':');
+        final String body = "{\"email\":\"" + this.smokeLogin.substring(0, separator) + "\",\"password\":\""
+                + this.smokeLogin.substring(separator + 1) + "\"}";
+        var login = send(name, log, HttpRequest.newBuilder(uri("/api/v1/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+        Matcher token = ACCESS_TOKEN.matcher(login);
+        if (!token.find()) {
+            throw new IllegalStateException(name + " answered the login without access token: " + login);
+        }
+        send(name, log, HttpRequest.newBuilder(uri("/api/v1/users/sessions"))
+                .header("Authorization", "Bearer " + token.group(1)));
+        send(name, log, HttpRequest.newBuilder(uri("/v3/api-docs")));
+    }
+
+    private String send(String name, File log, HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = this.http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != HTTP_OK) {
+            throw new IllegalStateException(name + " answered " + response.request().uri() + " with "
+                    + response.statusCode() + ": " + response.body() + ", see " + log);
+        }
+        return response.body();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + this.port + path);
+    }
+
+    private static long residentKib(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException e) {
+            // not on Linux
+        }
+        return -1;
+    }
+
+    private static List<String> split(String value) {
+        return value.isBlank() ? List.of() : List.of(value.split("\\s+"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.abakudev.authservice.auth;
 
+import com.abakudev.authservice.auth.request.ClientInfo;
 import com.abakudev.authservice.auth.request.LoginRequest;
 import com.abakudev.authservice.auth.request.RegisterRequest;
 import com.abakudev.authservice.auth.response.AuthenticationResponse;
@@ -8,6 +9,7 @@ import com.abakudev.authservice.auth.request.RefreshTokenRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
 
 import java.io.IOException;
 
@@ -38,16 +40,19 @@ class AuthenticationControllerTest {
 
     @Test
     void givenRegisterRequestWhenRegisterThenRegisterUserSuccessfully() {
-        var registerRequest = new RegisterRequest("firstname", "lastname", email, password, Role.USER);
-        when(authenticationService.register(any(RegisterRequest.class))).thenReturn(this.authenticationResponse);
-        var result = authenticationController.register(registerRequest);
+        var registerRequest = new RegisterRequest("firstname", "lastname", email, password, Role.USER.name());
+        when(authenticationService.register(any(RegisterRequest.class), any(ClientInfo.class)))
+                .thenReturn(this.authenticationResponse);
+        var result = authenticationController.register(registerRequest, new MockHttpServletRequest());
         assertEquals(HttpStatus.CREATED, result.getStatusCode());
     }
 
     @Test
     void givenLoginRequestWhenAuthenticateThenAuthenticateUserSuccessfully() {
-        when(authenticationService.authenticate(any(LoginRequest.class))).thenReturn(this.authenticationResponse);
-        var result = authenticationController.authenticate(new LoginRequest(email, password));
+        when(authenticationService.authenticate(any(LoginRequest.class), any(ClientInfo.class)))
+                .thenReturn(this.authenticationResponse);
+        var result = authenticationController.authenticate(new LoginRequest(email, password),
+                new MockHttpServletRequest());
         assertEquals(HttpStatus.OK, result.getStatusCode());
     }
 
@@ -1,49 +1,97 @@
 package com.abakudev.authservice.auth;
 
 import com.abakudev.authservice.auth.response.AuthenticationResponse;
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.persistence.ReadReplicas;
 import com.abakudev.authservice.security.JwtService;
+import com.abakudev.authservice.security.ReferenceTokens;
+import com.abakudev.authservice.security.TokenEpochs;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import com.abakudev.authservice.security.ratelimit.LoginRateLimiter;
 import com.abakudev.authservice.token.Token;
 import com.abakudev.authservice.token.TokenRepository;
 import com.abakudev.authservice.token.TokenType;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.EmailMembershipIndex;
 import com.abakudev.authservice.user.Role;
 import com.abakudev.authservice.user.User;
 import com.abakudev.authservice.user.UserRepository;
+import com.abakudev.authservice.auth.request.ClientInfo;
 import com.abakudev.authservice.auth.request.LoginRequest;
 import com.abakudev.authservice.auth.request.RefreshTokenRequest;
 import com.abakudev.authservice.auth.request.RegisterRequest;
+import io.jsonwebtoken.MalformedJwtException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
 class AuthenticationServiceTest {
 
+    private static final int LOCK_STRIPES = 16;
+    private static final int CONCURRENT_REFRESHES = 64;
+
     private UserRepository userRepository;
     private TokenRepository tokenRepository;
     private PasswordEncoder passwordEncoder;
     private JwtService jwtService;
     private AuthenticationManager authenticationManager;
+    private LoginRateLimiter loginRateLimiter;
+    private EmailMembershipIndex emailIndex;
+    private RoleRegistry roleRegistry;
+    private TokenEpochs tokenEpochs;
+    private UserLockStripes userLocks;
+    private ReadReplicas readReplicas;
+    private ReferenceTokens referenceTokens;
+    private EntityCacheEviction cacheEviction;
     private AuthenticationService authenticationService;
 
     private User mockUser;
+    private AuthenticatedUser mockPrincipal;
     private Token mockToken;
     private String mockJwtToken;
     private RegisterRequest mockRegisterRequest;
     private LoginRequest mockLoginRequest;
+    private ClientInfo mockClientInfo;
     private AuthenticationResponse mockAuthenticationResponse;
 
     @BeforeEach
@@ -53,8 +101,20 @@ class AuthenticationServiceTest {
         this.passwordEncoder = mock(PasswordEncoder.class);
         this.jwtService = mock(JwtService.class);
         this.authenticationManager = mock(AuthenticationManager.class);
+        this.loginRateLimiter = mock(LoginRateLimiter.class);
+        this.emailIndex = mock(EmailMembershipIndex.class);
+        this.roleRegistry = mock(RoleRegistry.class);
+        this.tokenEpochs = mock(TokenEpochs.class);
+        this.userLocks = new UserLockStripes(LOCK_STRIPES);
+        this.readReplicas = mock(ReadReplicas.class);
+        this.referenceTokens = mock(ReferenceTokens.class);
+        this.cacheEviction = mock(EntityCacheEviction.class);
+        when(roleRegistry.role(Role.USER.name()))
+                .thenReturn(new RoleRegistry.CompiledRole(Role.USER.name(), new BitSet(), List.of()));
         this.authenticationService = new AuthenticationService(userRepository, tokenRepository, passwordEncoder,
-                jwtService, authenticationManager);
+                jwtService, authenticationManager, loginRateLimiter, emailIndex, roleRegistry,
+                tokenEpochs, userLocks, new TransactionTemplate(mock(PlatformTransactionManager.class)), readReplicas,
+                referenceTokens, cacheEviction);
 
         this.mockJwtToken = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.eyJzdWIiOiIxMjM0NTY3ODkwIiwibmFtZSI6IkpvaG4gRG9"
                 + "lIiwiaWF0IjoxNTE2MjM5MDIyfQ.SflKxwRJSMeKKF2QT4fwpMeJf36POk6yJV_adQssw5c";
@@ -67,61 +127,332 @@ class AuthenticationServiceTest {
                 .expired(false)
                 .build();
         this.mockUser = User.builder()
+                .id(1)
                 .firstname("firstname")
                 .lastname("lastname")
                 .email("user@mail.com")
                 .password("password")
-                .role(Role.USER)
+                .role(Role.USER.name())
                 .tokens(List.of(this.mockToken))
                 .build();
+        this.mockPrincipal = AuthenticatedUser.of(this.mockUser);
 
         this.mockRegisterRequest = RegisterRequest.builder()
                 .firstname("firstname")
                 .lastname("lastname")
                 .email("user@mail.com")
                 .password("password")
-                .role(Role.USER)
+                .role(Role.USER.name())
                 .build();
         this.mockLoginRequest = new LoginRequest("user@mail.com", "password");
+        this.mockClientInfo = new ClientInfo("127.0.0.1", "JUnit");
         this.mockAuthenticationResponse = new AuthenticationResponse(this.mockJwtToken, this.mockJwtToken);
     }
 
     @Test
     void givenRegisterRequestWhenRegisterThenRegisterUserSuccessfully() {
-        when(userRepository.save(any())).thenReturn(this.mockUser);
+        when(userRepository.saveAndFlush(any())).thenReturn(this.mockUser);
         when(tokenRepository.save(any())).thenReturn(this.mockToken);
         when(passwordEncoder.encode(any())).thenReturn(this.mockJwtToken);
-        when(jwtService.generateToken(any(UserDetails.class))).thenReturn(this.mockJwtToken);
-        when(jwtService.generateRefreshToken(any(UserDetails.class))).thenReturn(this.mockJwtToken);
-        var actualResponse = authenticationService.register(this.mockRegisterRequest);
+        when(jwtService.generateToken(any(UserDetails.class), anyString())).thenReturn(this.mockJwtToken);
+        when(jwtService.generateRefreshToken(any(UserDetails.class), anyString())).thenReturn(this.mockJwtToken);
+        var actualResponse = authenticationService.register(this.mockRegisterRequest, this.mockClientInfo);
         assertEquals(this.mockAuthenticationResponse, actualResponse);
+        verify(this.userRepository, never()).findAuthenticatedUserByEmail(anyString());
+        verify(this.emailIndex).add("user@mail.com");
+    }
+
+    @Test
+    void givenTakenEmailWhenRegisterThenRejectExistingUser() {
+        var violation = new ConstraintViolationException("duplicate key", new SQLException(), User.EMAIL_CONSTRAINT);
+        when(userRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate", violation));
+        var ex = assertThrows(BusinessException.class,
+                () -> authenticationService.register(this.mockRegisterRequest, this.mockClientInfo));
+        assertEquals(BusinessExceptionReason.USER_ALREADY_EXISTS.getCode(), ex.getCode());
+        verify(this.emailIndex, never()).add(anyString());
+    }
+
+    @Test
+    void givenUnknownRoleWhenRegisterThenReject() {
+        this.mockRegisterRequest.setRole("ROOT");
+        var ex = assertThrows(BusinessException.class,
+                () -> authenticationService.register(this.mockRegisterRequest, this.mockClientInfo));
+        assertEquals(BusinessExceptionReason.UNKNOWN_ROLE.getCode(), ex.getCode());
+        verify(this.userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void givenNoRoleWhenRegisterThenRegisterAsUser() {
+        when(userRepository.saveAndFlush(any())).thenReturn(this.mockUser);
+        this.mockRegisterRequest.setRole(null);
+        authenticationService.register(this.mockRegisterRequest, this.mockClientInfo);
+        verify(this.userRepository).saveAndFlush(argThat(user -> Role.USER.name().equals(user.getRole())));
+    }
+
+    @Test
+    void givenOtherIntegrityViolationWhenRegisterThenRethrow() {
+        var violation = new DataIntegrityViolationException("not null");
+        when(userRepository.saveAndFlush(any())).thenThrow(violation);
+        var ex = assertThrows(DataIntegrityViolationException.class,
+                () -> authenticationService.register(this.mockRegisterRequest, this.mockClientInfo));
+        assertEquals(violation, ex);
+    }
+
+    @Test
+    void givenMixedCaseEmailWhenRegisterThenStoreNormalizedEmail() {
+        when(userRepository.saveAndFlush(any())).thenReturn(this.mockUser);
+        this.mockRegisterRequest.setEmail("  User@Mail.COM ");
+        authenticationService.register(this.mockRegisterRequest, this.mockClientInfo);
+        verify(this.userRepository).saveAndFlush(argThat(user -> "user@mail.com".equals(user.getEmail())));
     }
 
     @Test
     void givenLoginRequestWhenAuthenticateThenAuthenticateUserSuccessfully() {
         when(authenticationManager.authenticate(any(Authentication.class))).thenReturn(null);
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.ofNullable(this.mockUser));
-        when(jwtService.generateToken(any(UserDetails.class))).thenReturn(this.mockJwtToken);
-        when(jwtService.generateRefreshToken(any(UserDetails.class))).thenReturn(this.mockJwtToken);
-        when(tokenRepository.findAllValidTokenByUser(anyInt())).thenReturn(List.of(this.mockToken));
-        when(tokenRepository.saveAll(any())).thenReturn(List.of(this.mockToken));
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
+        when(jwtService.generateToken(any(UserDetails.class), anyString())).thenReturn(this.mockJwtToken);
+        when(jwtService.generateRefreshToken(any(UserDetails.class), anyString())).thenReturn(this.mockJwtToken);
+        when(tokenRepository.save(any())).thenReturn(this.mockToken);
+        AuthenticationResponse actualResponse = authenticationService.authenticate(this.mockLoginRequest,
+                this.mockClientInfo);
+        assertEquals(this.mockAuthenticationResponse, actualResponse);
+        verify(this.tokenRepository).save(argThat(token -> token.getSessionId() != null
+                && "JUnit".equals(token.getDevice()) && "127.0.0.1".equals(token.getIpAddress())
+                && token.getCreatedAt() != null && !token.isRevoked()));
+        // the other sessions of the user stay open
+        verify(this.tokenRepository, never()).lockActiveBySession(any(), anyString());
+        // authentication works on the projection, the entity graph is never loaded
+        verify(this.userRepository, never()).findByEmail(anyString());
+        // the new token is read from the primary until the replicas have it
+        verify(this.readReplicas).wrote(this.mockPrincipal.email());
+    }
+
+    @Test
+    void givenClientAskingForReferenceTokenWhenAuthenticateThenIssueHandle() {
+        final Instant expiresAt = Instant.parse("2024-01-01T00:00:00Z");
+        when(authenticationManager.authenticate(any(Authentication.class))).thenReturn(null);
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
+        when(jwtService.generateRefreshToken(any(UserDetails.class), anyString())).thenReturn(this.mockJwtToken);
         when(tokenRepository.save(any())).thenReturn(this.mockToken);
-        AuthenticationResponse actualResponse = authenticationService.authenticate(this.mockLoginRequest);
+        when(referenceTokens.isEnabled()).thenReturn(true);
+        when(referenceTokens.generate()).thenReturn("handle");
+        when(referenceTokens.expiresAt()).thenReturn(expiresAt);
+        AuthenticationResponse actualResponse = authenticationService.authenticate(this.mockLoginRequest,
+                new ClientInfo("127.0.0.1", "JUnit", true));
+        assertEquals(new AuthenticationResponse("handle", this.mockJwtToken), actualResponse);
+        verify(this.tokenRepository).save(argThat(token -> "handle".equals(token.getTokenValue())
+                && expiresAt.equals(token.getAccessExpiresAt())));
+        verify(this.referenceTokens).remember("handle", this.mockToken, this.mockPrincipal.email());
+        verify(this.jwtService, never()).generateToken(any(UserDetails.class), anyString());
+    }
+
+    @Test
+    void givenReferenceTokensDisabledWhenAuthenticateThenIssueJwt() {
+        when(authenticationManager.authenticate(any(Authentication.class))).thenReturn(null);
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
+        when(jwtService.generateToken(any(UserDetails.class), anyString())).thenReturn(this.mockJwtToken);
+        when(jwtService.generateRefreshToken(any(UserDetails.class), anyString())).thenReturn(this.mockJwtToken);
+        AuthenticationResponse actualResponse = authenticationService.authenticate(this.mockLoginRequest,
+                new ClientInfo("127.0.0.1", "JUnit", true));
         assertEquals(this.mockAuthenticationResponse, actualResponse);
+        verify(this.tokenRepository).save(argThat(token -> token.getAccessExpiresAt() == null));
+        verify(this.referenceTokens, never()).generate();
+    }
+
+    @Test
+    void givenBadCredentialsWhenAuthenticateThenRecordFailure() {
+        when(authenticationManager.authenticate(any(Authentication.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
+        var ex = assertThrows(BusinessException.class,
+                () -> authenticationService.authenticate(this.mockLoginRequest, this.mockClientInfo));
+        assertEquals(BusinessExceptionReason.BAD_CREDENTIALS.getCode(), ex.getCode());
+        verify(this.loginRateLimiter).recordFailure("user@mail.com", "127.0.0.1");
+        verify(this.loginRateLimiter).release("user@mail.com", "127.0.0.1");
+    }
+
+    @Test
+    void givenDatabaseFailureWhenAuthenticateThenServerErrorNotRecorded() {
+        when(authenticationManager.authenticate(any(Authentication.class)))
+                .thenThrow(new InternalAuthenticationServiceException("Database down"));
+        assertThrows(InternalAuthenticationServiceException.class,
+                () -> authenticationService.authenticate(this.mockLoginRequest, this.mockClientInfo));
+        verify(this.loginRateLimiter, never()).recordFailure(anyString(), anyString());
+        verify(this.loginRateLimiter).release("user@mail.com", "127.0.0.1");
+    }
+
+    @Test
+    void givenDatabaseBusyWhenAuthenticateThenServiceUnavailable() {
+        when(authenticationManager.authenticate(any(Authentication.class)))
+                .thenThrow(new InternalAuthenticationServiceException("busy",
+                        BusinessException.of(BusinessExceptionReason.DATABASE_BUSY)));
+        var ex = assertThrows(BusinessException.class,
+                () -> authenticationService.authenticate(this.mockLoginRequest, this.mockClientInfo));
+        assertEquals(BusinessExceptionReason.DATABASE_BUSY.getCode(), ex.getCode());
+        verify(this.loginRateLimiter, never()).recordFailure(anyString(), anyString());
+    }
+
+    @Test
+    void givenThrottledClientWhenAuthenticateThenRejectBeforeAuthentication() {
+        doThrow(new BusinessException(BusinessExceptionReason.TOO_MANY_LOGIN_ATTEMPTS))
+                .when(this.loginRateLimiter).acquire("user@mail.com", "127.0.0.1");
+        assertThrows(BusinessException.class,
+                () -> authenticationService.authenticate(this.mockLoginRequest, this.mockClientInfo));
+        verify(this.authenticationManager, never()).authenticate(any(Authentication.class));
     }
 
     @Test
     void givenRefreshTokenRequestWhenRefreshTokenThenRefreshTokenSuccessfully() throws IOException {
-        when(userRepository.findByEmail(anyString())).thenReturn(Optional.ofNullable(this.mockUser));
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
         when(jwtService.extractUsername(anyString())).thenReturn("user@mail.com");
         when(jwtService.isTokenValid(anyString(), any(UserDetails.class))).thenReturn(true);
-        when(jwtService.generateToken(any(UserDetails.class))).thenReturn(this.mockJwtToken);
-        when(jwtService.generateRefreshToken(any(UserDetails.class))).thenReturn(this.mockJwtToken);
+        when(tokenEpochs.isCurrent(anyInt(), any(AuthenticatedUser.class))).thenReturn(true);
+        when(jwtService.extractSessionId(anyString())).thenReturn("session-1");
+        this.mockToken.setSessionId("session-1");
+        this.mockToken.setDevice("JUnit");
+        when(tokenRepository.lockActiveBySession(any(), eq("session-1"))).thenReturn(List.of(this.mockToken));
+        when(jwtService.generateToken(any(UserDetails.class), eq("session-1"))).thenReturn(this.mockJwtToken);
         when(tokenRepository.save(any())).thenReturn(this.mockToken);
-        when(tokenRepository.saveAll(any())).thenReturn(List.of(this.mockToken));
         var actualResponse = this.authenticationService
                 .refreshToken(new RefreshTokenRequest(this.mockJwtToken));
         assertEquals(this.mockAuthenticationResponse, actualResponse);
+        assertTrue(this.mockToken.isRevoked());
+        verify(this.tokenRepository).saveAll(List.of(this.mockToken));
+        verify(this.tokenRepository).save(argThat(token -> "session-1".equals(token.getSessionId())
+                && "JUnit".equals(token.getDevice())));
+        verify(this.readReplicas).wrote(this.mockPrincipal.email());
+    }
+
+    @Test
+    void givenReferenceSessionWhenRefreshTokenThenReplaceHandle() {
+        final Instant expiresAt = Instant.parse("2024-01-01T00:00:00Z");
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
+        when(jwtService.extractUsername(anyString())).thenReturn("user@mail.com");
+        when(jwtService.isTokenValid(anyString(), any(UserDetails.class))).thenReturn(true);
+        when(tokenEpochs.isCurrent(anyInt(), any(AuthenticatedUser.class))).thenReturn(true);
+        when(jwtService.extractSessionId(anyString())).thenReturn("session-1");
+        this.mockToken.setSessionId("session-1");
+        this.mockToken.setAccessExpiresAt(expiresAt);
+        when(tokenRepository.lockActiveBySession(any(), eq("session-1"))).thenReturn(List.of(this.mockToken));
+        when(tokenRepository.save(any())).thenReturn(this.mockToken);
+        when(referenceTokens.isEnabled()).thenReturn(true);
+        when(referenceTokens.generate()).thenReturn("handle");
+        when(referenceTokens.expiresAt()).thenReturn(expiresAt);
+        var actualResponse = this.authenticationService
+                .refreshToken(new RefreshTokenRequest(this.mockJwtToken));
+        assertEquals(new AuthenticationResponse("handle", this.mockJwtToken), actualResponse);
+        verify(this.referenceTokens).revoke(this.mockJwtToken);
+        verify(this.referenceTokens).remember("handle", this.mockToken, this.mockPrincipal.email());
+        verify(this.jwtService, never()).generateToken(any(UserDetails.class), anyString());
+    }
+
+    @Test
+    void givenRefreshTokenOfRevokedSessionWhenRefreshTokenThenRejectInvalidToken() {
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
+        when(jwtService.extractUsername(anyString())).thenReturn("user@mail.com");
+        when(jwtService.isTokenValid(anyString(), any(UserDetails.class))).thenReturn(true);
+        when(tokenEpochs.isCurrent(anyInt(), any(AuthenticatedUser.class))).thenReturn(true);
+        when(jwtService.extractSessionId(anyString())).thenReturn("session-1");
+        when(tokenRepository.lockActiveBySession(any(), eq("session-1"))).thenReturn(List.of());
+        var request = new RefreshTokenRequest(this.mockJwtToken);
+        var ex = assertThrows(BusinessException.class, () -> this.authenticationService.refreshToken(request));
+        assertEquals(BusinessExceptionReason.INVALID_TOKEN.getCode(), ex.getCode());
+        verify(this.tokenRepository, never()).save(any());
+    }
+
+    @Test
+    void givenRefreshTokenWhenRefreshTokenThenEvictOnlyRevokedTokens() {
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
+        when(jwtService.extractUsername(anyString())).thenReturn("user@mail.com");
+        when(jwtService.isTokenValid(anyString(), any(UserDetails.class))).thenReturn(true);
+        when(tokenEpochs.isCurrent(anyInt(), any(AuthenticatedUser.class))).thenReturn(true);
+        when(jwtService.extractSessionId(anyString())).thenReturn("session-1");
+        when(jwtService.generateToken(any(UserDetails.class), eq("session-1"))).thenReturn("access-2");
+        when(tokenRepository.lockActiveBySession(any(), eq("session-1"))).thenReturn(List.of(this.mockToken));
+        when(tokenRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        this.authenticationService.refreshToken(new RefreshTokenRequest(this.mockJwtToken));
+        verify(this.cacheEviction).evictTokens(List.of(this.mockToken.getId()));
+        verify(this.cacheEviction).evictTokenValues(List.of(this.mockJwtToken));
+    }
+
+    @Test
+    void givenConcurrentRefreshesOfSessionWhenRefreshTokenThenKeepOneActiveToken() throws Exception {
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
+        when(jwtService.extractUsername(anyString())).thenReturn("user@mail.com");
+        when(jwtService.isTokenValid(anyString(), any(UserDetails.class))).thenReturn(true);
+        when(tokenEpochs.isCurrent(anyInt(), any(AuthenticatedUser.class))).thenReturn(true);
+        when(jwtService.extractSessionId(anyString())).thenReturn("session-1");
+        var issued = new AtomicInteger();
+        when(jwtService.generateToken(any(UserDetails.class), eq("session-1")))
+                .thenAnswer(invocation -> "access-" + issued.incrementAndGet());
+        // the token rows of the session, with yields widening the windows a race would need
+        List<Token> rows = new ArrayList<>();
+        this.mockToken.setSessionId("session-1");
+        rows.add(this.mockToken);
+        when(tokenRepository.lockActiveBySession(any(), eq("session-1"))).thenAnswer(invocation -> {
+            synchronized (rows) {
+                return rows.stream().filter(t -> !t.isRevoked()).toList();
+            }
+        });
+        when(tokenRepository.saveAll(any())).thenAnswer(invocation -> {
+            Thread.yield();
+            return invocation.getArgument(0);
+        });
+        when(tokenRepository.save(any())).thenAnswer(invocation -> {
+            Thread.yield();
+            synchronized (rows) {
+                rows.add(invocation.getArgument(0));
+            }
+            return invocation.getArgument(0);
+        });
+
+        var start = new CountDownLatch(1);
+        List<Future<AuthenticationResponse>> refreshes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENT_REFRESHES; i++) {
+                refreshes.add(executor.submit(() -> {
+                    start.await();
+                    return this.authenticationService.refreshToken(new RefreshTokenRequest(this.mockJwtToken));
+                }));
+            }
+            start.countDown();
+            for (Future<AuthenticationResponse> refresh : refreshes) {
+                assertNotNull(refresh.get());
+            }
+        }
+
+        // every refresh succeeded, one after the other, and the session was never forked
+        assertEquals(CONCURRENT_REFRESHES + 1, rows.size());
+        assertEquals(1, rows.stream().filter(t -> !t.isRevoked()).count());
+    }
+
+    @Test
+    void givenRefreshTokenOfRevokedEpochWhenRefreshTokenThenRejectInvalidToken() {
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.of(this.mockPrincipal));
+        when(jwtService.extractUsername(anyString())).thenReturn("user@mail.com");
+        when(jwtService.isTokenValid(anyString(), any(UserDetails.class))).thenReturn(true);
+        when(jwtService.extractEpoch(anyString())).thenReturn(0);
+        when(tokenEpochs.isCurrent(0, this.mockPrincipal)).thenReturn(false);
+        var request = new RefreshTokenRequest(this.mockJwtToken);
+        var ex = assertThrows(BusinessException.class, () -> this.authenticationService.refreshToken(request));
+        assertEquals(BusinessExceptionReason.INVALID_TOKEN.getCode(), ex.getCode());
+        verify(this.jwtService, never()).generateToken(any(UserDetails.class), anyString());
+    }
+
+    @Test
+    void givenMalformedRefreshTokenWhenRefreshTokenThenRejectInvalidToken() {
+        when(jwtService.extractUsername(anyString())).thenThrow(new MalformedJwtException("garbage"));
+        var request = new RefreshTokenRequest("garbage");
+        var ex = assertThrows(BusinessException.class, () -> this.authenticationService.refreshToken(request));
+        assertEquals(BusinessExceptionReason.INVALID_TOKEN.getCode(), ex.getCode());
+    }
+
+    @Test
+    void givenRefreshTokenOfDeletedUserWhenRefreshTokenThenRejectInvalidToken() {
+        when(jwtService.extractUsername(anyString())).thenReturn("user@mail.com");
+        when(userRepository.findAuthenticatedUserByEmail(anyString())).thenReturn(Optional.empty());
+        var request = new RefreshTokenRequest(this.mockJwtToken);
+        var ex = assertThrows(BusinessException.class, () -> this.authenticationService.refreshToken(request));
+        assertEquals(BusinessExceptionReason.INVALID_TOKEN.getCode(), ex.getCode());
     }
 
 }
@@ -0,0 +1,77 @@
+package com.abakudev.authservice.auth;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserLockStripesTest {
+
+    private static final int STRIPES = 16;
+    private static final int THREADS = 32;
+    private static final int INCREMENTS = 1000;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private int counter;
+
+    @Test
+    void givenConcurrentActionsOfUserWhenWithLockThenRunOneAtATime() {
+        var locks = new UserLockStripes(STRIPES);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < THREADS; i++) {
+                executor.submit(() -> {
+                    for (int j = 0; j < INCREMENTS; j++) {
+                        // a plain read-modify-write, only correct when serialized
+                        locks.withLock(1, () -> this.counter = this.counter + 1);
+                    }
+                });
+            }
+        }
+        assertEquals(THREADS * INCREMENTS, this.counter);
+    }
+
+    @Test
+    void givenUserHoldingItsStripeWhenOtherUserWithLockThenProceed() throws Exception {
+        var locks = new UserLockStripes(STRIPES);
+        assertNotEquals(locks.stripeOf(1), locks.stripeOf(2));
+        var held = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        final var holder = CompletableFuture.runAsync(() -> locks.withLock(1, () -> {
+            held.countDown();
+            await(release);
+        }));
+        assertTrue(held.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // user 2 does not wait for user 1
+        CompletableFuture.runAsync(() -> locks.withLock(2, () -> { })).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        // user 1 itself does
+        var blocked = CompletableFuture.runAsync(() -> locks.withLock(1, () -> { }));
+        assertFalse(blocked.isDone());
+
+        release.countDown();
+        holder.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        blocked.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void givenNoStripeWhenCreateThenReject() {
+        assertThrows(IllegalArgumentException.class, () -> new UserLockStripes(0));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.abakudev.authservice.config;
+
+import com.abakudev.authservice.auth.request.LoginRequest;
+import com.abakudev.authservice.errorhandling.response.ErrorResponse;
+import com.abakudev.authservice.token.Token;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    NativeRuntimeHintsTest() {
+        new NativeRuntimeHints().registerHints(this.hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void givenJjwtTypesWhenRegisterThenTheyExistAndCanBeCreated() {
+        for (String type : NativeRuntimeHints.JJWT_TYPES) {
+            // a renamed class would only fail in the native image
+            assertDoesNotThrow(() -> Class.forName(type).getConstructor(), type);
+            assertTrue(RuntimeHintsPredicates.reflection().onType(TypeReference.of(type))
+                    .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS).test(this.hints), type);
+        }
+        assertTrue(RuntimeHintsPredicates.resource().forResource("META-INF/services/io.jsonwebtoken.io.Serializer")
+                .test(this.hints));
+    }
+
+    @Test
+    void givenPersistenceTypesWhenRegisterThenHibernateCanUseThem() throws NoSuchMethodException {
+        assertTrue(RuntimeHintsPredicates.reflection().onType(Token.class)
+                .withMemberCategories(MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)
+                .test(this.hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onConstructor(AuthenticatedUser.class.getConstructor(
+                Integer.class, String.class, String.class, String.class, int.class)).test(this.hints));
+    }
+
+    @Test
+    void givenBindingTypesWhenRegisterThenJacksonAndValidatorCanUseThem() throws NoSuchFieldException {
+        assertTrue(RuntimeHintsPredicates.reflection().onField(LoginRequest.class.getDeclaredField("email"))
+                .test(this.hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(ErrorResponse.class, "code").test(this.hints));
+    }
+
+    @Test
+    void givenSwaggerUiWhenRegisterThenServeWebjarFiles() {
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/resources/webjars/swagger-ui/4.18.2/index.html").test(this.hints));
+    }
+}
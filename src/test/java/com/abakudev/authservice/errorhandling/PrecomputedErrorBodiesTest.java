@@ -0,0 +1,50 @@
+package com.abakudev.authservice.errorhandling;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.errorhandling.response.ErrorResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PrecomputedErrorBodiesTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T10:15:30.123Z");
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @ParameterizedTest
+    @EnumSource(BusinessExceptionReason.class)
+    void givenReasonWhenRenderThenMatchJacksonSerialization(BusinessExceptionReason reason) throws Exception {
+        var clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        var bodies = new PrecomputedErrorBodies(this.objectMapper, clock);
+
+        var expected = this.objectMapper.writeValueAsString(new ErrorResponse(reason.getCode(), reason.getMessage(),
+                reason.getHttpStatus().value(), LocalDateTime.now(clock), null));
+
+        assertEquals(expected, new String(bodies.render(reason), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givenNumericTimestampsWhenRenderThenLetJacksonRender() {
+        var numericDates = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+        var bodies = new PrecomputedErrorBodies(numericDates, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertNull(bodies.render(BusinessExceptionReason.INVALID_TOKEN));
+    }
+}
@@ -0,0 +1,31 @@
+package com.abakudev.authservice.errorhandling;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SampledErrorLogTest {
+
+    private static final int MAX_PER_SECOND = 2;
+
+    @Test
+    void givenFloodWhenAcquireThenLogFirstErrorsAndReportSkippedOnes() {
+        var clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        var errorLog = new SampledErrorLog(MAX_PER_SECOND, clock);
+
+        assertEquals(0, errorLog.acquire("E0003"));
+        assertEquals(0, errorLog.acquire("E0003"));
+        assertEquals(-1, errorLog.acquire("E0003"));
+        assertEquals(-1, errorLog.acquire("E0003"));
+        assertEquals(0, errorLog.acquire("E0007"));
+
+        when(clock.millis()).thenReturn(1000L);
+        assertEquals(2, errorLog.acquire("E0003"));
+        assertEquals(0, errorLog.acquire("E0003"));
+    }
+}
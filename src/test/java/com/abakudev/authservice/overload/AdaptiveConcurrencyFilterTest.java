@@ -0,0 +1,115 @@
+package com.abakudev.authservice.overload;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AdaptiveConcurrencyFilterTest {
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit = mock(AdaptiveConcurrencyLimit.class);
+    private final HandlerExceptionResolver handlerExceptionResolver = mock(HandlerExceptionResolver.class);
+    private final FilterChain filterChain = mock(FilterChain.class);
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final AdaptiveConcurrencyFilter filter = new AdaptiveConcurrencyFilter(this.concurrencyLimit,
+            this.handlerExceptionResolver, true);
+
+    @Test
+    void givenLimitReachedWhenFilterThenRejectWithRetryAfter() throws ServletException, IOException {
+        final MockHttpServletRequest request = request("/api/v1/auth/login");
+        when(this.concurrencyLimit.tryAcquire(RequestPriority.PASSWORD_HASHING)).thenReturn(false);
+
+        this.filter.doFilter(request, this.response, this.filterChain);
+
+        verify(this.filterChain, never()).doFilter(any(), any());
+        assertEquals("1", this.response.getHeader(HttpHeaders.RETRY_AFTER));
+        verify(this.handlerExceptionResolver).resolveException(eq(request), eq(this.response), isNull(),
+                argThat(e -> e instanceof BusinessException businessException
+                        && businessException.getReason() == BusinessExceptionReason.OVERLOADED));
+        verify(this.concurrencyLimit, never()).release(any(), anyLong(), any(Boolean.class));
+    }
+
+    @Test
+    void givenAdmittedWhenFilterThenReleaseWithTheOutcome() throws ServletException, IOException {
+        when(this.concurrencyLimit.tryAcquire(RequestPriority.STANDARD)).thenReturn(true);
+        doAnswer(invocation -> {
+            this.response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return null;
+        }).when(this.filterChain).doFilter(any(), any());
+
+        this.filter.doFilter(request("/api/v1/users/sessions"), this.response, this.filterChain);
+
+        verify(this.concurrencyLimit).release(eq(RequestPriority.STANDARD), anyLong(), eq(true));
+    }
+
+    @Test
+    void givenChainFailsWhenFilterThenReleaseAsServerError() throws ServletException, IOException {
+        when(this.concurrencyLimit.tryAcquire(RequestPriority.STANDARD)).thenReturn(true);
+        doThrow(new ServletException("failed")).when(this.filterChain).doFilter(any(), any());
+
+        assertThrows(ServletException.class, () -> this.filter.doFilter(request("/api/v1/management"),
+                this.response, this.filterChain));
+
+        verify(this.concurrencyLimit).release(eq(RequestPriority.STANDARD), anyLong(), eq(true));
+    }
+
+    @Test
+    void givenSuccessWhenFilterThenReleaseAsSuccess() throws ServletException, IOException {
+        when(this.concurrencyLimit.tryAcquire(RequestPriority.PASSWORD_HASHING)).thenReturn(true);
+
+        this.filter.doFilter(request("/api/v1/auth/register"), this.response, this.filterChain);
+
+        verify(this.concurrencyLimit).release(eq(RequestPriority.PASSWORD_HASHING), anyLong(), eq(false));
+    }
+
+    @Test
+    void givenProbeWhenFilterThenNeverShed() throws ServletException, IOException {
+        final MockHttpServletRequest request = request("/actuator/health/readiness");
+
+        this.filter.doFilter(request, this.response, this.filterChain);
+
+        verify(this.filterChain).doFilter(request, this.response);
+        verifyNoInteractions(this.concurrencyLimit);
+    }
+
+    @Test
+    void givenDisabledWhenFilterThenPassThrough() throws ServletException, IOException {
+        final AdaptiveConcurrencyFilter disabled = new AdaptiveConcurrencyFilter(this.concurrencyLimit,
+                this.handlerExceptionResolver, false);
+        final MockHttpServletRequest request = request("/api/v1/auth/login");
+
+        disabled.doFilter(request, this.response, this.filterChain);
+
+        verify(this.filterChain).doFilter(request, this.response);
+        verifyNoInteractions(this.concurrencyLimit);
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        return request;
+    }
+}
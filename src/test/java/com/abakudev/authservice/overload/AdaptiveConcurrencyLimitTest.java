@@ -0,0 +1,128 @@
+package com.abakudev.authservice.overload;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final int INITIAL_LIMIT = 10;
+    private static final int MIN_LIMIT = 4;
+    private static final int MAX_LIMIT = 12;
+    private static final double PASSWORD_HASHING_SHARE = 0.5;
+    private static final double TOLERANCE = 2.0;
+    private static final Duration WINDOW = Duration.ofSeconds(1);
+    private static final long FAST = 1_000_000;
+    private static final long SLOW = 10 * FAST;
+    private static final int WINDOWS = 10;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = mock(Clock.class);
+    private long now;
+    private AdaptiveConcurrencyLimit limit;
+
+    @BeforeEach
+    void setUp() {
+        when(this.clock.millis()).thenAnswer(invocation -> this.now);
+        this.limit = new AdaptiveConcurrencyLimit(this.meterRegistry, this.clock, INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT,
+                PASSWORD_HASHING_SHARE, TOLERANCE, WINDOW);
+    }
+
+    @Test
+    void givenLimitReachedWhenTryAcquireThenShedPasswordHashingFirst() {
+        final int passwordHashingLimit = (int) (INITIAL_LIMIT * PASSWORD_HASHING_SHARE);
+        for (int i = 0; i < passwordHashingLimit; i++) {
+            assertTrue(this.limit.tryAcquire(RequestPriority.PASSWORD_HASHING));
+        }
+
+        assertFalse(this.limit.tryAcquire(RequestPriority.PASSWORD_HASHING));
+        for (int i = passwordHashingLimit; i < INITIAL_LIMIT; i++) {
+            assertTrue(this.limit.tryAcquire(RequestPriority.STANDARD));
+        }
+        assertFalse(this.limit.tryAcquire(RequestPriority.STANDARD));
+        assertEquals(INITIAL_LIMIT, this.meterRegistry.get("http.concurrency.inflight").gauge().value());
+        assertEquals(1, this.meterRegistry.get("http.concurrency.rejected").tag("priority", "password-hashing")
+                .counter().count());
+        assertEquals(1, this.meterRegistry.get("http.concurrency.rejected").tag("priority", "standard")
+                .counter().count());
+
+        this.limit.release(RequestPriority.STANDARD, FAST, false);
+        assertTrue(this.limit.tryAcquire(RequestPriority.STANDARD));
+    }
+
+    @Test
+    void givenLatencyRisingWhenWindowEndsThenShrinkTheLimit() {
+        runWindow(FAST, INITIAL_LIMIT, false);
+
+        for (int i = 0; i < WINDOWS; i++) {
+            runWindow(SLOW, 1, false);
+        }
+
+        assertEquals(MIN_LIMIT, this.limit.limit(RequestPriority.STANDARD));
+        assertEquals(MIN_LIMIT * PASSWORD_HASHING_SHARE, this.meterRegistry.get("http.concurrency.limit")
+                .tag("priority", "password-hashing").gauge().value());
+    }
+
+    @Test
+    void givenServerErrorsWhenWindowEndsThenShrinkTheLimit() {
+        runWindow(FAST, INITIAL_LIMIT, false);
+        final double before = this.limit.limit(RequestPriority.STANDARD);
+
+        runWindow(FAST, INITIAL_LIMIT, true);
+
+        assertTrue(this.limit.limit(RequestPriority.STANDARD) < before);
+    }
+
+    @Test
+    void givenSteadyLatencyUnderFullUseWhenWindowEndsThenGrowTheLimit() {
+        for (int i = 0; i < WINDOWS; i++) {
+            runWindow(FAST, (int) this.limit.limit(RequestPriority.STANDARD), false);
+        }
+
+        assertEquals(MAX_LIMIT, this.limit.limit(RequestPriority.STANDARD));
+    }
+
+    @Test
+    void givenLimitBarelyUsedWhenWindowEndsThenKeepTheLimit() {
+        for (int i = 0; i < WINDOWS; i++) {
+            runWindow(FAST, 1, false);
+        }
+
+        assertEquals(INITIAL_LIMIT, this.limit.limit(RequestPriority.STANDARD));
+    }
+
+    @Test
+    void givenWindowNotOverWhenReleaseThenKeepTheLimit() {
+        runWindow(FAST, INITIAL_LIMIT, false);
+        final double before = this.limit.limit(RequestPriority.STANDARD);
+        assertTrue(this.limit.tryAcquire(RequestPriority.STANDARD));
+
+        this.limit.release(RequestPriority.STANDARD, SLOW, true);
+
+        assertEquals(before, this.limit.limit(RequestPriority.STANDARD));
+        assertEquals(0, this.limit.inFlight());
+    }
+
+    /**
+     * Runs the given number of standard requests at once, then ends the window with the last of them.
+     */
+    private void runWindow(long latencyNanos, int concurrency, boolean serverError) {
+        for (int i = 0; i < concurrency; i++) {
+            assertTrue(this.limit.tryAcquire(RequestPriority.STANDARD));
+        }
+        for (int i = 1; i < concurrency; i++) {
+            this.limit.release(RequestPriority.STANDARD, latencyNanos, serverError);
+        }
+        this.now += WINDOW.toMillis();
+        this.limit.release(RequestPriority.STANDARD, latencyNanos, serverError);
+    }
+}
@@ -0,0 +1,87 @@
+package com.abakudev.authservice.persistence;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.persistence.DatabaseBulkhead.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkheadDataSourceTest {
+
+    private static final int PERMITS = 2;
+    private static final int CLOSES = 3;
+
+    private final DatabaseBulkhead bulkhead = new DatabaseBulkhead(new SimpleMeterRegistry(), PERMITS * 2, PERMITS,
+            PERMITS, 0, Duration.ZERO);
+    private final DataSource target = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final BulkheadDataSource dataSource = new BulkheadDataSource(this.target, this.bulkhead);
+
+    @Test
+    void givenConnectionWhenClosedThenGiveThePermitBackOnce() throws SQLException {
+        when(this.target.getConnection()).thenReturn(this.connection);
+
+        final Connection first = this.dataSource.getConnection();
+        this.dataSource.getConnection().close();
+        assertEquals(PERMITS - 1, this.bulkhead.availablePermits(Lane.WRITE));
+
+        first.close();
+        first.close();
+        assertEquals(PERMITS, this.bulkhead.availablePermits(Lane.WRITE));
+        verify(this.connection, times(CLOSES)).close();
+    }
+
+    @Test
+    void givenConnectionWhenUsedThenDelegate() throws SQLException {
+        when(this.target.getConnection("user", "secret")).thenReturn(this.connection);
+        when(this.connection.getAutoCommit()).thenReturn(true);
+        doThrow(new SQLException("rollback failed")).when(this.connection).rollback();
+
+        final Connection guarded = this.dataSource.getConnection("user", "secret");
+
+        assertTrue(guarded.getAutoCommit());
+        assertThrows(SQLException.class, guarded::rollback);
+        assertEquals(guarded, guarded);
+        assertNotEquals(guarded, this.connection);
+        assertEquals(System.identityHashCode(guarded), guarded.hashCode());
+        assertSame(this.target, this.dataSource.getTargetDataSource());
+    }
+
+    @Test
+    void givenPoolFailureWhenGetConnectionThenGiveThePermitBack() throws SQLException {
+        when(this.target.getConnection()).thenThrow(new SQLException("pool exhausted"));
+        when(this.target.getConnection("user", "secret")).thenThrow(new IllegalStateException("pool closed"));
+
+        assertThrows(SQLException.class, this.dataSource::getConnection);
+        assertThrows(IllegalStateException.class, () -> this.dataSource.getConnection("user", "secret"));
+
+        assertEquals(PERMITS, this.bulkhead.availablePermits(Lane.WRITE));
+    }
+
+    @Test
+    void givenLaneFullWhenGetConnectionThenRejectWithoutTouchingThePool() throws SQLException {
+        when(this.target.getConnection()).thenReturn(this.connection);
+        for (int i = 0; i < PERMITS; i++) {
+            this.dataSource.getConnection();
+        }
+
+        assertThrows(BusinessException.class, this.dataSource::getConnection);
+
+        verify(this.target, times(PERMITS)).getConnection();
+    }
+}
@@ -0,0 +1,116 @@
+package com.abakudev.authservice.persistence;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.persistence.DatabaseBulkhead.Lane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseBulkheadTest {
+
+    private static final int POOL_SIZE = 10;
+    private static final int MAX_QUEUE = 10;
+    private static final Duration SHORT_WAIT = Duration.ofMillis(20);
+    private static final Duration LONG_WAIT = Duration.ofSeconds(5);
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void givenNoPermitsConfiguredWhenCreateThenSplitThePool() {
+        var bulkhead = new DatabaseBulkhead(this.meterRegistry, POOL_SIZE, 0, 0, MAX_QUEUE, SHORT_WAIT);
+
+        assertEquals(POOL_SIZE / 2, bulkhead.availablePermits(Lane.READ));
+        assertEquals(POOL_SIZE / 2, bulkhead.availablePermits(Lane.WRITE));
+    }
+
+    @Test
+    void givenPermitsConfiguredWhenCreateThenUseThem() {
+        var bulkhead = new DatabaseBulkhead(this.meterRegistry, POOL_SIZE, 1, POOL_SIZE, MAX_QUEUE, SHORT_WAIT);
+
+        assertEquals(1, bulkhead.availablePermits(Lane.READ));
+        assertEquals(POOL_SIZE, bulkhead.availablePermits(Lane.WRITE));
+    }
+
+    @Test
+    void givenReadWorkWhenAcquireThenUseReadLane() {
+        var bulkhead = new DatabaseBulkhead(this.meterRegistry, POOL_SIZE, 0, 0, MAX_QUEUE, SHORT_WAIT);
+
+        final Runnable release = bulkhead.read(() -> bulkhead.read(bulkhead::acquire));
+        assertEquals(POOL_SIZE / 2 - 1, bulkhead.availablePermits(Lane.READ));
+        release.run();
+        assertEquals(POOL_SIZE / 2, bulkhead.availablePermits(Lane.READ));
+
+        bulkhead.acquire();
+        assertEquals(POOL_SIZE / 2 - 1, bulkhead.availablePermits(Lane.WRITE));
+        assertEquals(POOL_SIZE / 2, bulkhead.availablePermits(Lane.READ));
+    }
+
+    @Test
+    void givenFullLaneAndFullQueueWhenAcquireThenRejectAtOnce() {
+        var bulkhead = new DatabaseBulkhead(this.meterRegistry, 2, 1, 1, 0, LONG_WAIT);
+        bulkhead.acquire();
+
+        var rejection = assertThrows(BusinessException.class, bulkhead::acquire);
+
+        assertEquals(BusinessExceptionReason.DATABASE_BUSY, rejection.getReason());
+        assertEquals(1, this.meterRegistry.get("db.bulkhead.rejected").tags("lane", "write", "cause", "queue-full")
+                .counter().count());
+        // the read lane is not affected
+        assertNotNull(bulkhead.read(bulkhead::acquire));
+    }
+
+    @Test
+    void givenFullLaneWhenWaitTooLongThenReject() {
+        var bulkhead = new DatabaseBulkhead(this.meterRegistry, 2, 1, 1, MAX_QUEUE, SHORT_WAIT);
+        bulkhead.acquire();
+
+        assertThrows(BusinessException.class, bulkhead::acquire);
+
+        assertEquals(1, this.meterRegistry.get("db.bulkhead.rejected").tags("lane", "write", "cause", "timeout")
+                .counter().count());
+        assertEquals(2, this.meterRegistry.get("db.bulkhead.wait").tags("lane", "write").timer().count());
+        assertEquals(0, this.meterRegistry.get("db.bulkhead.queued").tags("lane", "write").gauge().value());
+    }
+
+    @Test
+    void givenFullLaneWhenPermitReleasedThenWaitingRequestGetsIt() throws Exception {
+        var bulkhead = new DatabaseBulkhead(this.meterRegistry, 2, 1, 1, MAX_QUEUE, LONG_WAIT);
+        final Runnable release = bulkhead.acquire();
+        final CompletableFuture<Runnable> waiting = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> waiting.complete(bulkhead.acquire()));
+        while (this.meterRegistry.get("db.bulkhead.queued").tags("lane", "write").gauge().value() == 0) {
+            assertFalse(waiting.isDone());
+            Thread.sleep(1);
+        }
+
+        release.run();
+
+        assertNotNull(waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.availablePermits(Lane.WRITE));
+    }
+
+    @Test
+    void givenInterruptedThreadWhenWaitThenRejectAndKeepInterrupt() {
+        var bulkhead = new DatabaseBulkhead(this.meterRegistry, 2, 1, 1, MAX_QUEUE, LONG_WAIT);
+        bulkhead.acquire();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(BusinessException.class, bulkhead::acquire);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.abakudev.authservice.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DatabaseCircuitBreakerTest {
+
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(5);
+    private static final Duration ALERT_AFTER = Duration.ofMinutes(1);
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final RuntimeException OUTAGE = new DataAccessResourceFailureException("connection refused");
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = mock(Clock.class);
+    private Instant now = START;
+    private DatabaseCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        when(this.clock.instant()).thenAnswer(invocation -> this.now);
+        when(this.clock.millis()).thenAnswer(invocation -> this.now.toEpochMilli());
+        this.circuitBreaker = new DatabaseCircuitBreaker(this.eventPublisher, this.meterRegistry, this.clock, true,
+                FAILURE_THRESHOLD, OPEN_DURATION, ALERT_AFTER);
+    }
+
+    @Test
+    void givenConsecutiveOutagesWhenThresholdReachedThenOpen() {
+        assertTrue(this.circuitBreaker.onOutage(OUTAGE));
+        assertFalse(this.circuitBreaker.isOpen());
+        assertTrue(this.circuitBreaker.allowRequest());
+
+        this.circuitBreaker.onOutage(OUTAGE);
+
+        assertTrue(this.circuitBreaker.isOpen());
+        assertFalse(this.circuitBreaker.allowRequest());
+        verify(this.eventPublisher).publishEvent(new DegradedModeEvent(DegradedModeEvent.Type.ENTERED, START,
+                Duration.ZERO));
+        assertEquals(1, this.meterRegistry.get("auth.degraded.active").longTaskTimer().activeTasks());
+    }
+
+    @Test
+    void givenSuccessBetweenOutagesWhenOutageThenStayClosed() {
+        this.circuitBreaker.onOutage(OUTAGE);
+        this.circuitBreaker.onSuccess();
+        this.circuitBreaker.onOutage(OUTAGE);
+
+        assertFalse(this.circuitBreaker.isOpen());
+    }
+
+    @Test
+    void givenOpenWhenOpenDurationElapsedThenAllowOneTrial() {
+        open();
+
+        this.now = this.now.plus(OPEN_DURATION);
+        assertTrue(this.circuitBreaker.allowRequest());
+        assertFalse(this.circuitBreaker.allowRequest());
+
+        // the trial failed, the next one waits for another period
+        this.circuitBreaker.onOutage(OUTAGE);
+        this.now = this.now.plus(OPEN_DURATION).minusMillis(1);
+        assertFalse(this.circuitBreaker.allowRequest());
+    }
+
+    @Test
+    void givenOpenWhenTrialSucceedsThenClose() {
+        open();
+        this.now = this.now.plus(OPEN_DURATION);
+
+        this.circuitBreaker.onSuccess();
+
+        assertFalse(this.circuitBreaker.isOpen());
+        assertTrue(this.circuitBreaker.allowRequest());
+        verify(this.eventPublisher).publishEvent(new DegradedModeEvent(DegradedModeEvent.Type.EXITED, START,
+                OPEN_DURATION));
+        assertEquals(1, this.meterRegistry.get("auth.degraded.time").timer().count());
+        assertEquals(0, this.meterRegistry.get("auth.degraded.active").longTaskTimer().activeTasks());
+    }
+
+    @Test
+    void givenLongOutageWhenCheckThenAlertOnce() {
+        this.circuitBreaker.checkOutage();
+        open();
+        this.circuitBreaker.checkOutage();
+
+        this.now = this.now.plus(ALERT_AFTER);
+        this.circuitBreaker.checkOutage();
+        this.circuitBreaker.checkOutage();
+
+        verify(this.eventPublisher, times(1)).publishEvent(new DegradedModeEvent(DegradedModeEvent.Type.ALERT,
+                START, ALERT_AFTER));
+    }
+
+    @Test
+    void givenFailingListenerWhenOpenThenStillOpen() {
+        doThrow(new IllegalStateException("pager down")).when(this.eventPublisher).publishEvent(any(Object.class));
+
+        open();
+
+        assertTrue(this.circuitBreaker.isOpen());
+    }
+
+    @Test
+    void givenDisabledWhenOutageThenNeverOpen() {
+        var disabled = new DatabaseCircuitBreaker(this.eventPublisher, this.meterRegistry, false, 1, OPEN_DURATION,
+                ALERT_AFTER);
+
+        assertFalse(disabled.onOutage(OUTAGE));
+        assertFalse(disabled.isOpen());
+        verify(this.eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void givenFailuresWhenIsOutageThenOnlyConnectionFailures() {
+        assertTrue(DatabaseCircuitBreaker.isOutage(OUTAGE));
+        assertTrue(DatabaseCircuitBreaker.isOutage(new CannotCreateTransactionException("no connection")));
+        assertTrue(DatabaseCircuitBreaker.isOutage(new IllegalStateException(
+                new SQLTransientConnectionException("pool timeout"))));
+        assertTrue(DatabaseCircuitBreaker.isOutage(new SQLException("connection refused", "08001")));
+        assertFalse(DatabaseCircuitBreaker.isOutage(new SQLException("syntax error", "42601")));
+        assertFalse(DatabaseCircuitBreaker.isOutage(new SQLException("no state")));
+        assertFalse(DatabaseCircuitBreaker.isOutage(new DataIntegrityViolationException("duplicate key")));
+    }
+
+    private void open() {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            this.circuitBreaker.onOutage(OUTAGE);
+        }
+    }
+}
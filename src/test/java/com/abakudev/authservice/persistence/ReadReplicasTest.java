@@ -0,0 +1,197 @@
+package com.abakudev.authservice.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadReplicasTest {
+
+    private static final Duration MAX_LAG = Duration.ofSeconds(1);
+    private static final Duration CHECK_INTERVAL = Duration.ofSeconds(1);
+    private static final double BEHIND_SECONDS = 5;
+    private static final String LAG_QUERY = "select lag";
+    private static final String USER = "user@mail.com";
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = mock(Clock.class);
+    private final DataSource primary = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private FakeReplica first;
+    private FakeReplica second;
+    private ReadReplicas readReplicas;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(this.clock.instant()).thenReturn(NOW);
+        when(this.primary.getConnection()).thenReturn(this.primaryConnection);
+        this.first = new FakeReplica();
+        this.second = new FakeReplica();
+        final Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", this.first.dataSource);
+        replicas.put("replica-1", this.second.dataSource);
+        this.readReplicas = new ReadReplicas(replicas, this.meterRegistry, this.clock, MAX_LAG, CHECK_INTERVAL,
+                LAG_QUERY);
+        this.routing = new ReplicaRoutingDataSource(this.primary, this.readReplicas);
+    }
+
+    @Test
+    void givenReplicasInSyncWhenReadThenSpreadOverTheReplicas() throws SQLException {
+        this.readReplicas.checkLag();
+
+        final Connection[] connections = this.readReplicas.read(USER, () -> new Connection[]{
+                connection(), connection(), connection()});
+
+        assertSame(this.first.connection, connections[0]);
+        assertSame(this.second.connection, connections[1]);
+        assertSame(this.first.connection, connections[2]);
+        assertEquals(0, this.meterRegistry.get("db.replica.lag").tag("replica", "replica-0").gauge().value());
+        verify(this.first.statement).executeQuery(LAG_QUERY);
+    }
+
+    @Test
+    void givenWorkOutsideReadWhenGetConnectionThenUsePrimary() throws SQLException {
+        this.readReplicas.checkLag();
+
+        assertSame(this.primaryConnection, this.routing.getConnection());
+        // the read scope ends with the work
+        this.readReplicas.read(USER, () -> this.readReplicas.read("other@mail.com", this::connection));
+        assertSame(this.primaryConnection, this.routing.getConnection());
+    }
+
+    @Test
+    void givenNoLagCheckYetWhenReadThenUsePrimary() {
+        assertSame(this.primaryConnection, this.readReplicas.read(USER, this::connection));
+        assertEquals(1, this.meterRegistry.get("db.replica.reads").tag("route", "primary-replicas-behind")
+                .counter().count());
+    }
+
+    @Test
+    void givenReplicaBehindWhenReadThenSkipIt() throws SQLException {
+        this.first.lagSeconds = BEHIND_SECONDS;
+        this.readReplicas.checkLag();
+
+        assertSame(this.second.connection, this.readReplicas.read(USER, this::connection));
+        assertSame(this.second.connection, this.readReplicas.read(USER, this::connection));
+
+        this.second.lagSeconds = BEHIND_SECONDS;
+        this.readReplicas.checkLag();
+        assertSame(this.primaryConnection, this.readReplicas.read(USER, this::connection));
+        assertEquals(BEHIND_SECONDS, this.meterRegistry.get("db.replica.lag").tag("replica", "replica-1")
+                .gauge().value());
+
+        this.first.lagSeconds = 0;
+        this.readReplicas.checkLag();
+        assertSame(this.first.connection, this.readReplicas.read(USER, this::connection));
+    }
+
+    @Test
+    void givenRecentWriteOfUserWhenReadThenUsePrimaryUntilReplayed() throws SQLException {
+        this.readReplicas.checkLag();
+        this.readReplicas.wrote(USER);
+
+        assertSame(this.primaryConnection, this.readReplicas.read(USER, this::connection));
+        assertSame(this.first.connection, this.readReplicas.read("other@mail.com", this::connection));
+        assertEquals(1, this.meterRegistry.get("db.replica.reads").tag("route", "primary-after-write")
+                .counter().count());
+
+        when(this.clock.instant()).thenReturn(NOW.plus(MAX_LAG).plus(CHECK_INTERVAL));
+        this.readReplicas.checkLag();
+        assertSame(this.second.connection, this.readReplicas.read(USER, this::connection));
+    }
+
+    @Test
+    void givenUnreachableReplicaWhenReadThenFallBackToPrimary() throws SQLException {
+        this.readReplicas.checkLag();
+        when(this.first.dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertSame(this.primaryConnection, this.readReplicas.read(USER, this::connection));
+        // out of the rotation until the next lag check succeeds
+        assertSame(this.second.connection, this.readReplicas.read(USER, this::connection));
+        assertSame(this.second.connection, this.readReplicas.read(USER, this::connection));
+
+        this.readReplicas.checkLag();
+        assertTrue(Double.isNaN(this.meterRegistry.get("db.replica.lag").tag("replica", "replica-0")
+                .gauge().value()));
+    }
+
+    @Test
+    void givenNotAReplicaWhenCheckLagThenConsiderItInSync() throws SQLException {
+        when(this.first.result.next()).thenReturn(false);
+        this.readReplicas.checkLag();
+
+        assertSame(this.first.connection, this.readReplicas.read(USER, this::connection));
+    }
+
+    @Test
+    void givenNoReplicaWhenReadThenDoNothing() {
+        var disabled = new ReadReplicas(this.meterRegistry, List.of(), "", "", 1, MAX_LAG, MAX_LAG, CHECK_INTERVAL,
+                LAG_QUERY);
+        disabled.wrote(USER);
+        disabled.checkLag();
+
+        assertFalse(disabled.isEnabled());
+        assertEquals(USER, disabled.read(USER, () -> USER));
+        assertNull(disabled.replicaForCurrentRead());
+        disabled.close();
+    }
+
+    @Test
+    void givenReplicaUrlsWhenCreateThenBuildReadOnlyPools() {
+        var replicas = new ReadReplicas(this.meterRegistry, List.of("jdbc:postgresql://replica:5432/auth"), "user",
+                "secret", 1, MAX_LAG, MAX_LAG, CHECK_INTERVAL, LAG_QUERY);
+
+        assertTrue(replicas.isEnabled());
+        replicas.close();
+    }
+
+    private Connection connection() {
+        try {
+            return this.routing.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A replica whose lag query answers {@link #lagSeconds}.
+     */
+    private static final class FakeReplica {
+
+        private final DataSource dataSource = mock(DataSource.class);
+        private final Connection connection = mock(Connection.class);
+        private final Statement statement = mock(Statement.class);
+        private final ResultSet result = mock(ResultSet.class);
+        private double lagSeconds;
+
+        private FakeReplica() throws SQLException {
+            when(this.dataSource.getConnection()).thenReturn(this.connection);
+            when(this.connection.createStatement()).thenReturn(this.statement);
+            when(this.statement.executeQuery(LAG_QUERY)).thenReturn(this.result);
+            when(this.result.next()).thenReturn(true);
+            when(this.result.getDouble(1)).thenAnswer(invocation -> this.lagSeconds);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.abakudev.authservice.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class SnapshotStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+    private static final byte[] STATE = {1, 2, 4, -1};
+    private static final UUID DATABASE = UUID.randomUUID();
+
+    @TempDir
+    private Path directory;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FakeComponent component;
+    private SnapshotStore store;
+
+    @BeforeEach
+    void setUp() {
+        this.component = new FakeComponent(1, STATE);
+        this.store = new SnapshotStore(List.of(this.component), this.meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC),
+                this.directory, () -> DATABASE);
+    }
+
+    @Test
+    void givenWrittenSnapshotWhenStartThenRestore() {
+        this.store.write();
+
+        var restarted = new FakeComponent(1, null);
+        new SnapshotStore(List.of(restarted), this.meterRegistry, Clock.systemUTC(), this.directory,
+                () -> DATABASE).afterSingletonsInstantiated();
+
+        assertArrayEquals(STATE, restarted.restored);
+        assertEquals(NOW, restarted.writtenAt);
+        assertEquals(1, this.meterRegistry.get("cache.snapshot.write").tag("name", "fake").timer().count());
+        assertFalse(Files.exists(this.directory.resolve("fake.snapshot.tmp")));
+    }
+
+    @Test
+    void givenNoSnapshotWhenStartThenStartCold() {
+        this.store.afterSingletonsInstantiated();
+
+        assertNull(this.component.restored);
+    }
+
+    @Test
+    void givenOtherVersionWhenStartThenStartCold() {
+        this.store.write();
+
+        var upgraded = new FakeComponent(2, null);
+        new SnapshotStore(List.of(upgraded), this.meterRegistry, Clock.systemUTC(), this.directory,
+                () -> DATABASE).afterSingletonsInstantiated();
+
+        assertNull(upgraded.restored);
+    }
+
+    @Test
+    void givenCorruptedSnapshotWhenStartThenStartCold() throws IOException {
+        this.store.write();
+        final Path file = this.directory.resolve("fake.snapshot");
+        final byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        this.store.afterSingletonsInstantiated();
+
+        assertNull(this.component.restored);
+    }
+
+    @Test
+    void givenTruncatedSnapshotWhenStartThenStartCold() throws IOException {
+        this.store.write();
+        final Path file = this.directory.resolve("fake.snapshot");
+        final byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        this.store.afterSingletonsInstantiated();
+        Files.write(file, new byte[]{1, 2});
+        this.store.afterSingletonsInstantiated();
+
+        assertNull(this.component.restored);
+    }
+
+    @Test
+    void givenRecreatedDatabaseWhenStartThenStartCold() {
+        this.store.write();
+
+        var restarted = new FakeComponent(1, null);
+        new SnapshotStore(List.of(restarted), this.meterRegistry, Clock.systemUTC(), this.directory,
+                UUID::randomUUID).afterSingletonsInstantiated();
+
+        assertNull(restarted.restored);
+    }
+
+    @Test
+    void givenUnreachableDatabaseWhenStartThenRestoreAndWriteOnceKnown() {
+        this.store.write();
+        final UUID[] identity = {null};
+        var restarted = new FakeComponent(1, null);
+        var store = new SnapshotStore(List.of(restarted), this.meterRegistry, Clock.systemUTC(), this.directory,
+                () -> {
+                    if (identity[0] == null) {
+                        throw new IllegalStateException("database unavailable");
+                    }
+                    return identity[0];
+                });
+
+        store.afterSingletonsInstantiated();
+        restarted.state = new byte[]{2};
+        store.write();
+        assertArrayEquals(STATE, restarted.restored);
+        assertEquals(1, this.meterRegistry.get("cache.snapshot.write").tag("name", "fake").timer().count());
+
+        identity[0] = DATABASE;
+        store.write();
+        store.afterSingletonsInstantiated();
+        assertArrayEquals(new byte[]{2}, restarted.restored);
+    }
+
+    @Test
+    void givenNothingToWriteWhenWriteThenKeepPreviousSnapshot() {
+        this.store.write();
+        this.component.state = null;
+
+        this.store.write();
+        this.component.state = STATE;
+        this.store.afterSingletonsInstantiated();
+
+        assertArrayEquals(STATE, this.component.restored);
+    }
+
+    @Test
+    void givenFailingComponentWhenWriteThenWriteTheOthers() {
+        final Snapshotted failing = new FakeComponent(1, STATE) {
+            @Override
+            public ByteBuffer snapshot() {
+                throw new IllegalStateException("failed");
+            }
+
+            @Override
+            public String snapshotName() {
+                return "failing";
+            }
+        };
+        new SnapshotStore(List.of(failing, this.component), this.meterRegistry, Clock.systemUTC(), this.directory,
+                () -> DATABASE).write();
+
+        assertFalse(Files.exists(this.directory.resolve("failing.snapshot")));
+        assertEquals(1, this.meterRegistry.get("cache.snapshot.write").tag("name", "fake").timer().count());
+    }
+
+    @Test
+    void givenNoDirectoryWhenWriteOrStartThenDoNothing() {
+        var disabled = new SnapshotStore(List.of(this.component), this.meterRegistry,
+                mock(DatabaseIdentityRepository.class), "");
+
+        disabled.write();
+        disabled.afterSingletonsInstantiated();
+
+        assertNull(this.component.restored);
+    }
+
+    /**
+     * A component whose state is a byte array.
+     */
+    private static class FakeComponent implements Snapshotted {
+
+        private final int version;
+        private byte[] state;
+        private byte[] restored;
+        private Instant writtenAt;
+
+        FakeComponent(int version, byte[] state) {
+            this.version = version;
+            this.state = state;
+        }
+
+        @Override
+        public String snapshotName() {
+            return "fake";
+        }
+
+        @Override
+        public int snapshotVersion() {
+            return this.version;
+        }
+
+        @Override
+        public ByteBuffer snapshot() {
+            return this.state == null ? null : ByteBuffer.wrap(this.state);
+        }
+
+        @Override
+        public void restore(ByteBuffer content, Instant writtenAt) {
+            this.restored = new byte[content.remaining()];
+            content.get(this.restored);
+            this.writtenAt = writtenAt;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DegradedValidationTest {
+
+    private static final String SECRET_KEY = "4c071eedf337979811a68ec8f8061b06b2ac42cb609b7f161686d79d9a4f006c";
+    private static final long EXPIRATION = 60_000L;
+    private static final Duration MAX_STALENESS = Duration.ofMinutes(1);
+    private static final int MAX_ENTRIES = 2;
+    private static final String SESSION = "session-1";
+
+    private final JwtService jwtService = new JwtService();
+    private final TokenEpochs tokenEpochs = new TokenEpochs();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Clock clock = mock(Clock.class);
+    private final AuthenticatedUser user = new AuthenticatedUser(1, "user@mail.com", "hash", Role.USER.name(), 0);
+    private long now;
+    private DegradedValidation degradedValidation;
+    private String jwt;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(this.jwtService, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(this.jwtService, "jwtExpiration", EXPIRATION);
+        ReflectionTestUtils.setField(this.jwtService, "refreshExpiration", EXPIRATION);
+        // the expiration of the tokens follows the system clock
+        this.now = System.currentTimeMillis();
+        when(this.clock.millis()).thenAnswer(invocation -> this.now);
+        this.degradedValidation = new DegradedValidation(this.jwtService, this.tokenEpochs, this.meterRegistry,
+                this.clock, MAX_STALENESS, MAX_ENTRIES);
+        this.jwt = this.jwtService.generateToken(this.user, SESSION);
+    }
+
+    @Test
+    void givenKnownUserWhenValidateThenAcceptFromMemory() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+
+        assertEquals(Optional.of(this.user), validate(this.jwt));
+        assertEquals(1, this.meterRegistry.get("auth.degraded.requests").tag("outcome", "accepted").counter()
+                .count());
+    }
+
+    @Test
+    void givenUnknownUserWhenValidateThenReject() {
+        assertEquals(Optional.empty(), validate(this.jwt));
+        assertEquals(1, this.meterRegistry.get("auth.degraded.requests").tag("outcome", "rejected").counter()
+                .count());
+    }
+
+    @Test
+    void givenSnapshotTooOldWhenValidateThenReject() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+        this.now += MAX_STALENESS.toMillis() + 1;
+
+        assertEquals(Optional.empty(), validate(this.jwt));
+    }
+
+    @Test
+    void givenRevokedSessionWhenValidateThenReject() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+        this.degradedValidation.revokeSession(SESSION);
+
+        assertEquals(Optional.empty(), validate(this.jwt));
+        // the other sessions of the user are still accepted
+        assertEquals(Optional.of(this.user), validate(this.jwtService.generateToken(this.user, "session-2")));
+    }
+
+    @Test
+    void givenRevokedTokenWhenValidateThenReject() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+        this.degradedValidation.revokeToken(this.jwt, this.jwtService.extractAllClaims(this.jwt).getExpiration());
+
+        assertEquals(Optional.empty(), validate(this.jwt));
+    }
+
+    @Test
+    void givenEpochAdvancedWhenValidateThenReject() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+        this.tokenEpochs.advance(this.user.id(), 1);
+
+        assertEquals(Optional.empty(), validate(this.jwt));
+    }
+
+    @Test
+    void givenReferenceTokenWhenValidateThenCheckUserEpochAndSession() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+        final var referenceToken = new ReferenceTokens.ReferenceToken(1, this.user.email(), SESSION, 0,
+                this.now + EXPIRATION, this.now);
+
+        assertEquals(Optional.of(this.user), this.degradedValidation.validate(referenceToken));
+        this.degradedValidation.revokeSession(SESSION);
+        assertEquals(Optional.empty(), this.degradedValidation.validate(referenceToken));
+    }
+
+    @Test
+    void givenExpiredEntriesWhenPruneThenForgetThem() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+        this.degradedValidation.revokeToken(this.jwt, this.jwtService.extractAllClaims(this.jwt).getExpiration());
+        this.degradedValidation.revokeSession(null);
+
+        this.now += EXPIRATION + 1;
+        this.degradedValidation.prune();
+
+        assertEquals(0, this.degradedValidation.size());
+    }
+
+    @Test
+    void givenLimitReachedWhenRememberThenOnlyRefreshKnownUsers() {
+        this.degradedValidation.remember("first@mail.com", this.user);
+        this.degradedValidation.remember("second@mail.com", this.user);
+        this.degradedValidation.remember(this.user.email(), this.user);
+
+        assertEquals(Optional.empty(), validate(this.jwt));
+        this.degradedValidation.remember("first@mail.com", this.user);
+        assertEquals(MAX_ENTRIES, this.degradedValidation.size());
+    }
+
+    @Test
+    void givenSnapshotWhenRestoreThenValidateWithoutPasswordHash() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+        this.degradedValidation.revokeSession(SESSION);
+        var snapshot = this.degradedValidation.snapshot();
+
+        var restarted = new DegradedValidation(this.jwtService, this.tokenEpochs, this.meterRegistry, this.clock,
+                MAX_STALENESS, MAX_ENTRIES);
+        restarted.restore(snapshot, Instant.ofEpochMilli(this.now));
+
+        assertEquals(Optional.empty(), restarted.validate(this.jwt, this.jwtService.extractAllClaims(this.jwt)));
+        var other = this.jwtService.generateToken(this.user, "session-2");
+        assertEquals(Optional.of(new AuthenticatedUser(this.user.id(), this.user.email(), null, this.user.role(),
+                this.user.tokenEpoch())), restarted.validate(other, this.jwtService.extractAllClaims(other)));
+    }
+
+    @Test
+    void givenStaleSnapshotWhenRestoreThenForgetUsers() {
+        this.degradedValidation.remember(this.user.email(), this.user);
+        var snapshot = this.degradedValidation.snapshot();
+
+        this.now += MAX_STALENESS.toMillis() + 1;
+        var restarted = new DegradedValidation(this.jwtService, this.tokenEpochs, this.meterRegistry, this.clock,
+                MAX_STALENESS, MAX_ENTRIES);
+        restarted.restore(snapshot, Instant.ofEpochMilli(this.now));
+
+        assertEquals(0, restarted.size());
+    }
+
+    private Optional<?> validate(String token) {
+        return this.degradedValidation.validate(token, this.jwtService.extractAllClaims(token));
+    }
+}
@@ -0,0 +1,49 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.EmailMembershipIndex;
+import com.abakudev.authservice.user.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailIndexedUserDetailsServiceTest {
+
+    private UserDetailsService delegate;
+    private EmailMembershipIndex emailIndex;
+    private EmailIndexedUserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        this.delegate = mock(UserDetailsService.class);
+        this.emailIndex = mock(EmailMembershipIndex.class);
+        this.userDetailsService = new EmailIndexedUserDetailsService(this.delegate, this.emailIndex);
+    }
+
+    @Test
+    void givenUnknownEmailWhenLoadUserThenRejectWithoutLookup() {
+        when(this.emailIndex.mightContain("unknown@mail.com")).thenReturn(false);
+        assertThrows(UsernameNotFoundException.class,
+                () -> this.userDetailsService.loadUserByUsername("unknown@mail.com"));
+        verify(this.delegate, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void givenIndexedEmailWhenLoadUserThenDelegateAndTrackLatency() {
+        var user = new AuthenticatedUser(1, "user@mail.com", "hash", Role.USER.name(), 0);
+        when(this.emailIndex.mightContain("user@mail.com")).thenReturn(true);
+        when(this.delegate.loadUserByUsername("user@mail.com")).thenReturn(user);
+        assertEquals(user, this.userDetailsService.loadUserByUsername("user@mail.com"));
+        assertTrue(this.userDetailsService.averageLookupNanos() > 0);
+    }
+}
@@ -0,0 +1,306 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.RequiredTypeException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the codec against jjwt: the same tokens for the same claims, the same claims for the same tokens, and jjwt's
+ * outcome for every token the codec leaves to it.
+ */
+class Hs256TokenCodecTest {
+
+    private static final String SECRET_KEY = "4c071eedf337979811a68ec8f8061b06b2ac42cb609b7f161686d79d9a4f006c";
+    private static final byte[] KEY_BYTES = Decoders.BASE64.decode(SECRET_KEY);
+    private static final Key KEY = Keys.hmacShaKeyFor(KEY_BYTES);
+    private static final long EXPIRATION = Duration.ofHours(1).toMillis();
+    private static final String SUBJECT = "user@mail.com";
+    private static final String SESSION = UUID.randomUUID().toString();
+    private static final int EPOCH = 7;
+    private static final long SEED = 42L;
+    private static final int RANDOM_TOKENS = 500;
+    private static final int THREADS = 8;
+    private static final int TOKENS_PER_THREAD = 200;
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final Hs256TokenCodec codec = new Hs256TokenCodec(KEY_BYTES);
+    private final JwtService jwtService = new JwtService();
+    private final AuthenticatedUser user = new AuthenticatedUser(1, SUBJECT, "hash", Role.USER.name(), EPOCH);
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(this.jwtService, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(this.jwtService, "jwtExpiration", EXPIRATION);
+        ReflectionTestUtils.setField(this.jwtService, "refreshExpiration", EXPIRATION);
+        this.now = System.currentTimeMillis();
+    }
+
+    @Test
+    void givenUsualClaimsWhenEncodeThenSameTokenAsJjwt() {
+        final String id = UUID.randomUUID().toString();
+        final long expiration = this.now + EXPIRATION;
+
+        assertEncodedAsJjwt(SESSION, EPOCH, id, SUBJECT, this.now, expiration);
+        assertEncodedAsJjwt(null, EPOCH, id, SUBJECT, this.now, expiration);
+        assertEncodedAsJjwt(SESSION, null, id, SUBJECT, this.now, expiration);
+        assertEncodedAsJjwt(null, null, id, SUBJECT, this.now, expiration);
+        assertEncodedAsJjwt(SESSION, -1, id, "", this.now, expiration);
+        assertEncodedAsJjwt(SESSION, Integer.MAX_VALUE, id, SUBJECT, 0, Long.MAX_VALUE);
+    }
+
+    @Test
+    void givenJjwtTokenWhenDecodeThenSameClaimsAsJjwt() {
+        final String token = jjwt(SESSION, EPOCH, UUID.randomUUID().toString(), SUBJECT, this.now,
+                this.now + EXPIRATION);
+
+        final Claims expected = parse(token);
+        final Claims claims = this.codec.decode(token);
+
+        assertNotNull(claims);
+        assertEquals(expected, claims);
+        assertEquals(claims, expected);
+        assertEquals(expected.hashCode(), claims.hashCode());
+        assertEquals(expected.getSubject(), claims.getSubject());
+        assertEquals(expected.getId(), claims.getId());
+        assertEquals(expected.getIssuedAt(), claims.getIssuedAt());
+        assertEquals(expected.getExpiration(), claims.getExpiration());
+        assertNull(claims.getIssuer());
+        assertNull(claims.getAudience());
+        assertNull(claims.getNotBefore());
+        assertEquals(expected.get(JwtService.EPOCH_CLAIM, Integer.class),
+                claims.get(JwtService.EPOCH_CLAIM, Integer.class));
+        assertEquals(expected.get(JwtService.EPOCH_CLAIM, Long.class), claims.get(JwtService.EPOCH_CLAIM, Long.class));
+        assertEquals(expected.get(Claims.EXPIRATION, Date.class), claims.get(Claims.EXPIRATION, Date.class));
+        assertEquals(expected.get(JwtService.SESSION_CLAIM, String.class),
+                claims.get(JwtService.SESSION_CLAIM, String.class));
+        assertEquals(JwtService.epochOf(expected), JwtService.epochOf(claims));
+        assertTrue(claims.containsKey(Claims.SUBJECT));
+        assertFalse(claims.containsKey(Claims.ISSUER));
+        assertNull(claims.get(1));
+    }
+
+    @Test
+    void givenRandomClaimsWhenEncodeAndDecodeThenSameAsJjwt() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i < RANDOM_TOKENS; i++) {
+            final String sessionId = random.nextBoolean() ? UUID.randomUUID().toString() : null;
+            final Integer epoch = random.nextBoolean() ? random.nextInt() : null;
+            final String subject = randomPrintable(random) + "@mail.com";
+            final long issuedAt = this.now - random.nextInt(Integer.MAX_VALUE);
+            final long expiration = this.now + 1 + Math.abs(random.nextLong() % EXPIRATION);
+            final String id = UUID.randomUUID().toString();
+
+            final String token = this.codec.encode(sessionId, epoch, id, subject, issuedAt, expiration);
+
+            assertEquals(jjwt(sessionId, epoch, id, subject, issuedAt, expiration), token);
+            assertEquals(parse(token), this.codec.decode(token));
+        }
+    }
+
+    @Test
+    void givenTokenOutsideFastPathWhenDecodeThenLeaveItToJjwt() {
+        final String token = this.codec.encode(SESSION, EPOCH, UUID.randomUUID().toString(), SUBJECT, this.now,
+                this.now + EXPIRATION);
+        final String[] segments = token.split("\\.");
+
+        assertNull(this.codec.decode(Jwts.builder().setSubject(SUBJECT).claim("role", "ADMIN")
+                .signWith(KEY, SignatureAlgorithm.HS256).compact()));
+        assertNull(this.codec.decode(Jwts.builder().setSubject(SUBJECT)
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET_KEY + SECRET_KEY)),
+                        SignatureAlgorithm.HS512).compact()));
+        assertNull(this.codec.decode(Jwts.builder().setHeaderParam("typ", "JWT").setSubject(SUBJECT)
+                .signWith(KEY, SignatureAlgorithm.HS256).compact()));
+        assertNull(this.codec.decode(segments[0] + "." + segments[1] + "." + flip(segments[2])));
+        assertNull(this.codec.decode(segments[0] + "." + segments[1] + "." + segments[2].substring(1)));
+        assertNull(this.codec.decode(segments[0] + "." + flip(segments[1]) + "." + segments[2]));
+        assertNull(this.codec.decode(segments[0] + "." + segments[1] + "é." + segments[2]));
+        assertNull(this.codec.decode(segments[0] + "." + segments[1] + ".." + segments[2]));
+        assertNull(this.codec.decode(token + "."));
+        assertNull(this.codec.decode("a.b.c"));
+        assertNull(this.codec.decode(""));
+        assertNull(this.codec.decode(this.codec.encode(null, null, "id", SUBJECT, this.now - EXPIRATION,
+                this.now - 1)));
+    }
+
+    @Test
+    void givenSignedPayloadNotWrittenAsJjwtDoesWhenDecodeThenLeaveItToJjwt() throws GeneralSecurityException {
+        assertNotNull(this.codec.decode(signed("{\"sub\":\"a\",\"epoch\":-1}")));
+        assertNotNull(this.codec.decode(signed("{\"iat\":1,\"exp\":99999999999}")));
+        for (String payload : List.of("{\"sub\":\"a\",\"role\":\"ADMIN\"}", "{\"sub\": \"a\"}", "{\"sub\":\"a\\\"\"}",
+                "{\"sub\":\"a\",\"sub\":\"b\"}", "{\"sid\":\"a\",\"sid\":\"b\"}", "{\"jti\":\"a\",\"jti\":\"b\"}",
+                "{\"iat\":1,\"iat\":1}", "{\"exp\":1,\"exp\":1}", "{\"epoch\":1,\"epoch\":1}",
+                "{\"epoch\":99999999999}", "{\"iat\":1.5}", "{\"iat\":1e3}", "{\"iat\":01}", "{\"iat\":-}",
+                "{\"iat\":1234567890123456789}", "{\"sub\":1}", "{\"sub\":\"a", "{\"sub\":\"\u0001\"}", "{sub:1}",
+                "{\"sub\":\"a\"}x", "{\"sub\":\"a\"", "[]", "{}")) {
+            assertNull(this.codec.decode(signed(payload)), payload);
+        }
+        assertNull(this.codec.decode(sign("eyJhbGciOiJIUzI1NiJ9.e30$")));
+        assertNull(this.codec.decode(sign("eyJhbGciOiJIUzI1NiJ9.e")));
+    }
+
+    @Test
+    void givenStringNeedingEscapeWhenEncodeThenLeaveItToJjwt() {
+        assertNull(this.codec.encode(null, null, "id", "usér@mail.com", this.now, this.now + EXPIRATION));
+        assertNull(this.codec.encode("\"", null, "id", SUBJECT, this.now, this.now + EXPIRATION));
+        assertNull(this.codec.encode(null, null, "\\", SUBJECT, this.now, this.now + EXPIRATION));
+        assertNull(this.codec.encode(null, null, "id", "\n", this.now, this.now + EXPIRATION));
+    }
+
+    @Test
+    void givenTokensNotHandledByCodecWhenJwtServiceThenAsJjwt() {
+        final String withRole = this.jwtService.generateToken(Map.of("role", "ADMIN"), this.user);
+        final String nonAscii = this.jwtService.generateToken(
+                new AuthenticatedUser(1, "usér@mail.com", "hash", Role.USER.name(), 0), SESSION);
+        final String token = this.jwtService.generateToken(this.user, SESSION);
+        final String expired = Jwts.builder().setSubject(SUBJECT).setExpiration(new Date(this.now - 1))
+                .signWith(KEY, SignatureAlgorithm.HS256).compact();
+
+        assertEquals(parse(withRole), this.jwtService.extractAllClaims(withRole));
+        assertEquals("ADMIN", this.jwtService.extractClaim(withRole, claims -> claims.get("role")));
+        assertEquals("usér@mail.com", this.jwtService.extractUsername(nonAscii));
+        assertEquals(SESSION, this.jwtService.extractSessionId(nonAscii));
+        assertEquals(EPOCH, this.jwtService.extractEpoch(token));
+        assertTrue(this.jwtService.isTokenValid(token, this.user));
+        assertThrows(ExpiredJwtException.class, () -> this.jwtService.extractAllClaims(expired));
+        assertThrows(SignatureException.class, () -> this.jwtService.extractAllClaims(token.substring(0,
+                token.length() - 2) + flip(token.substring(token.length() - 2))));
+        assertThrows(MalformedJwtException.class, () -> this.jwtService.extractAllClaims("a.b.c"));
+    }
+
+    @Test
+    void givenParsedClaimsWhenModifyOrReadAsWrongTypeThenThrow() {
+        final Claims claims = this.codec.decode(this.codec.encode(SESSION, EPOCH, "id", SUBJECT, this.now,
+                this.now + EXPIRATION));
+
+        assertNotNull(claims);
+        assertThrows(RequiredTypeException.class, () -> claims.get(Claims.SUBJECT, Integer.class));
+        assertThrows(RequiredTypeException.class, () -> claims.get(JwtService.EPOCH_CLAIM, String.class));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setSubject(SUBJECT));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setIssuer(SUBJECT));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setAudience(SUBJECT));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setId(SUBJECT));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setIssuedAt(new Date()));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setExpiration(new Date()));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setNotBefore(new Date()));
+        assertThrows(UnsupportedOperationException.class, () -> claims.put(Claims.SUBJECT, SUBJECT));
+    }
+
+    @Test
+    void givenConcurrentCallersWhenEncodeAndDecodeThenShareTheMacs() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < TOKENS_PER_THREAD; j++) {
+                        final String id = UUID.randomUUID().toString();
+                        final Claims claims = this.codec.decode(this.codec.encode(SESSION, j, id, SUBJECT, this.now,
+                                this.now + EXPIRATION));
+                        if (claims == null || !id.equals(claims.getId())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertEncodedAsJjwt(String sessionId, Integer epoch, String id, String subject, long issuedAt,
+                                     long expiration) {
+        assertEquals(jjwt(sessionId, epoch, id, subject, issuedAt, expiration),
+                this.codec.encode(sessionId, epoch, id, subject, issuedAt, expiration));
+    }
+
+    /**
+     * Builds the token as {@link JwtService} did with jjwt alone.
+     */
+    private static String jjwt(String sessionId, Integer epoch, String id, String subject, long issuedAt,
+                               long expiration) {
+        final Map<String, Object> extraClaims = new LinkedHashMap<>();
+        if (sessionId != null) {
+            extraClaims.put(JwtService.SESSION_CLAIM, sessionId);
+        }
+        var builder = Jwts.builder().setClaims(extraClaims);
+        if (epoch != null) {
+            builder.claim(JwtService.EPOCH_CLAIM, epoch);
+        }
+        return builder.setId(id)
+                .setSubject(subject)
+                .setIssuedAt(new Date(issuedAt))
+                .setExpiration(new Date(expiration))
+                .signWith(KEY, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private static Claims parse(String token) {
+        return Jwts.parserBuilder().setSigningKey(KEY).build().parseClaimsJws(token).getBody();
+    }
+
+    private static String signed(String payload) throws GeneralSecurityException {
+        return sign("eyJhbGciOiJIUzI1NiJ9." + BASE64_URL.encodeToString(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String sign(String content) throws GeneralSecurityException {
+        final Mac mac = Mac.getInstance(Hs256TokenCodec.ALGORITHM);
+        mac.init(new SecretKeySpec(KEY_BYTES, Hs256TokenCodec.ALGORITHM));
+        return content + "." + BASE64_URL.encodeToString(mac.doFinal(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String flip(String segment) {
+        return (segment.charAt(0) == 'A' ? 'B' : 'A') + segment.substring(1);
+    }
+
+    private static String randomPrintable(Random random) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = random.nextInt(Byte.MAX_VALUE / 4); i > 0; i--) {
+            final char c = (char) (' ' + random.nextInt('~' - ' ' + 1));
+            if (c != '"' && c != '\\') {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -1,8 +1,11 @@
 package com.abakudev.authservice.security;
 
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.persistence.ReadReplicas;
 import com.abakudev.authservice.token.Token;
 import com.abakudev.authservice.token.TokenRepository;
 import com.abakudev.authservice.token.TokenType;
+import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +15,7 @@ import java.util.Optional;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -19,6 +23,11 @@ import static org.mockito.Mockito.when;
 class LogoutServiceTest {
 
     private TokenRepository tokenRepository;
+    private EntityCacheEviction cacheEviction;
+    private JwtService jwtService;
+    private ReadReplicas readReplicas;
+    private DegradedValidation degradedValidation;
+    private ReferenceTokens referenceTokens;
     private LogoutService logoutService;
     private String mockJwtToken;
     private Token mockToken;
@@ -26,12 +35,19 @@ class LogoutServiceTest {
     @BeforeEach
     void setUp() {
         this.tokenRepository = mock(TokenRepository.class);
-        this.logoutService = new LogoutService(this.tokenRepository);
+        this.cacheEviction = mock(EntityCacheEviction.class);
+        this.jwtService = mock(JwtService.class);
+        this.readReplicas = mock(ReadReplicas.class);
+        this.degradedValidation = mock(DegradedValidation.class);
+        this.referenceTokens = mock(ReferenceTokens.class);
+        this.logoutService = new LogoutService(this.tokenRepository, this.cacheEviction, this.jwtService,
+                this.readReplicas, this.degradedValidation, this.referenceTokens);
         this.mockJwtToken = "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.eyJzdWIiOiIxMjM0NTY3ODkwIiwibmFtZSI6IkpvaG4gRG9"
                 + "lIiwiaWF0IjoxNTE2MjM5MDIyfQ.SflKxwRJSMeKKF2QT4fwpMeJf36POk6yJV_adQssw5c";
 
         this.mockToken = Token.builder()
                 .id(1)
+                .sessionId("session-1")
                 .tokenValue(this.mockJwtToken)
                 .tokenType(TokenType.BEARER)
                 .revoked(false)
@@ -45,8 +61,25 @@ class LogoutServiceTest {
         when(request.getHeader("Authorization")).thenReturn("Bearer " + this.mockJwtToken);
         when(this.tokenRepository.findByTokenValue(anyString())).thenReturn(Optional.ofNullable(this.mockToken));
         when(this.tokenRepository.save(any())).thenReturn(this.mockToken);
+        when(this.jwtService.extractUsername(this.mockJwtToken)).thenReturn("user@mail.com");
         this.logoutService.logout(request, null, null);
         verify(this.tokenRepository, times(1)).findByTokenValue(anyString());
         verify(this.tokenRepository, times(1)).save(any());
+        verify(this.cacheEviction).evictToken(1);
+        verify(this.readReplicas).wrote("user@mail.com");
+        verify(this.degradedValidation).revokeSession("session-1");
+        verify(this.referenceTokens).revoke(this.mockJwtToken);
+    }
+
+    @Test
+    void givenExpiredTokenWhenLogoutThenRevokeWithoutReadingFromPrimary() {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + this.mockJwtToken);
+        when(this.tokenRepository.findByTokenValue(anyString())).thenReturn(Optional.ofNullable(this.mockToken));
+        when(this.jwtService.extractUsername(this.mockJwtToken))
+                .thenThrow(new ExpiredJwtException(null, null, "expired"));
+        this.logoutService.logout(request, null, null);
+        verify(this.tokenRepository, times(1)).save(any());
+        verify(this.readReplicas, never()).wrote(anyString());
     }
 }
@@ -0,0 +1,132 @@
+package com.abakudev.authservice.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final int FOLLOWERS = 20;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Test
+    void givenConcurrentCallsForKeyWhenExecuteThenShareOneLookup() throws Exception {
+        final CompletableFuture<String> leader = runLeader(() -> "user-" + this.lookups.incrementAndGet());
+        final List<CompletableFuture<String>> followers = startFollowers();
+
+        this.release.countDown();
+
+        assertEquals("user-1", leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (CompletableFuture<String> follower : followers) {
+            assertEquals("user-1", follower.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertEquals(1, this.lookups.get());
+        assertEquals(0, this.singleFlight.inFlightCount());
+    }
+
+    @Test
+    void givenFailingLookupWhenExecuteThenThrowFailureToEveryCaller() throws Exception {
+        final CompletableFuture<String> leader = runLeader(() -> {
+            throw new IllegalStateException("database down");
+        });
+        final List<CompletableFuture<String>> followers = startFollowers();
+
+        this.release.countDown();
+
+        var leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+        for (CompletableFuture<String> follower : followers) {
+            var failure = assertThrows(ExecutionException.class, () -> follower.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+        }
+        assertEquals(0, this.singleFlight.inFlightCount());
+    }
+
+    @Test
+    void givenLookupInFlightWhenExecuteOtherKeyThenRunOwnLookup() throws Exception {
+        final CompletableFuture<String> leader = runLeader(() -> "a");
+
+        assertEquals("b", this.singleFlight.execute("other@mail.com", () -> "b"));
+
+        this.release.countDown();
+        assertEquals("a", leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenSequentialCallsWhenExecuteThenNothingIsCached() {
+        this.singleFlight.execute("user@mail.com", () -> "user-" + this.lookups.incrementAndGet());
+        assertEquals("user-2",
+                this.singleFlight.execute("user@mail.com", () -> "user-" + this.lookups.incrementAndGet()));
+    }
+
+    /**
+     * Starts the lookup of {@code user@mail.com} and keeps it in flight until {@link #release}.
+     */
+    private CompletableFuture<String> runLeader(Supplier<String> lookup) throws InterruptedException {
+        final CompletableFuture<String> leader = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                leader.complete(this.singleFlight.execute("user@mail.com", () -> {
+                    this.started.countDown();
+                    awaitRelease();
+                    return lookup.get();
+                }));
+            } catch (RuntimeException e) {
+                leader.completeExceptionally(e);
+            }
+        });
+        assertTrue(this.started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return leader;
+    }
+
+    /**
+     * Starts callers for the in-flight key and waits until all of them are parked on the flight.
+     */
+    private List<CompletableFuture<String>> startFollowers() throws InterruptedException {
+        final List<CompletableFuture<String>> followers = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            final CompletableFuture<String> follower = new CompletableFuture<>();
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    follower.complete(this.singleFlight.execute("user@mail.com",
+                            () -> "follower-" + this.lookups.incrementAndGet()));
+                } catch (RuntimeException e) {
+                    follower.completeExceptionally(e);
+                }
+            }));
+            followers.add(follower);
+        }
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (threads.stream().anyMatch(t -> t.getState() != Thread.State.WAITING)) {
+            assertTrue(System.nanoTime() < deadline, "followers did not join the flight");
+            Thread.sleep(1);
+        }
+        return followers;
+    }
+
+    private void awaitRelease() {
+        try {
+            assertTrue(this.release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenEpochsTest {
+
+    private TokenEpochs tokenEpochs;
+
+    @BeforeEach
+    void setUp() {
+        this.tokenEpochs = new TokenEpochs();
+    }
+
+    @Test
+    void givenSnapshotWhenRestoreThenKeepHighestEpochs() {
+        this.tokenEpochs.advance(1, 2);
+        this.tokenEpochs.advance(2, 1);
+        var snapshot = this.tokenEpochs.snapshot();
+
+        var restarted = new TokenEpochs();
+        restarted.advance(2, 2);
+        restarted.restore(snapshot, Instant.now());
+
+        assertEquals(2, restarted.current(user(1, 0)));
+        assertEquals(2, restarted.current(user(2, 0)));
+    }
+
+    @Test
+    void givenUnknownUserWhenCurrentThenUseLoadedEpoch() {
+        assertEquals(2, this.tokenEpochs.current(user(1, 2)));
+        assertTrue(this.tokenEpochs.isCurrent(2, user(1, 2)));
+        assertFalse(this.tokenEpochs.isCurrent(1, user(1, 2)));
+    }
+
+    @Test
+    void givenAdvancedEpochWhenStaleUserLoadedThenKeepAdvancedEpoch() {
+        this.tokenEpochs.advance(1, 2);
+        assertEquals(2, this.tokenEpochs.current(user(1, 0)));
+        assertFalse(this.tokenEpochs.isCurrent(1, user(1, 0)));
+    }
+
+    @Test
+    void givenEpochAdvancedElsewhereWhenUserLoadedThenUseLoadedEpoch() {
+        this.tokenEpochs.advance(1, 1);
+        assertEquals(2, this.tokenEpochs.current(user(1, 2)));
+    }
+
+    @Test
+    void givenDatabaseCaughtUpWhenUserLoadedThenForgetEpoch() {
+        this.tokenEpochs.advance(1, 2);
+        this.tokenEpochs.advance(2, 2);
+        assertEquals(2, this.tokenEpochs.current(user(1, 2)));
+        assertEquals(2, this.tokenEpochs.current(user(2, 1)));
+        assertEquals(1, this.tokenEpochs.size());
+    }
+
+    @Test
+    void givenUsersWithoutRevocationWhenLoadedThenKeepNothing() {
+        this.tokenEpochs.current(user(1, 0));
+        this.tokenEpochs.current(user(2, 2));
+        assertEquals(0, this.tokenEpochs.size());
+    }
+
+    @Test
+    void givenUserIdWhenCurrentThenCombineWithLoadedEpoch() {
+        this.tokenEpochs.advance(1, 2);
+        assertEquals(2, this.tokenEpochs.current(1, 1));
+        assertEquals(4, this.tokenEpochs.current(1, 4));
+    }
+
+    @Test
+    void givenLowerEpochWhenAdvanceThenIgnore() {
+        this.tokenEpochs.advance(1, 2);
+        this.tokenEpochs.advance(1, 1);
+        assertEquals(2, this.tokenEpochs.current(user(1, 0)));
+        assertEquals(0, this.tokenEpochs.current(user(2, 0)));
+    }
+
+    private static AuthenticatedUser user(int id, int tokenEpoch) {
+        return new AuthenticatedUser(id, "user" + id + "@mail.com", "hash", Role.USER.name(), tokenEpoch);
+    }
+}
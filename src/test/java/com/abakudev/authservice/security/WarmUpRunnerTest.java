@@ -0,0 +1,113 @@
+package com.abakudev.authservice.security;
+
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import com.abakudev.authservice.user.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class WarmUpRunnerTest {
+
+    private static final String SECRET_KEY = "4c071eedf337979811a68ec8f8061b06b2ac42cb609b7f161686d79d9a4f006c";
+    private static final long EXPIRATION = 60_000L;
+    private static final int BCRYPT_MIN_STRENGTH = 4;
+    private static final int TOKEN_ROUNDS = 6;
+    private static final int PASSWORD_ROUNDS = 3;
+    private static final Duration BUDGET = Duration.ofMinutes(1);
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final JwtService jwtService = new JwtService();
+    private final RoleRegistry roleRegistry = new RoleRegistry();
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(BCRYPT_MIN_STRENGTH);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(this.jwtService, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(this.jwtService, "jwtExpiration", EXPIRATION);
+        ReflectionTestUtils.setField(this.jwtService, "refreshExpiration", EXPIRATION);
+        this.roleRegistry.update(Map.of(Role.USER.name(), Set.of(), Role.ADMIN.name(), Set.of("admin:read")));
+    }
+
+    @Test
+    void givenBudgetLeftWhenWarmUpThenRunAllRounds() {
+        var runner = new WarmUpRunner(this.jwtService, this.roleRegistry, this.passwordEncoder, Clock.systemUTC(),
+                true, BUDGET, TOKEN_ROUNDS, PASSWORD_ROUNDS);
+
+        var result = runner.warmUp();
+
+        assertEquals(TOKEN_ROUNDS, result.tokenRounds());
+        assertEquals(PASSWORD_ROUNDS, result.passwordRounds());
+        assertFalse(result.budgetExhausted());
+    }
+
+    @Test
+    void givenBudgetSpentWhenWarmUpThenStop() {
+        var clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(START, START, START.plus(BUDGET));
+        var runner = new WarmUpRunner(this.jwtService, this.roleRegistry, this.passwordEncoder, clock, true, BUDGET,
+                TOKEN_ROUNDS, PASSWORD_ROUNDS);
+
+        var result = runner.warmUp();
+
+        assertEquals(0, result.tokenRounds());
+        assertEquals(1, result.passwordRounds());
+        assertEquals(BUDGET, result.elapsed());
+        assertTrue(result.budgetExhausted());
+    }
+
+    @Test
+    void givenEncoderNotMatchingItsHashWhenWarmUpThenFail() {
+        var encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenReturn("hash");
+        var runner = new WarmUpRunner(this.jwtService, this.roleRegistry, encoder, Clock.systemUTC(), true, BUDGET,
+                TOKEN_ROUNDS, PASSWORD_ROUNDS);
+
+        assertThrows(IllegalStateException.class, runner::warmUp);
+    }
+
+    @Test
+    void givenEnabledWhenRunThenWarmUp() {
+        var encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenReturn("hash");
+        when(encoder.matches(anyString(), anyString())).thenReturn(true);
+        var clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(START);
+
+        new WarmUpRunner(this.jwtService, this.roleRegistry, encoder, clock, true, BUDGET, TOKEN_ROUNDS,
+                PASSWORD_ROUNDS).run(new DefaultApplicationArguments());
+        new WarmUpRunner(this.jwtService, this.roleRegistry, encoder, clock, true, Duration.ZERO, TOKEN_ROUNDS,
+                PASSWORD_ROUNDS).run(new DefaultApplicationArguments());
+
+        verify(encoder).encode(anyString());
+    }
+
+    @Test
+    void givenDisabledWhenRunThenDoNothing() {
+        var encoder = mock(PasswordEncoder.class);
+        var jwt = mock(JwtService.class);
+
+        new WarmUpRunner(jwt, this.roleRegistry, encoder, Clock.systemUTC(), false, BUDGET,
+                TOKEN_ROUNDS, PASSWORD_ROUNDS).run(new DefaultApplicationArguments());
+
+        verifyNoInteractions(jwt, encoder);
+    }
+}
@@ -0,0 +1,77 @@
+package com.abakudev.authservice.security.authorization;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreAuthorizeCompilerTest {
+
+    private RoleRegistry registry;
+    private PreAuthorizeCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        this.registry = new RoleRegistry();
+        this.registry.update(RoleRegistryTest.builtInRoles());
+        this.compiler = new PreAuthorizeCompiler(this.registry);
+    }
+
+    @Test
+    void givenRoleCheckWhenCompileThenRequireRole() {
+        var requirement = this.compiler.compile("hasRole('ADMIN')");
+        assertEquals(List.of(bits("ROLE_ADMIN")), requirement.clauses());
+    }
+
+    @Test
+    void givenConjunctionWhenCompileThenRequireEveryClause() {
+        var requirement = this.compiler.compile(
+                "hasAnyRole('ADMIN', 'MANAGER') and hasAnyAuthority('admin:read','management:read') && hasAuthority('ROLE_USER')");
+        assertEquals(List.of(bits("ROLE_ADMIN", "ROLE_MANAGER"), bits("admin:read", "management:read"),
+                bits("ROLE_USER")), requirement.clauses());
+    }
+
+    @Test
+    void givenRequirementWhenCheckThenRequireEveryClause() {
+        var adminRead = this.compiler.compile("hasRole('ADMIN')").and(this.compiler.compile("hasAuthority('admin:read')"));
+
+        assertTrue(adminRead.isSatisfiedBy(this.registry.role("ADMIN").bits()));
+        assertFalse(adminRead.isSatisfiedBy(this.registry.role("MANAGER").bits()));
+        assertFalse(adminRead.isSatisfiedBy(bits("admin:read")));
+        assertTrue(AuthorizationRequirement.NONE.isSatisfiedBy(new BitSet()));
+    }
+
+    @Test
+    void givenUnknownAuthorityWhenCompileThenFail() {
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> this.compiler.compile("hasAuthority('admin:reed')"));
+        assertEquals("Unknown authority 'admin:reed' in @PreAuthorize expression: hasAuthority('admin:reed')",
+                ex.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> this.compiler.compile("hasAuthority('ROLE_ROOT')"));
+    }
+
+    @Test
+    void givenUnknownRoleWhenCompileThenFail() {
+        assertThrows(IllegalArgumentException.class, () -> this.compiler.compile("hasRole('ROOT')"));
+    }
+
+    @Test
+    void givenUnsupportedExpressionWhenCompileThenFail() {
+        assertThrows(IllegalArgumentException.class,
+                () -> this.compiler.compile("hasRole('ADMIN') or #id == principal.id"));
+    }
+
+    private BitSet bits(String... authorities) {
+        var bits = new BitSet();
+        for (String authority : authorities) {
+            bits.set(this.registry.indexOf(authority));
+        }
+        return bits;
+    }
+}
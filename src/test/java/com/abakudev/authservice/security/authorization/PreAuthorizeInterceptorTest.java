@@ -0,0 +1,94 @@
+package com.abakudev.authservice.security.authorization;
+
+import com.abakudev.authservice.demo.AdminController;
+import com.abakudev.authservice.demo.DemoController;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreAuthorizeInterceptorTest {
+
+    private RoleRegistry registry;
+    private PreAuthorizeInterceptor interceptor;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() {
+        this.registry = new RoleRegistry();
+        this.registry.update(RoleRegistryTest.builtInRoles());
+        var context = new AnnotationConfigApplicationContext(AdminController.class, DemoController.class);
+        var requirements = new PreAuthorizeRequirements(context, this.registry);
+        requirements.afterSingletonsInstantiated();
+        this.interceptor = new PreAuthorizeInterceptor(requirements, this.registry);
+        this.request = new MockHttpServletRequest();
+        this.response = new MockHttpServletResponse();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void givenAdminWhenCallAdminEndpointThenProceed() throws Exception {
+        authenticate(Role.ADMIN);
+        assertTrue(this.interceptor.preHandle(this.request, this.response, handler(new AdminController(), "get")));
+    }
+
+    @Test
+    void givenManagerWhenCallAdminEndpointThenDeny() throws Exception {
+        authenticate(Role.MANAGER);
+        var handler = handler(new AdminController(), "delete");
+        assertThrows(AccessDeniedException.class, () -> this.interceptor.preHandle(this.request, this.response,
+                handler));
+    }
+
+    @Test
+    void givenUnannotatedOrStaticHandlerWhenCallThenProceed() throws Exception {
+        authenticate(Role.USER);
+        assertTrue(this.interceptor.preHandle(this.request, this.response,
+                handler(new DemoController(), "sayHello")));
+        assertTrue(this.interceptor.preHandle(this.request, this.response, new Object()));
+    }
+
+    @Test
+    void givenAnnotatedServiceWhenStartThenFail() {
+        var context = new AnnotationConfigApplicationContext(AnnotatedService.class);
+        var requirements = new PreAuthorizeRequirements(context, this.registry);
+        assertThrows(IllegalStateException.class, requirements::afterSingletonsInstantiated);
+    }
+
+    private static HandlerMethod handler(Object controller, String method) throws NoSuchMethodException {
+        return new HandlerMethod(controller, controller.getClass().getMethod(method));
+    }
+
+    private static void authenticate(Role role) {
+        var user = new AuthenticatedUser(1, role.name() + "@mail.com", "hash", role.name(), 0);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @Service
+    static class AnnotatedService {
+
+        @PreAuthorize("hasRole('ADMIN')")
+        public void run() {
+            // only the annotation matters
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.abakudev.authservice.security.authorization;
+
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Permission;
+import com.abakudev.authservice.user.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoleRegistryTest {
+
+    private RoleRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        this.registry = new RoleRegistry();
+        this.registry.update(builtInRoles());
+    }
+
+    @Test
+    void givenRolesWhenUpdateThenCompileAuthorities() {
+        assertEquals(List.of(new SimpleGrantedAuthority("management:read"),
+                        new SimpleGrantedAuthority("ROLE_AUDITOR")),
+                withAuditor().authoritiesOf("AUDITOR"));
+        assertEquals(List.of(), this.registry.authoritiesOf("UNKNOWN"));
+        assertNull(this.registry.role(null));
+        assertEquals(Role.values().length, this.registry.roles().size());
+    }
+
+    @Test
+    void givenReloadWhenIndexAuthoritiesThenKeepIndexesStable() {
+        final int adminRead = this.registry.indexOf("admin:read");
+        final int managerRole = this.registry.indexOf("ROLE_MANAGER");
+
+        this.registry.update(Map.of("AUDITOR", Set.of("audit:read"), "MANAGER", Set.of()));
+
+        assertEquals(adminRead, this.registry.indexOf("admin:read"));
+        assertEquals(managerRole, this.registry.indexOf("ROLE_MANAGER"));
+        assertTrue(this.registry.role("AUDITOR").bits().get(this.registry.indexOf("audit:read")));
+        assertNull(this.registry.role("ADMIN"));
+    }
+
+    @Test
+    void givenRoleChangeWhenUpdateThenPublishNewSnapshot() {
+        var before = this.registry.role("MANAGER");
+        this.registry.update(Map.of("MANAGER", Set.of("admin:read")));
+
+        assertFalse(before.bits().get(this.registry.indexOf("admin:read")));
+        assertTrue(this.registry.role("MANAGER").bits().get(this.registry.indexOf("admin:read")));
+    }
+
+    @Test
+    void givenBuiltInOrDefinedNamesWhenCheckThenKnown() {
+        var registry = withAuditor();
+        assertTrue(registry.isKnownRole("AUDITOR"));
+        assertTrue(registry.isKnownRole("ADMIN"));
+        assertFalse(registry.isKnownRole("ROOT"));
+        assertTrue(registry.isKnownPermission("management:read"));
+        assertTrue(registry.isKnownPermission("admin:delete"));
+        assertFalse(registry.isKnownPermission("admin:reed"));
+    }
+
+    @Test
+    void givenUserPrincipalWhenGrantedBitsThenUseCompiledRole() {
+        var user = new AuthenticatedUser(1, "manager@mail.com", "hash", "MANAGER", 0);
+        var bits = this.registry.grantedBits(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        assertTrue(bits.get(this.registry.indexOf("ROLE_MANAGER")));
+        assertTrue(bits.get(this.registry.indexOf("management:delete")));
+        assertFalse(bits.get(this.registry.indexOf("admin:read")));
+
+        var removed = new AuthenticatedUser(2, "ghost@mail.com", "hash", "REMOVED", 0);
+        assertTrue(this.registry.grantedBits(new UsernamePasswordAuthenticationToken(removed, null, List.of()))
+                .isEmpty());
+    }
+
+    @Test
+    void givenAuthorityOnlyPrincipalWhenGrantedBitsThenMapAuthorities() {
+        var bits = this.registry.grantedBits(
+                new TestingAuthenticationToken("admin", null, "ROLE_ADMIN", "unknown", "ROLE_ROOT"));
+        assertTrue(bits.get(this.registry.indexOf("admin:delete")));
+
+        bits = this.registry.grantedBits(new TestingAuthenticationToken("reader", null, "management:read"));
+        assertTrue(bits.get(this.registry.indexOf("management:read")));
+        assertFalse(bits.get(this.registry.indexOf("ROLE_MANAGER")));
+    }
+
+    @Test
+    void givenMissingAuthenticationWhenGrantedBitsThenGrantNothing() {
+        assertTrue(this.registry.grantedBits(null).isEmpty());
+        assertTrue(this.registry.grantedBits(new UsernamePasswordAuthenticationToken("admin", null)).isEmpty());
+    }
+
+    private RoleRegistry withAuditor() {
+        var registry = new RoleRegistry();
+        registry.update(Map.of("AUDITOR", Set.of("management:read")));
+        return registry;
+    }
+
+    static Map<String, Set<String>> builtInRoles() {
+        return Arrays.stream(Role.values()).collect(Collectors.toMap(Role::name, role -> role.getPermissions()
+                .stream()
+                .map(Permission::getName)
+                .collect(Collectors.toSet())));
+    }
+}
@@ -0,0 +1,113 @@
+package com.abakudev.authservice.security.ratelimit;
+
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginRateLimiterTest {
+
+    private static final int MAX_PER_EMAIL = 3;
+    private static final int MAX_PER_IP = 5;
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+    private static final int SKETCH_WIDTH = 1024;
+
+    private SlidingWindowCounterTest.MutableClock clock;
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        this.clock = new SlidingWindowCounterTest.MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        this.limiter = new LoginRateLimiter(true, WINDOW, MAX_PER_EMAIL, MAX_PER_IP, SKETCH_WIDTH, this.clock);
+    }
+
+    @Test
+    void givenTooManyFailuresForEmailWhenAcquireThenReject() {
+        for (int i = 0; i < MAX_PER_EMAIL; i++) {
+            final String ip = "10.0.0." + i;
+            assertDoesNotThrow(() -> this.limiter.acquire("User@Mail.com", ip));
+            this.limiter.recordFailure("user@mail.com", ip);
+            this.limiter.release("User@Mail.com", ip);
+        }
+        var ex = assertThrows(BusinessException.class, () -> this.limiter.acquire("user@mail.com", "10.0.0.9"));
+        assertEquals(BusinessExceptionReason.TOO_MANY_LOGIN_ATTEMPTS.getCode(), ex.getCode());
+        assertDoesNotThrow(() -> this.limiter.acquire("other@mail.com", "10.0.0.9"));
+    }
+
+    @Test
+    void givenTooManyFailuresFromIpWhenAcquireThenReject() {
+        for (int i = 0; i < MAX_PER_IP; i++) {
+            final String email = "user" + i + "@mail.com";
+            this.limiter.acquire(email, "10.0.0.1");
+            this.limiter.recordFailure(email, "10.0.0.1");
+            this.limiter.release(email, "10.0.0.1");
+        }
+        assertThrows(BusinessException.class, () -> this.limiter.acquire("new@mail.com", "10.0.0.1"));
+        assertDoesNotThrow(() -> this.limiter.acquire("new@mail.com", "10.0.0.2"));
+    }
+
+    @Test
+    void givenSuccessfulAttemptsWhenAcquireThenNeverReject() {
+        for (int i = 0; i < MAX_PER_EMAIL * 2; i++) {
+            assertDoesNotThrow(() -> this.limiter.acquire("user@mail.com", "10.0.0.1"));
+            this.limiter.release("user@mail.com", "10.0.0.1");
+        }
+        assertEquals(0, this.limiter.inProgress());
+    }
+
+    @Test
+    void givenWindowElapsedWhenAcquireThenAllowAgain() {
+        for (int i = 0; i < MAX_PER_EMAIL; i++) {
+            this.limiter.recordFailure("user@mail.com", null);
+        }
+        assertThrows(BusinessException.class, () -> this.limiter.acquire("user@mail.com", null));
+        this.clock.advance(WINDOW.multipliedBy(2));
+        assertDoesNotThrow(() -> this.limiter.acquire("user@mail.com", null));
+    }
+
+    @Test
+    void givenDisabledLimiterWhenAcquireThenAlwaysAllow() {
+        var disabled = new LoginRateLimiter(false, WINDOW, 1, 1, SKETCH_WIDTH, this.clock);
+        disabled.recordFailure("user@mail.com", "10.0.0.1");
+        disabled.recordFailure("user@mail.com", "10.0.0.1");
+        assertDoesNotThrow(() -> disabled.acquire("user@mail.com", "10.0.0.1"));
+        disabled.release("user@mail.com", "10.0.0.1");
+        assertEquals(0, disabled.inProgress());
+    }
+
+    @Test
+    void givenAttemptsInProgressWhenAcquireThenCountThemAsFailures() {
+        for (int i = 0; i < MAX_PER_EMAIL; i++) {
+            assertDoesNotThrow(() -> this.limiter.acquire("User@Mail.com", "10.0.0.1"));
+        }
+        var ex = assertThrows(BusinessException.class, () -> this.limiter.acquire("user@mail.com", "10.0.0.2"));
+        assertEquals(BusinessExceptionReason.TOO_MANY_LOGIN_ATTEMPTS.getCode(), ex.getCode());
+
+        // a successful attempt gives its place back, a failed one keeps it
+        this.limiter.release("user@mail.com", "10.0.0.1");
+        this.limiter.recordFailure("user@mail.com", "10.0.0.1");
+        this.limiter.release("user@mail.com", "10.0.0.1");
+        assertDoesNotThrow(() -> this.limiter.acquire("user@mail.com", "10.0.0.1"));
+        assertThrows(BusinessException.class, () -> this.limiter.acquire("user@mail.com", "10.0.0.1"));
+    }
+
+    @Test
+    void givenIpRefusedWhenAcquireThenReleaseTheEmail() {
+        for (int i = 0; i < MAX_PER_IP; i++) {
+            this.limiter.recordFailure("user" + i + "@mail.com", "10.0.0.1");
+        }
+        assertThrows(BusinessException.class, () -> this.limiter.acquire("new@mail.com", "10.0.0.1"));
+        assertEquals(0, this.limiter.inProgress());
+
+        this.limiter.acquire("new@mail.com", null);
+        this.limiter.release("new@mail.com", null);
+        assertEquals(0, this.limiter.inProgress());
+    }
+}
@@ -0,0 +1,128 @@
+package com.abakudev.authservice.security.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowCounterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+    private static final int SKETCH_WIDTH = 1024;
+
+    private MutableClock clock;
+    private SlidingWindowCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        this.clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        this.counter = new SlidingWindowCounter(WINDOW, SKETCH_WIDTH, this.clock);
+    }
+
+    @Test
+    void givenEventsWhenEstimateThenCountPerKey() {
+        final int events = 3;
+        this.counter.increment("a@mail.com");
+        this.counter.increment("a@mail.com");
+        assertEquals(events, this.counter.increment("a@mail.com"));
+        assertEquals(events, this.counter.estimate("a@mail.com"));
+        assertEquals(0, this.counter.estimate("b@mail.com"));
+    }
+
+    @Test
+    void givenKeysWithEqualHashCodeWhenIncrementThenCountSeparately() {
+        // "Aa" and "BB" share their String.hashCode, so do all the keys made of them
+        assertEquals("AaAaAa@mail.com".hashCode(), "BBBBBB@mail.com".hashCode());
+        final int events = 10;
+        for (int i = 0; i < events; i++) {
+            this.counter.increment("AaAaAa@mail.com");
+        }
+        assertEquals(events, this.counter.estimate("AaAaAa@mail.com"));
+        assertEquals(0, this.counter.estimate("BBBBBB@mail.com"));
+    }
+
+    @Test
+    void givenWindowSlidesWhenEstimateThenOldEventsDecay() {
+        final int events = 10;
+        for (int i = 0; i < events; i++) {
+            this.counter.increment("a@mail.com");
+        }
+        this.clock.advance(WINDOW.plus(WINDOW.dividedBy(2)));
+        assertEquals(events / 2, this.counter.estimate("a@mail.com"));
+        this.clock.advance(WINDOW);
+        assertEquals(0, this.counter.estimate("a@mail.com"));
+    }
+
+    @Test
+    void givenConcurrentIncrementsWhenEstimateThenNoEventIsLost() throws InterruptedException {
+        final int threads = 8;
+        final int perThread = 1_000;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        this.counter.increment("10.0.0.1");
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+        assertEquals(threads * perThread, this.counter.estimate("10.0.0.1"));
+    }
+
+    @Test
+    void givenManyKeysWhenEstimateThenNeverUnderCount() {
+        final int keys = 5_000;
+        for (int i = 0; i < keys; i++) {
+            this.counter.increment("user" + i + "@mail.com");
+        }
+        for (int i = 0; i < keys; i++) {
+            assertTrue(this.counter.estimate("user" + i + "@mail.com") >= 1);
+        }
+    }
+
+    @Test
+    void givenNonPositiveWindowWhenCreateThenFail() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(Duration.ZERO, SKETCH_WIDTH, this.clock));
+    }
+
+    static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            this.now = this.now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return this.now;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.abakudev.authservice.token;
+
+import com.abakudev.authservice.config.EntityCacheEviction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionActivityTest {
+
+    private static final Instant FIRST_USE = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Instant SECOND_USE = Instant.parse("2024-01-01T10:00:05Z");
+
+    private JdbcTemplate jdbcTemplate;
+    private EntityCacheEviction cacheEviction;
+    private Clock clock;
+    private SessionActivity sessionActivity;
+
+    @BeforeEach
+    void setUp() {
+        this.jdbcTemplate = mock(JdbcTemplate.class);
+        this.cacheEviction = mock(EntityCacheEviction.class);
+        this.clock = mock(Clock.class);
+        this.sessionActivity = new SessionActivity(this.jdbcTemplate, this.cacheEviction, this.clock);
+    }
+
+    @Test
+    void givenRepeatedUsesWhenFlushThenWriteLastUseOnce() {
+        when(this.clock.instant()).thenReturn(FIRST_USE, SECOND_USE);
+        this.sessionActivity.touch(1);
+        this.sessionActivity.touch(1);
+        this.sessionActivity.flush();
+        verify(this.jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> updates) -> updates.size() == 1
+                && updates.get(0)[0].equals(Timestamp.from(SECOND_USE)) && updates.get(0)[1].equals(1)));
+        verify(this.cacheEviction).evictTokens(List.of(1));
+        assertEquals(0, this.sessionActivity.pendingCount());
+    }
+
+    @Test
+    void givenManyTokensWhenFlushThenWriteInBatches() {
+        when(this.clock.instant()).thenReturn(FIRST_USE);
+        for (int tokenId = 0; tokenId <= SessionActivity.BATCH_SIZE; tokenId++) {
+            this.sessionActivity.touch(tokenId);
+        }
+        this.sessionActivity.flush();
+        verify(this.jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void givenNoUseWhenFlushThenNoWrite() {
+        this.sessionActivity.flush();
+        verify(this.jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verify(this.cacheEviction, never()).evictTokens(anyList());
+    }
+
+    @Test
+    void givenDatabaseFailureWhenFlushThenDropPendingUses() {
+        when(this.clock.instant()).thenReturn(FIRST_USE);
+        when(this.jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        this.sessionActivity.touch(1);
+        this.sessionActivity.flush();
+        assertEquals(0, this.sessionActivity.pendingCount());
+    }
+
+    @Test
+    void givenPendingUseWhenLastSeenThenPreferPendingUse() {
+        when(this.clock.instant()).thenReturn(SECOND_USE);
+        var used = Token.builder().id(1).lastSeenAt(FIRST_USE).build();
+        var unused = Token.builder().id(2).lastSeenAt(FIRST_USE).build();
+        this.sessionActivity.touch(1);
+        assertEquals(SECOND_USE, this.sessionActivity.lastSeen(used));
+        assertEquals(FIRST_USE, this.sessionActivity.lastSeen(unused));
+    }
+}
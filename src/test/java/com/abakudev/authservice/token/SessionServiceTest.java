@@ -0,0 +1,129 @@
+package com.abakudev.authservice.token;
+
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.persistence.ReadReplicas;
+import com.abakudev.authservice.security.DegradedValidation;
+import com.abakudev.authservice.security.ReferenceTokens;
+import com.abakudev.authservice.security.TokenEpochs;
+import com.abakudev.authservice.user.AuthenticatedUser;
+import com.abakudev.authservice.user.Role;
+import com.abakudev.authservice.user.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionServiceTest {
+
+    private static final Instant CREATED_AT = Instant.parse("2024-01-01T10:00:00Z");
+    private static final Instant EXPIRES_AT = Instant.parse("2024-01-08T10:00:00Z");
+
+    private TokenRepository tokenRepository;
+    private UserRepository userRepository;
+    private TokenEpochs tokenEpochs;
+    private SessionActivity sessionActivity;
+    private EntityCacheEviction cacheEviction;
+    private DegradedValidation degradedValidation;
+    private ReferenceTokens referenceTokens;
+    private ReadReplicas readReplicas;
+    private SessionService sessionService;
+    private AuthenticatedUser user;
+
+    @BeforeEach
+    void setUp() {
+        this.tokenRepository = mock(TokenRepository.class);
+        this.userRepository = mock(UserRepository.class);
+        this.tokenEpochs = new TokenEpochs();
+        this.sessionActivity = mock(SessionActivity.class);
+        this.cacheEviction = mock(EntityCacheEviction.class);
+        this.degradedValidation = mock(DegradedValidation.class);
+        this.referenceTokens = mock(ReferenceTokens.class);
+        this.readReplicas = mock(ReadReplicas.class);
+        this.sessionService = new SessionService(this.tokenRepository, this.userRepository, this.tokenEpochs,
+                this.sessionActivity, this.cacheEviction, this.degradedValidation, this.referenceTokens,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), this.readReplicas);
+        this.user = new AuthenticatedUser(1, "user@mail.com", "hash", Role.USER.name(), 0);
+    }
+
+    @Test
+    void givenConnectedUserWhenFindActiveThenListSessionsOfCurrentEpoch() {
+        this.tokenEpochs.advance(1, 2);
+        var token = Token.builder().id(2).sessionId("session-1").device("JUnit").ipAddress("127.0.0.1")
+                .createdAt(CREATED_AT).expiresAt(EXPIRES_AT).build();
+        when(this.tokenRepository.findActiveSessions(eq(1), eq(2), any())).thenReturn(List.of(token));
+        when(this.sessionActivity.lastSeen(token)).thenReturn(CREATED_AT);
+
+        var sessions = this.sessionService.findActive(new UsernamePasswordAuthenticationToken(this.user, null));
+
+        assertEquals(List.of(new SessionResponse("session-1", "JUnit", "127.0.0.1", CREATED_AT, CREATED_AT,
+                EXPIRES_AT)), sessions);
+    }
+
+    @Test
+    void givenUserIdWhenFindActiveThenLoadTokenEpoch() {
+        when(this.userRepository.findTokenEpoch(1)).thenReturn(Optional.of(0));
+        when(this.tokenRepository.findActiveSessions(eq(1), eq(0), any())).thenReturn(List.of());
+        assertEquals(List.of(), this.sessionService.findActive(1));
+    }
+
+    @Test
+    void givenUnknownUserWhenFindActiveThenRejectUserNotFound() {
+        when(this.userRepository.findTokenEpoch(1)).thenReturn(Optional.empty());
+        var ex = assertThrows(BusinessException.class, () -> this.sessionService.findActive(1));
+        assertEquals(BusinessExceptionReason.USER_NOT_FOUND.getCode(), ex.getCode());
+    }
+
+    @Test
+    void givenActiveSessionWhenRevokeThenRevokeAndEvictOnlyItsTokens() {
+        var access = Token.builder().id(2).tokenValue("access").sessionId("session-1").build();
+        var refresh = Token.builder().id(4).tokenValue("refresh").sessionId("session-1").build();
+        when(this.tokenRepository.findActiveBySession(1, "session-1")).thenReturn(List.of(access, refresh));
+        when(this.tokenRepository.saveAll(List.of(access, refresh))).thenReturn(List.of(access, refresh));
+
+        this.sessionService.revoke(new UsernamePasswordAuthenticationToken(this.user, null), "session-1");
+
+        assertTrue(access.isRevoked() && access.isExpired() && refresh.isRevoked() && refresh.isExpired());
+        verify(this.cacheEviction).evictTokens(List.of(2, 4));
+        verify(this.cacheEviction).evictTokenValues(List.of("access", "refresh"));
+        verify(this.degradedValidation).revokeSession("session-1");
+        verify(this.referenceTokens).revoke("access");
+        verify(this.referenceTokens).revoke("refresh");
+        verify(this.readReplicas).wrote("user@mail.com");
+    }
+
+    @Test
+    void givenUserIdWhenRevokeThenReadUserTokensFromPrimary() {
+        var access = Token.builder().id(2).tokenValue("access").sessionId("session-1").build();
+        when(this.tokenRepository.findActiveBySession(1, "session-1")).thenReturn(List.of(access));
+        when(this.tokenRepository.saveAll(List.of(access))).thenReturn(List.of(access));
+        when(this.userRepository.findEmail(1)).thenReturn(Optional.of("user@mail.com"));
+
+        this.sessionService.revoke(1, "session-1");
+
+        verify(this.readReplicas).wrote("user@mail.com");
+    }
+
+    @Test
+    void givenUnknownSessionWhenRevokeThenRejectSessionNotFound() {
+        when(this.tokenRepository.findActiveBySession(1, "session-1")).thenReturn(List.of());
+        when(this.tokenRepository.saveAll(List.of())).thenReturn(List.of());
+        var ex = assertThrows(BusinessException.class, () -> this.sessionService.revoke(1, "session-1"));
+        assertEquals(BusinessExceptionReason.SESSION_NOT_FOUND.getCode(), ex.getCode());
+    }
+}
@@ -0,0 +1,26 @@
+package com.abakudev.authservice.user;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class AuthenticatedUserTest {
+
+    @Test
+    void givenUserWhenOfThenCopyAuthenticationFields() {
+        var user = User.builder().id(1).email("user@mail.com").password("hash").role(Role.USER.name())
+                .tokenEpoch(2).build();
+        var principal = AuthenticatedUser.of(user);
+        assertEquals(new AuthenticatedUser(1, "user@mail.com", "hash", Role.USER.name(), 2), principal);
+        assertEquals("user@mail.com", principal.getUsername());
+        assertEquals("hash", principal.getPassword());
+        assertEquals("ROLE_USER", principal.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    void givenPrincipalWhenToStringThenHidePasswordHash() {
+        var principal = new AuthenticatedUser(1, "user@mail.com", "$2a$10$hash", Role.USER.name(), 0);
+        assertFalse(principal.toString().contains("$2a$10$hash"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.abakudev.authservice.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailMembershipIndexTest {
+
+    private static final long EXPECTED_USERS = 10_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private UserRepository userRepository;
+    private EmailMembershipIndex index;
+
+    @BeforeEach
+    void setUp() {
+        this.userRepository = mock(UserRepository.class);
+        var transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        this.index = new EmailMembershipIndex(this.userRepository, transactionTemplate, Clock.systemUTC(), true,
+                EXPECTED_USERS, FALSE_POSITIVE_RATE);
+    }
+
+    @Test
+    void givenIndexNotLoadedWhenMightContainThenMaybe() {
+        assertFalse(this.index.isReady());
+        assertTrue(this.index.mightContain("unknown@mail.com"));
+    }
+
+    @Test
+    void givenLoadedIndexWhenMightContainThenNoFalseNegative() {
+        when(this.userRepository.streamAllEmails()).thenReturn(Stream.of("admin@mail.com", "User@Mail.com"));
+        this.index.run(null);
+        assertTrue(this.index.isReady());
+        assertTrue(this.index.mightContain("admin@mail.com"));
+        assertTrue(this.index.mightContain("user@mail.com"));
+        assertFalse(this.index.mightContain("unknown@mail.com"));
+    }
+
+    @Test
+    void givenRegisteredElsewhereWhenRefreshThenIndexed() {
+        when(this.userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        this.index.run(null);
+        when(this.userRepository.findEmailsCreatedSince(any(Instant.class))).thenReturn(List.of("new@mail.com"));
+        assertFalse(this.index.mightContain("new@mail.com"));
+        this.index.refresh();
+        assertTrue(this.index.mightContain("new@mail.com"));
+    }
+
+    @Test
+    void givenUnknownEmailsWhenMightContainThenAnswerWithoutQuery() {
+        when(this.userRepository.streamAllEmails()).thenReturn(Stream.of("admin@mail.com"));
+        this.index.run(null);
+
+        assertTrue(this.index.mightContain("admin@mail.com"));
+        assertFalse(this.index.mightContain("unknown@mail.com"));
+        assertFalse(this.index.mightContain("other@mail.com"));
+        verify(this.userRepository, never()).findEmailsCreatedSince(any(Instant.class));
+    }
+
+    @Test
+    void givenExpectedUsersWhenMightContainThenFalsePositiveRateIsBounded() {
+        when(this.userRepository.streamAllEmails()).thenReturn(
+                IntStream.range(0, (int) EXPECTED_USERS).mapToObj(i -> "user" + i + "@mail.com"));
+        this.index.run(null);
+        final int probes = 10_000;
+        long falsePositives = IntStream.range(0, probes)
+                .filter(i -> this.index.mightContain("other" + i + "@mail.com"))
+                .count();
+        assertTrue(falsePositives < probes * FALSE_POSITIVE_RATE * 2, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void givenDisabledIndexWhenMightContainThenAlwaysMaybe() {
+        var disabled = new EmailMembershipIndex(this.userRepository, null, Clock.systemUTC(), false,
+                EXPECTED_USERS, FALSE_POSITIVE_RATE);
+        disabled.run(null);
+        assertTrue(disabled.mightContain("unknown@mail.com"));
+    }
+
+    @Test
+    void givenSnapshotWhenRestoreThenOnlyLoadUsersCreatedSince() {
+        when(this.userRepository.streamAllEmails()).thenReturn(Stream.of("admin@mail.com"));
+        this.index.run(null);
+        var snapshot = this.index.snapshot();
+
+        var restarted = new EmailMembershipIndex(this.userRepository, null, Clock.systemUTC(), true,
+                EXPECTED_USERS, FALSE_POSITIVE_RATE);
+        assertNull(restarted.snapshot());
+        restarted.restore(snapshot, Instant.now());
+        when(this.userRepository.findEmailsCreatedSince(any(Instant.class))).thenReturn(List.of("new@mail.com"));
+        restarted.run(null);
+
+        assertTrue(restarted.isReady());
+        assertTrue(restarted.mightContain("admin@mail.com"));
+        assertTrue(restarted.mightContain("new@mail.com"));
+        assertFalse(restarted.mightContain("unknown@mail.com"));
+        verify(this.userRepository, times(1)).streamAllEmails();
+    }
+
+    @Test
+    void givenSnapshotOfAnotherSizeWhenRestoreThenReject() {
+        when(this.userRepository.streamAllEmails()).thenReturn(Stream.empty());
+        this.index.run(null);
+        var snapshot = this.index.snapshot();
+
+        var resized = new EmailMembershipIndex(this.userRepository, null, Clock.systemUTC(), true,
+                EXPECTED_USERS * 2, FALSE_POSITIVE_RATE);
+        assertThrows(IllegalStateException.class, () -> resized.restore(snapshot, Instant.now()));
+    }
+}
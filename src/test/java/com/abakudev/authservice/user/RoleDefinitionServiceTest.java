@@ -0,0 +1,110 @@
+package com.abakudev.authservice.user;
+
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoleDefinitionServiceTest {
+
+    private RoleDefinitionRepository repository;
+    private UserRepository userRepository;
+    private RoleRegistry roleRegistry;
+    private EntityCacheEviction cacheEviction;
+    private RoleDefinitionService service;
+    private List<RoleDefinition> stored;
+
+    @BeforeEach
+    void setUp() {
+        this.repository = mock(RoleDefinitionRepository.class);
+        this.userRepository = mock(UserRepository.class);
+        this.roleRegistry = new RoleRegistry();
+        this.cacheEviction = mock(EntityCacheEviction.class);
+        this.stored = new ArrayList<>();
+        when(repository.findAllWithPermissions()).thenAnswer(invocation -> List.copyOf(this.stored));
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> {
+            RoleDefinition role = invocation.getArgument(0);
+            this.stored.removeIf(r -> r.getName().equals(role.getName()));
+            this.stored.add(role);
+            return role;
+        });
+        this.service = new RoleDefinitionService(this.repository, this.userRepository, this.roleRegistry,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), this.cacheEviction);
+    }
+
+    @Test
+    void givenEmptyTableWhenStartThenSeedBuiltInRoles() {
+        when(repository.saveAllAndFlush(anyCollection())).thenAnswer(invocation -> {
+            this.stored.addAll(invocation.getArgument(0));
+            return List.copyOf(this.stored);
+        });
+
+        this.service.afterPropertiesSet();
+
+        assertEquals(Role.values().length, this.roleRegistry.roles().size());
+        assertEquals(Set.of("management:read", "management:update", "management:create", "management:delete"),
+                Set.copyOf(this.service.findAll().stream()
+                        .filter(role -> role.name().equals("MANAGER"))
+                        .findFirst()
+                        .orElseThrow()
+                        .permissions()));
+    }
+
+    @Test
+    void givenNewRoleWhenSaveThenReloadRegistry() {
+        var response = this.service.save("AUDITOR", new RoleDefinitionRequest(Set.of("audit:read")));
+
+        assertEquals(new RoleDefinitionResponse("AUDITOR", Set.of("audit:read")), response);
+        assertNotNull(this.roleRegistry.role("AUDITOR"));
+    }
+
+    @Test
+    void givenAssignedRoleWhenDeleteThenReject() {
+        var auditor = RoleDefinition.builder().name("AUDITOR").build();
+        when(repository.findByName("AUDITOR")).thenReturn(Optional.of(auditor));
+        when(userRepository.existsByRole("AUDITOR")).thenReturn(true);
+
+        var ex = assertThrows(BusinessException.class, () -> this.service.delete("AUDITOR"));
+        assertEquals(BusinessExceptionReason.ROLE_IN_USE.getCode(), ex.getCode());
+        verify(repository, never()).delete(any());
+    }
+
+    @Test
+    void givenUnknownRoleWhenAssignThenReject() {
+        var request = new RoleAssignmentRequest("ROOT");
+        var ex = assertThrows(BusinessException.class, () -> this.service.assign(1, request));
+        assertEquals(BusinessExceptionReason.UNKNOWN_ROLE.getCode(), ex.getCode());
+    }
+
+    @Test
+    void givenKnownRoleWhenAssignThenUpdateUser() {
+        this.service.save("AUDITOR", new RoleDefinitionRequest(Set.of("audit:read")));
+        var user = User.builder().id(1).email("user@mail.com").role(Role.USER.name()).build();
+        when(userRepository.findById(1)).thenReturn(Optional.of(user));
+
+        this.service.assign(1, new RoleAssignmentRequest("AUDITOR"));
+
+        assertEquals("AUDITOR", user.getRole());
+        verify(userRepository).save(user);
+        verify(this.cacheEviction).evictUser(1);
+    }
+}
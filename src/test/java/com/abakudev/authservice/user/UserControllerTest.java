@@ -1,10 +1,17 @@
 package com.abakudev.authservice.user;
 
+import com.abakudev.authservice.auth.request.RegisterRequest;
+import com.abakudev.authservice.token.SessionResponse;
+import com.abakudev.authservice.token.SessionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
 
 import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
@@ -16,13 +23,17 @@ class UserControllerTest {
 
 
     private UserService userService;
+    private UserImportService importService;
+    private SessionService sessionService;
 
     private UserController userController;
 
     @BeforeEach
     void setUp() {
         userService = mock(UserService.class);
-        userController = new UserController(userService);
+        importService = mock(UserImportService.class);
+        sessionService = mock(SessionService.class);
+        userController = new UserController(userService, importService, sessionService);
     }
 
     @Test
@@ -36,4 +47,44 @@ class UserControllerTest {
         this.userController.changePassword(changePasswordRequest, principal);
         verify(this.userService, times(1)).changePassword(any(), any());
     }
+
+    @Test
+    void testFindSessionsOk() {
+
+        Principal principal = mock(Principal.class);
+        var sessions = List.of(new SessionResponse("session-1", "JUnit", "127.0.0.1", Instant.EPOCH, null,
+                Instant.EPOCH));
+        when(this.sessionService.findActive(principal)).thenReturn(sessions);
+        var response = this.userController.findSessions(principal);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(sessions, response.getBody());
+    }
+
+    @Test
+    void testRevokeSessionNoContent() {
+
+        Principal principal = mock(Principal.class);
+        var response = this.userController.revokeSession("session-1", principal);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(this.sessionService, times(1)).revoke(principal, "session-1");
+    }
+
+    @Test
+    void testRevokeAllSessionsNoContent() {
+
+        Principal principal = mock(Principal.class);
+        var response = this.userController.revokeAllSessions(principal);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        verify(this.userService, times(1)).revokeAllSessions(principal);
+    }
+
+    @Test
+    void testRegisterBatchCreated() {
+        var users = List.of(RegisterRequest.builder().email("user@mail.com").password("password").build());
+        var expected = new BatchRegisterResponse(1, List.of(), List.of());
+        when(this.importService.importUsers(users)).thenReturn(expected);
+        var response = this.userController.registerBatch(new BatchRegisterRequest(users));
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(expected, response.getBody());
+    }
 }
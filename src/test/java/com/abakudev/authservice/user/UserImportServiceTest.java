@@ -0,0 +1,156 @@
+package com.abakudev.authservice.user;
+
+import com.abakudev.authservice.auth.request.RegisterRequest;
+import com.abakudev.authservice.security.authorization.RoleRegistry;
+import jakarta.validation.Validation;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceTest {
+
+    private static final List<Integer> INVALID_POSITIONS = List.of(1, 2, 3, 4);
+
+    private UserRepository userRepository;
+    private EmailMembershipIndex emailIndex;
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        this.userRepository = mock(UserRepository.class);
+        this.emailIndex = mock(EmailMembershipIndex.class);
+        var passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> "hashed-" + invocation.getArgument(0));
+        var transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        var roleRegistry = new RoleRegistry();
+        roleRegistry.update(Map.of(Role.USER.name(), Set.of(), Role.MANAGER.name(), Set.of("management:read")));
+        this.importService = new UserImportService(this.userRepository, passwordEncoder, transactionTemplate,
+                this.emailIndex, roleRegistry, Validation.buildDefaultValidatorFactory().getValidator(),
+                Executors.newFixedThreadPool(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.importService.shutdown();
+    }
+
+    @Test
+    void givenNewUsersWhenImportThenInsertInBatchWithDefaultRole() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+
+        var response = importService.importUsers(List.of(request("A@mail.com"), request("b@mail.com")));
+
+        assertEquals(new BatchRegisterResponse(2, List.of(), List.of()), response);
+        verify(userRepository).saveAll(argThat(users -> users instanceof List<User> list
+                && list.size() == 2
+                && "a@mail.com".equals(list.get(0).getEmail())
+                && "hashed-password".equals(list.get(0).getPassword())
+                && Role.USER.name().equals(list.get(0).getRole())));
+        verify(userRepository).flush();
+        verify(emailIndex).add("a@mail.com");
+        verify(emailIndex).add("b@mail.com");
+    }
+
+    @Test
+    void givenExistingAndRepeatedEmailsWhenImportThenSkipThem() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of("b@mail.com"));
+
+        var response = importService.importUsers(
+                List.of(request("a@mail.com"), request("b@mail.com"), request("A@mail.com")));
+
+        assertEquals(1, response.created());
+        assertEquals(List.of("a@mail.com", "b@mail.com"), response.alreadyExists());
+        verify(emailIndex, never()).add("b@mail.com");
+    }
+
+    @Test
+    void givenConcurrentRegistrationWhenImportThenRetryRowByRow() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        when(userRepository.saveAll(any())).thenThrow(duplicateEmail());
+        when(userRepository.saveAndFlush(argThat(user -> "b@mail.com".equals(user.getEmail()))))
+                .thenThrow(duplicateEmail());
+
+        var response = importService.importUsers(List.of(request("a@mail.com"), request("b@mail.com")));
+
+        assertEquals(new BatchRegisterResponse(1, List.of("b@mail.com"), List.of()), response);
+        verify(emailIndex).add("a@mail.com");
+        verify(emailIndex, never()).add("b@mail.com");
+    }
+
+    @Test
+    void givenInvalidUsersWhenImportThenSkipAndReportThem() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        var withoutPassword = request("b@mail.com");
+        withoutPassword.setPassword(null);
+        var requests = new ArrayList<>(List.of(request("a@mail.com"), withoutPassword, request(" ")));
+        requests.add(null);
+        requests.add(request("not an email"));
+
+        var response = importService.importUsers(requests);
+
+        assertEquals(new BatchRegisterResponse(1, List.of(), INVALID_POSITIONS), response);
+        verify(emailIndex).add("a@mail.com");
+    }
+
+    @Test
+    void givenUnknownRoleWhenImportThenReportOnlyThatUser() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        var manager = request("a@mail.com");
+        manager.setRole(Role.MANAGER.name());
+        var unknown = request("b@mail.com");
+        unknown.setRole("ROOT");
+
+        var response = importService.importUsers(List.of(manager, unknown));
+
+        assertEquals(new BatchRegisterResponse(1, List.of(), List.of(1)), response);
+        verify(userRepository).saveAll(argThat(users -> users instanceof List<User> list && list.size() == 1
+                && Role.MANAGER.name().equals(list.get(0).getRole())));
+    }
+
+    @Test
+    void givenOtherIntegrityViolationWhenImportThenRethrow() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(List.of());
+        when(userRepository.saveAll(any())).thenThrow(new DataIntegrityViolationException("not null"));
+
+        var requests = List.of(request("a@mail.com"));
+        assertThrows(DataIntegrityViolationException.class, () -> importService.importUsers(requests));
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    private static RegisterRequest request(String email) {
+        return RegisterRequest.builder()
+                .firstname("firstname")
+                .lastname("lastname")
+                .email(email)
+                .password("password")
+                .build();
+    }
+
+    private static DataIntegrityViolationException duplicateEmail() {
+        return new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate key", new SQLException(), User.EMAIL_CONSTRAINT));
+    }
+}
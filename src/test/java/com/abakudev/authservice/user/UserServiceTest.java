@@ -1,12 +1,25 @@
 package com.abakudev.authservice.user;
 
+import com.abakudev.authservice.config.EntityCacheEviction;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessException;
+import com.abakudev.authservice.errorhandling.exceptions.BusinessExceptionReason;
+import com.abakudev.authservice.persistence.ReadReplicas;
+import com.abakudev.authservice.security.TokenEpochs;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -18,23 +31,27 @@ class UserServiceTest {
 
     private UserRepository userRepository;
 
+    private TokenEpochs tokenEpochs;
+
+    private EntityCacheEviction cacheEviction;
+
+    private ReadReplicas readReplicas;
+
     private UserService userService;
 
-    private User mockUser;
+    private AuthenticatedUser mockUser;
 
     @BeforeEach
     void setUp() {
         this.passwordEncoder = mock(PasswordEncoder.class);
         this.userRepository = mock(UserRepository.class);
-        this.userService = new UserService(passwordEncoder, userRepository);
-
-        this.mockUser = User.builder()
-                .firstname("firstname")
-                .lastname("lastname")
-                .email("user@mail.com")
-                .password("newPassword")
-                .role(Role.USER)
-                .build();
+        this.tokenEpochs = new TokenEpochs();
+        this.cacheEviction = mock(EntityCacheEviction.class);
+        this.readReplicas = mock(ReadReplicas.class);
+        this.userService = new UserService(passwordEncoder, userRepository, tokenEpochs, cacheEviction,
+                readReplicas);
+
+        this.mockUser = new AuthenticatedUser(1, "user@mail.com", "newPassword", Role.USER.name(), 0);
     }
 
     @Test
@@ -42,11 +59,70 @@ class UserServiceTest {
 
         when(this.passwordEncoder.encode(any())).thenReturn("encodeResponse");
         when(this.passwordEncoder.matches(any(), anyString())).thenReturn(true);
-        when(this.userRepository.save(any())).thenReturn(this.mockUser);
+        when(this.userRepository.updatePasswordAndAdvanceTokenEpoch(1, 0, "encodeResponse")).thenReturn(1);
+        when(this.userRepository.findTokenEpoch(1)).thenReturn(Optional.of(1));
         UsernamePasswordAuthenticationToken connectedUser = new UsernamePasswordAuthenticationToken(this.mockUser, null);
         ChangePasswordRequest changePasswordRequest = new ChangePasswordRequest("currentPassword",
                 "newPassword", "newPassword");
         this.userService.changePassword(changePasswordRequest, connectedUser);
-        verify(this.userRepository, times(1)).save(any());
+        verify(this.userRepository, times(1)).updatePasswordAndAdvanceTokenEpoch(1, 0, "encodeResponse");
+        verify(this.cacheEviction).evictUser(1);
+        verify(this.readReplicas).wrote("user@mail.com");
+        assertFalse(this.tokenEpochs.isCurrent(0, this.mockUser));
+    }
+
+    @Test
+    void testChangePasswordWrongCurrentPassword() {
+
+        when(this.passwordEncoder.matches(any(), anyString())).thenReturn(false);
+        UsernamePasswordAuthenticationToken connectedUser = new UsernamePasswordAuthenticationToken(this.mockUser, null);
+        ChangePasswordRequest changePasswordRequest = new ChangePasswordRequest("wrongPassword",
+                "newPassword", "newPassword");
+        assertThrows(IllegalStateException.class,
+                () -> this.userService.changePassword(changePasswordRequest, connectedUser));
+        verify(this.userRepository, never()).updatePasswordAndAdvanceTokenEpoch(any(), anyInt(), any());
+        assertTrue(this.tokenEpochs.isCurrent(0, this.mockUser));
+    }
+
+    @Test
+    void testChangePasswordStalePrincipal() {
+
+        when(this.passwordEncoder.encode(any())).thenReturn("encodeResponse");
+        when(this.passwordEncoder.matches(any(), anyString())).thenReturn(true);
+        // the token epoch moved on since the principal was loaded
+        when(this.userRepository.updatePasswordAndAdvanceTokenEpoch(1, 0, "encodeResponse")).thenReturn(0);
+        UsernamePasswordAuthenticationToken connectedUser = new UsernamePasswordAuthenticationToken(this.mockUser, null);
+        ChangePasswordRequest changePasswordRequest = new ChangePasswordRequest("currentPassword",
+                "newPassword", "newPassword");
+        var ex = assertThrows(BusinessException.class,
+                () -> this.userService.changePassword(changePasswordRequest, connectedUser));
+        assertEquals(BusinessExceptionReason.CREDENTIALS_CHANGED.getCode(), ex.getCode());
+        verify(this.cacheEviction).evictUser(1);
+        verify(this.userRepository, never()).findTokenEpoch(any());
+    }
+
+    @Test
+    void testChangePasswordConfirmationMismatchSkipsHashing() {
+
+        UsernamePasswordAuthenticationToken connectedUser = new UsernamePasswordAuthenticationToken(this.mockUser, null);
+        ChangePasswordRequest changePasswordRequest = new ChangePasswordRequest("currentPassword",
+                "newPassword", "otherPassword");
+        assertThrows(IllegalStateException.class,
+                () -> this.userService.changePassword(changePasswordRequest, connectedUser));
+        verify(this.passwordEncoder, never()).matches(any(), anyString());
+        verify(this.passwordEncoder, never()).encode(any());
+    }
+
+    @Test
+    void testRevokeAllSessions() {
+
+        when(this.userRepository.findTokenEpoch(1)).thenReturn(Optional.of(1));
+        UsernamePasswordAuthenticationToken connectedUser = new UsernamePasswordAuthenticationToken(this.mockUser, null);
+        this.userService.revokeAllSessions(connectedUser);
+        verify(this.userRepository, times(1)).advanceTokenEpoch(1);
+        verify(this.readReplicas).wrote("user@mail.com");
+        assertFalse(this.tokenEpochs.isCurrent(0, this.mockUser));
+        assertTrue(this.tokenEpochs.isCurrent(1, this.mockUser));
+        assertEquals(1, this.tokenEpochs.current(this.mockUser));
     }
 }